@@ -0,0 +1,114 @@
+package com.JMEP.benchmarks;
+
+import com.JMEP.examples.DoubleArraySolver.CompiledDoubleArrayExpression;
+import com.JMEP.examples.DoubleArraySolver.DoubleArraySolver;
+import com.JMEP.examples.DoubleArraySolver.PrimitiveDoubleArraySolver;
+import com.JMEP.solver.CompiledExpression;
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.ParsingException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing, evaluating and solving expressions in the DoubleArraySolver and the PrimitiveDoubleArraySolver,
+ * on arrays of a chosen length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleArraySolverBenchmark {
+    //the variables the expressions use
+    private static final String[] variables = {"A", "B", "C", "D"};
+
+    @Param({"8", "64"})
+    public int operands;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    @Param({"16", "768", "4096"})
+    public int length;
+
+    //the expression with variables, and the same expression with each variable replaced by an array
+    private String problem;
+    private String constantProblem;
+    private DoubleArraySolver boxedSolver;
+    private PrimitiveDoubleArraySolver primitiveSolver;
+    private CompiledExpression<Double[]> boxedCompiled;
+    private CompiledExpression<double[]> primitiveCompiled;
+    private CompiledDoubleArrayExpression arrayCompiled;
+    private Map<String, Double[]> boxedValues;
+    private Map<String, double[]> primitiveValues;
+    private double[][] slotValues;
+    private double[] out;
+
+    @Setup
+    public void setUp() throws ParsingException {
+        Random random = new Random(Expressions.seed);
+        problem = Expressions.generate(operands, depth, new String[]{"+", "-", "*"}, variables, random);
+        boxedSolver = new DoubleArraySolver();
+        primitiveSolver = new PrimitiveDoubleArraySolver();
+        boxedValues = new HashMap<>();
+        primitiveValues = new HashMap<>();
+        constantProblem = problem;
+        for (String variable : variables) {
+            double[] primitive = new double[length];
+            Double[] boxed = new Double[length];
+            StringBuilder written = new StringBuilder("[");
+            for (int index = 0; index < length; index++) {
+                primitive[index] = random.nextDouble();
+                boxed[index] = primitive[index];
+                written.append(index == 0 ? "" : ",").append(primitive[index]);
+            }
+            primitiveValues.put(variable, primitive);
+            boxedValues.put(variable, boxed);
+            constantProblem = constantProblem.replace(variable, written.append(']'));
+        }
+        boxedCompiled = boxedSolver.compile(problem);
+        primitiveCompiled = primitiveSolver.compile(problem);
+        arrayCompiled = primitiveSolver.compileArray(problem);
+        slotValues = new double[arrayCompiled.getVariableNames().size()][];
+        for (int index = 0; index < slotValues.length; index++) {
+            slotValues[index] = primitiveValues.get(arrayCompiled.getVariableNames().get(index));
+        }
+        out = new double[length];
+    }
+
+    @Benchmark
+    public CompiledExpression<Double[]> parseBoxed() throws ParsingException {
+        return boxedSolver.compile(problem);
+    }
+
+    @Benchmark
+    public Double[] evaluateBoxed() throws EvaluationException {
+        return boxedCompiled.evaluate(boxedValues);
+    }
+
+    @Benchmark
+    public double[] evaluatePrimitive() throws EvaluationException {
+        return primitiveCompiled.evaluate(primitiveValues);
+    }
+
+    @Benchmark
+    public double[] evaluateIntoBuffers() throws EvaluationException {
+        arrayCompiled.evaluate(slotValues, out);
+        return out;
+    }
+
+    @Benchmark
+    public Double[] solveBoxed() throws EvaluationException, ParsingException {
+        return boxedSolver.solve(constantProblem);
+    }
+
+    @Benchmark
+    public double[] solvePrimitive() throws EvaluationException, ParsingException {
+        return primitiveSolver.solve(constantProblem);
+    }
+}
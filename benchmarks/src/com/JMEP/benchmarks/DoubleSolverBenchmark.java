@@ -0,0 +1,99 @@
+package com.JMEP.benchmarks;
+
+import com.JMEP.examples.DoubleSolver.CompiledDoubleExpression;
+import com.JMEP.examples.DoubleSolver.DoubleSolver;
+import com.JMEP.solver.CompiledExpression;
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.ParsingException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing, evaluating and solving expressions in the DoubleSolver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleSolverBenchmark {
+    //the variables the expressions use
+    private static final String[] variables = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+    @Param({"8", "64", "512"})
+    public int operands;
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    //the expression with variables, and the same expression with each variable replaced by a value
+    private String problem;
+    private String constantProblem;
+    private DoubleSolver solver;
+    private CompiledExpression<Double> compiled;
+    private CompiledDoubleExpression compiledDouble;
+    private CompiledDoubleExpression compiledWithMethodHandles;
+    private CompiledDoubleExpression compiledToInstructions;
+    private Map<String, Double> values;
+    private double[] slotValues;
+
+    @Setup
+    public void setUp() throws ParsingException {
+        String[] operators = {"+", "-", "*", "/"};
+        String[] leaves = {"a", "b", "c", "d", "e", "f", "g", "h", "2.5", "3"};
+        String[] constantLeaves = leaves.clone();
+        solver = new DoubleSolver();
+        values = new HashMap<>();
+        for (int index = 0; index < variables.length; index++) {
+            values.put(variables[index], index + 1.5);
+            constantLeaves[index] = Double.toString(index + 1.5);
+        }
+        //the same seed gives the same expression, with values in place of the variables
+        problem = Expressions.generate(operands, depth, operators, leaves, new Random(Expressions.seed));
+        constantProblem = Expressions.generate(operands, depth, operators, constantLeaves,
+                new Random(Expressions.seed));
+        compiled = solver.compile(problem);
+        compiledDouble = solver.compileDouble(problem);
+        compiledWithMethodHandles = solver.compileDoubleWithMethodHandles(problem);
+        compiledToInstructions = solver.compileDoubleToInstructions(problem);
+        slotValues = new double[compiledDouble.getVariableNames().size()];
+        for (int index = 0; index < slotValues.length; index++) {
+            slotValues[index] = values.get(compiledDouble.getVariableNames().get(index));
+        }
+    }
+
+    @Benchmark
+    public CompiledExpression<Double> parse() throws ParsingException {
+        return solver.compile(problem);
+    }
+
+    @Benchmark
+    public Double evaluate() throws EvaluationException {
+        return compiled.evaluate(values);
+    }
+
+    @Benchmark
+    public double evaluateDouble() throws EvaluationException {
+        return compiledDouble.evaluate(slotValues);
+    }
+
+    @Benchmark
+    public double evaluateWithMethodHandles() throws EvaluationException {
+        return compiledWithMethodHandles.evaluate(slotValues);
+    }
+
+    @Benchmark
+    public double evaluateInstructions() throws EvaluationException {
+        return compiledToInstructions.evaluate(slotValues);
+    }
+
+    @Benchmark
+    public Double solve() throws EvaluationException, ParsingException {
+        return solver.solve(constantProblem);
+    }
+}
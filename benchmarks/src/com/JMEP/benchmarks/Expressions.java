@@ -0,0 +1,72 @@
+package com.JMEP.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Builds random expressions of a chosen size and depth for the benchmarks. The same seed always gives the same
+ * expression, so runs can be compared.
+ */
+final class Expressions {
+    //the seed used by every benchmark
+    static final long seed = 42;
+
+    private Expressions() {
+    }
+
+    /**
+     * Builds an expression with the following:
+     *
+     * @param operands  The number of leaves in the expression
+     * @param depth     The most levels of parentheses to nest, where 1 is a flat chain of operators
+     * @param operators The operators to join leaves with
+     * @param leaves    The variables and values to use as leaves
+     * @param random    The source of random choices
+     * @return The expression
+     */
+    static String generate(int operands, int depth, String[] operators, String[] leaves, Random random) {
+        StringBuilder expression = new StringBuilder();
+        append(expression, operands, depth, operators, leaves, random);
+        return expression.toString();
+    }
+
+    private static void append(StringBuilder expression, int operands, int depth, String[] operators, String[] leaves,
+                               Random random) {
+        if (depth <= 1 || operands <= 2) {
+            for (int index = 0; index < operands; index++) {
+                if (index > 0) {
+                    expression.append(operators[random.nextInt(operators.length)]);
+                }
+                expression.append(leaves[random.nextInt(leaves.length)]);
+            }
+            return;
+        }
+        int left = operands / 2;
+        expression.append('(');
+        append(expression, left, depth - 1, operators, leaves, random);
+        expression.append(')').append(operators[random.nextInt(operators.length)]).append('(');
+        append(expression, operands - left, depth - 1, operators, leaves, random);
+        expression.append(')');
+    }
+
+    /**
+     * Builds a random 3-SAT problem for the LogicSolver, with about 4.26 clauses per variable so that it is equally
+     * likely to be satisfiable or not, which makes it hard.
+     *
+     * @param variables The number of variables
+     * @param random    The source of random choices
+     * @return The problem, as a conjunction of disjunctions
+     */
+    static String randomThreeSat(int variables, Random random) {
+        int clauses = (int) Math.round(variables * 4.26);
+        StringBuilder problem = new StringBuilder();
+        for (int clause = 0; clause < clauses; clause++) {
+            problem.append(clause == 0 ? "(" : "^(");
+            for (int literal = 0; literal < 3; literal++) {
+                problem.append(literal == 0 ? "" : "∨").append(random.nextBoolean() ? "~" : "")
+                        .append('v').append(random.nextInt(variables));
+            }
+            problem.append(')');
+        }
+        return problem.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.JMEP.benchmarks;
+
+import com.JMEP.examples.LogicSolver.LogicSolver;
+import com.JMEP.solver.CompiledExpression;
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.ParsingException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing, evaluating and solving expressions in the LogicSolver, and testing random 3-SAT problems for
+ * satisfiability.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogicSolverBenchmark {
+    //the variables the expressions use
+    private static final String[] variables = {"p", "q", "r", "s", "t", "u"};
+
+    @Param({"8", "64", "512"})
+    public int operands;
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    @Param({"50", "150"})
+    public int satisfiabilityVariables;
+
+    //the expression with variables, and the same expression with each variable replaced by a value
+    private String problem;
+    private String constantProblem;
+    private String threeSat;
+    private LogicSolver solver;
+    private CompiledExpression<Boolean> compiled;
+    private Map<String, Boolean> values;
+
+    @Setup
+    public void setUp() throws ParsingException {
+        String[] operators = {"^", "∨", "⇒", "⇔"};
+        String[] leaves = {"p", "q", "r", "s", "t", "u", "~p", "~s"};
+        String[] constantLeaves = {"True", "False", "True", "False", "True", "False", "~True", "~False"};
+        solver = new LogicSolver();
+        values = new HashMap<>();
+        for (int index = 0; index < variables.length; index++) {
+            values.put(variables[index], index % 2 == 0);
+        }
+        //the same seed gives the same expression, with values in place of the variables
+        problem = Expressions.generate(operands, depth, operators, leaves, new Random(Expressions.seed));
+        constantProblem = Expressions.generate(operands, depth, operators, constantLeaves,
+                new Random(Expressions.seed));
+        threeSat = Expressions.randomThreeSat(satisfiabilityVariables, new Random(Expressions.seed));
+        compiled = solver.compile(problem);
+    }
+
+    @Benchmark
+    public CompiledExpression<Boolean> parse() throws ParsingException {
+        return solver.compile(problem);
+    }
+
+    @Benchmark
+    public Boolean evaluate() throws EvaluationException {
+        return compiled.evaluate(values);
+    }
+
+    @Benchmark
+    public Boolean solve() throws EvaluationException, ParsingException {
+        return solver.solve(constantProblem);
+    }
+
+    @Benchmark
+    public boolean isSatisifiable() throws EvaluationException, ParsingException {
+        return solver.isSatisifiable(threeSat);
+    }
+}
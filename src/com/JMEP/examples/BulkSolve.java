@@ -0,0 +1,81 @@
+package com.JMEP.examples;
+
+import com.JMEP.examples.DoubleArraySolver.PrimitiveDoubleArraySolver;
+import com.JMEP.examples.DoubleSolver.DoubleSolver;
+import com.JMEP.examples.LogicSolver.LogicSolver;
+import com.JMEP.solver.BulkSolver;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Solves a file of expressions, one per line, from the command line:
+ * <pre>
+ *     java com.JMEP.examples.BulkSolve double|logic|array input output [threads]
+ * </pre>
+ * The input and output can be - to use standard input and standard output, and the number of threads defaults to the
+ * number of processors.
+ */
+public final class BulkSolve {
+
+    private BulkSolve() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length > 4) {
+            usage();
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length == 4) {
+            try {
+                threads = Integer.parseInt(args[3]);
+            } catch (NumberFormatException e) {
+                usage();
+                return;
+            }
+            if (threads < 1) {
+                usage();
+                return;
+            }
+        }
+        BulkSolver<?> bulkSolver;
+        switch (args[0]) {
+            case "double":
+                bulkSolver = new BulkSolver<>(new DoubleSolver().toImmutable(), threads);
+                break;
+            case "logic":
+                bulkSolver = new BulkSolver<>(new LogicSolver().toImmutable(), threads);
+                break;
+            case "array":
+                bulkSolver = new BulkSolver<>(new PrimitiveDoubleArraySolver().toImmutable(), threads,
+                        Arrays::toString);
+                break;
+            default:
+                usage();
+                return;
+        }
+        try (ReadableByteChannel input = args[1].equals("-") ? Channels.newChannel(System.in)
+                : Files.newByteChannel(Paths.get(args[1]), StandardOpenOption.READ);
+             WritableByteChannel output = args[2].equals("-") ? Channels.newChannel(System.out)
+                     : Files.newByteChannel(Paths.get(args[2]), StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            bulkSolver.solve(input, output);
+        }
+    }
+
+    /**
+     * Explains how to run the program.
+     */
+    private static void usage() {
+        System.err.println("usage: BulkSolve double|logic|array input output [threads]");
+        System.err.println("input and output can be - for standard input and standard output");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,112 @@
+package com.JMEP.examples.DoubleArraySolver;
+
+import com.JMEP.solver.EvaluationException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A CompiledDoubleArrayExpression is an expression that has been parsed once and is evaluated on primitive double
+ * arrays. Each function call writes into an array that it keeps, so evaluating the expression again with arrays of
+ * the same length allocates nothing. Because of this, it must not be evaluated by more than one thread at a time.
+ */
+public final class CompiledDoubleArrayExpression {
+    //the expression to evaluate
+    private final DoubleArrayNode expression;
+    //the shared subexpressions, which fill the slots after the variable slots in order before the expression is evaluated
+    private final DoubleArrayNode[] shared;
+    //the names of the variable slots, in slot order
+    private final List<String> variableNames;
+    //the values of the slots, which is reused on every evaluation
+    private final double[][] slots;
+
+    /**
+     * Creates a CompiledDoubleArrayExpression with the following:
+     *
+     * @param root        The expression to evaluate
+     * @param sharedNodes The shared subexpressions, in the order they must be evaluated
+     * @param variables   The names of the variable slots, in slot order
+     */
+    CompiledDoubleArrayExpression(DoubleArrayNode root, DoubleArrayNode[] sharedNodes, List<String> variables) {
+        expression = root;
+        shared = sharedNodes;
+        variableNames = variables;
+        slots = new double[variables.size() + sharedNodes.length][];
+    }
+
+    /**
+     * A getter for the names of the variables in this expression.
+     *
+     * @return The names of the variables, in slot order
+     */
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * Gives the slot of a variable.
+     *
+     * @param variableName The name of the variable
+     * @return The slot of the variable, or -1 if this expression has no such variable
+     */
+    public int getVariableIndex(String variableName) {
+        return variableNames.indexOf(variableName);
+    }
+
+    /**
+     * Evaluates this expression with the following variable values, placing the result into an array:
+     *
+     * @param variableValues The values of the variables, in slot order
+     * @param out            The array to place the result into, whose length must be the length of the result
+     * @throws EvaluationException If the number of values does not match the number of variables, out is the wrong
+     *                             length or there is an error in evaluation
+     */
+    public void evaluate(double[][] variableValues, double[] out) throws EvaluationException {
+        if (variableValues.length != variableNames.size()) {
+            throw new EvaluationException();
+        }
+        System.arraycopy(variableValues, 0, slots, 0, variableValues.length);
+        double[] result = evaluateSlots();
+        if (result.length != out.length) {
+            throw new EvaluationException();
+        }
+        System.arraycopy(result, 0, out, 0, out.length);
+    }
+
+    /**
+     * Evaluates this expression with the following variable values:
+     *
+     * @param variableValues A map from variable names to their values
+     * @return A new array holding the value this expression evaluates to
+     * @throws EvaluationException If a variable has no value or there is an error in evaluation
+     */
+    public double[] evaluate(Map<String, double[]> variableValues) throws EvaluationException {
+        for (int index = 0; index < variableNames.size(); index++) {
+            double[] value = variableValues.get(variableNames.get(index));
+            if (value == null) {
+                throw new EvaluationException();
+            }
+            slots[index] = value;
+        }
+        return evaluateSlots().clone();
+    }
+
+    /**
+     * Fills the shared slots and evaluates the expression, once the variable slots are filled.
+     *
+     * @return The array the expression evaluates to, which is owned by the expression
+     * @throws EvaluationException If there is an error in evaluation
+     */
+    private double[] evaluateSlots() throws EvaluationException {
+        try {
+            for (int index = 0; index < shared.length; index++) {
+                slots[variableNames.size() + index] = shared[index].evaluate(slots);
+            }
+            return expression.evaluate(slots);
+        } finally {
+            //the values are not kept alive past the evaluation
+            Arrays.fill(slots, null);
+        }
+    }
+}
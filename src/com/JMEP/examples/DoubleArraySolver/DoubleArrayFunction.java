@@ -0,0 +1,61 @@
+package com.JMEP.examples.DoubleArraySolver;
+
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.Function;
+
+import java.util.List;
+
+/**
+ * A function on primitive double arrays that writes its result into an array it is given. Compiled expressions of the
+ * PrimitiveDoubleArraySolver give each call to one of these an array that is reused on every evaluation, so nothing
+ * is allocated after the first evaluation.
+ */
+public abstract class DoubleArrayFunction extends Function<double[]> {
+
+    /**
+     * Creates a DoubleArrayFunction with the following:
+     *
+     * @param functionName The name of the function.
+     */
+    public DoubleArrayFunction(String functionName) {
+        super(functionName);
+    }
+
+    /**
+     * Creates a DoubleArrayFunction with the following:
+     *
+     * @param functionName The name of the function.
+     * @param isPure       Whether the function always gives the same result for the same parameters and has no side
+     *                     effects.
+     */
+    public DoubleArrayFunction(String functionName, boolean isPure) {
+        super(functionName, isPure);
+    }
+
+    /**
+     * Gives the length of the result of the function, checking that the parameters can be placed in it.
+     *
+     * @param parameters The parameters to use in the evaluation.
+     * @return The length of the result.
+     * @throws EvaluationException If the function cannot be evaluated with those parameters
+     */
+    public abstract int getResultLength(double[][] parameters) throws EvaluationException;
+
+    /**
+     * Evaluates the function, placing the result into an array. The array is never one of the parameters, and the
+     * parameters must not be changed.
+     *
+     * @param parameters The parameters to use in the evaluation.
+     * @param out        The array to place the result into, whose length is the result length
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public abstract void apply(double[][] parameters, double[] out) throws EvaluationException;
+
+    @Override
+    public final double[] evaluate(List<double[]> parameters) throws EvaluationException {
+        double[][] values = parameters.toArray(new double[0][]);
+        double[] out = new double[getResultLength(values)];
+        apply(values, out);
+        return out;
+    }
+}
@@ -0,0 +1,138 @@
+package com.JMEP.examples.DoubleArraySolver;
+
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.Function;
+
+import java.util.Arrays;
+
+/**
+ * A DoubleArrayNode is part of an expression that evaluates to a primitive double array. The array a node gives is
+ * owned by the node and is only valid until the node is evaluated again.
+ */
+abstract class DoubleArrayNode {
+
+    /**
+     * Evaluates this node.
+     *
+     * @param variables The values of the variable slots, in slot order
+     * @return The array this node evaluates to, which must not be changed
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    abstract double[] evaluate(double[][] variables) throws EvaluationException;
+
+    /**
+     * A node that is always the same array.
+     */
+    static final class Constant extends DoubleArrayNode {
+        //the value of this node
+        private final double[] value;
+
+        /**
+         * Creates a Constant with the following:
+         *
+         * @param constant The value of the node
+         */
+        Constant(double[] constant) {
+            value = constant;
+        }
+
+        @Override
+        double[] evaluate(double[][] variables) {
+            return value;
+        }
+    }
+
+    /**
+     * A node that is the value of a variable slot.
+     */
+    static final class Variable extends DoubleArrayNode {
+        //the slot of the variable
+        private final int index;
+
+        /**
+         * Creates a Variable with the following:
+         *
+         * @param slot The slot of the variable
+         */
+        Variable(int slot) {
+            index = slot;
+        }
+
+        @Override
+        double[] evaluate(double[][] variables) {
+            return variables[index];
+        }
+    }
+
+    /**
+     * A node that places parameters into a DoubleArrayFunction, whose result is written into an array that is kept
+     * from one evaluation to the next.
+     */
+    static final class Call extends DoubleArrayNode {
+        //the function to use
+        private final DoubleArrayFunction function;
+        //the parameters to place into the function
+        private final DoubleArrayNode[] parameters;
+        //the values of the parameters, which is reused on every evaluation
+        private final double[][] values;
+        //the array the result is written into, which is replaced only when the length of the result changes
+        private double[] result = new double[0];
+
+        /**
+         * Creates a Call with the following:
+         *
+         * @param functionToUse      The function to use
+         * @param functionParameters The parameters to place into the function
+         */
+        Call(DoubleArrayFunction functionToUse, DoubleArrayNode[] functionParameters) {
+            function = functionToUse;
+            parameters = functionParameters;
+            values = new double[functionParameters.length][];
+        }
+
+        @Override
+        double[] evaluate(double[][] variables) throws EvaluationException {
+            for (int index = 0; index < values.length; index++) {
+                values[index] = parameters[index].evaluate(variables);
+            }
+            int length = function.getResultLength(values);
+            if (result.length != length) {
+                result = new double[length];
+            }
+            function.apply(values, result);
+            //the parameters are not kept alive past the evaluation
+            Arrays.fill(values, null);
+            return result;
+        }
+    }
+
+    /**
+     * A node that places parameters into any other function, which allocates its own result.
+     */
+    static final class BoxedCall extends DoubleArrayNode {
+        //the function to use
+        private final Function<double[]> function;
+        //the parameters to place into the function
+        private final DoubleArrayNode[] parameters;
+
+        /**
+         * Creates a BoxedCall with the following:
+         *
+         * @param functionToUse      The function to use
+         * @param functionParameters The parameters to place into the function
+         */
+        BoxedCall(Function<double[]> functionToUse, DoubleArrayNode[] functionParameters) {
+            function = functionToUse;
+            parameters = functionParameters;
+        }
+
+        @Override
+        double[] evaluate(double[][] variables) throws EvaluationException {
+            double[][] values = new double[parameters.length][];
+            for (int index = 0; index < values.length; index++) {
+                values[index] = parameters[index].evaluate(variables);
+            }
+            return function.evaluate(Arrays.asList(values));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.JMEP.examples.DoubleArraySolver;
+
+import com.JMEP.solver.Evaluable;
+import com.JMEP.solver.ExpressionVisitor;
+import com.JMEP.solver.Function;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a parsed expression into DoubleArrayNodes. Shared subexpressions are converted once each and become extra
+ * slots after the variable slots, which are filled in before the expression is evaluated.
+ */
+class DoubleArrayNodeCompiler implements ExpressionVisitor<double[], DoubleArrayNode> {
+    //the number of variable slots in the expression
+    private final int variableCount;
+    //the shared subexpressions that have been converted, by their position among the shared subexpressions
+    private final List<DoubleArrayNode> shared = new ArrayList<>();
+
+    /**
+     * Creates a DoubleArrayNodeCompiler with the following:
+     *
+     * @param variables The number of variable slots in the expression
+     */
+    DoubleArrayNodeCompiler(int variables) {
+        variableCount = variables;
+    }
+
+    /**
+     * Gives the shared subexpressions that have been converted, in the order they must be evaluated.
+     *
+     * @return The shared subexpressions
+     */
+    DoubleArrayNode[] getSharedNodes() {
+        return shared.toArray(new DoubleArrayNode[0]);
+    }
+
+    @Override
+    public DoubleArrayNode visitValue(double[] value) {
+        return new DoubleArrayNode.Constant(value);
+    }
+
+    @Override
+    public DoubleArrayNode visitVariable(int index) {
+        return new DoubleArrayNode.Variable(index);
+    }
+
+    @Override
+    public DoubleArrayNode visitFunction(Function<double[]> function, List<Evaluable<double[]>> parameters) {
+        DoubleArrayNode[] nodes = new DoubleArrayNode[parameters.size()];
+        for (int index = 0; index < nodes.length; index++) {
+            nodes[index] = parameters.get(index).accept(this);
+        }
+        if (function instanceof DoubleArrayFunction) {
+            return new DoubleArrayNode.Call((DoubleArrayFunction) function, nodes);
+        }
+        return new DoubleArrayNode.BoxedCall(function, nodes);
+    }
+
+    @Override
+    public DoubleArrayNode visitShared(int slot, Evaluable<double[]> subexpression) {
+        while (shared.size() <= slot) {
+            shared.add(null);
+        }
+        if (shared.get(slot) == null) {
+            shared.set(slot, subexpression.accept(this));
+        }
+        return new DoubleArrayNode.Variable(variableCount + slot);
+    }
+}
@@ -2,6 +2,9 @@ package com.JMEP.examples.DoubleArraySolver;
 
 import com.JMEP.solver.*;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -15,17 +18,17 @@ public class DoubleArraySolver extends Solver<Double[]> {
     public DoubleArraySolver() {
         super(multiplicationFunction());
         addSynonym("times", "*");
-        addOperator('*', "multiply", OperatorType.ParametersBeforeAndAfterOperator);
-        addOperator('+', "sum", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Double[]>("sum") {
+        addOperator('*', "multiply", OperatorType.ParametersBeforeAndAfterOperator, 2, Associativity.Left);
+        addOperator('+', "sum", OperatorType.ParametersBeforeAndAfterOperator, 1, Associativity.Left);
+        addFunction(new Function<Double[]>("sum", true) {
             @Override
             public Double[] evaluate(List<Double[]> parameters) throws EvaluationException {
                 if (parameters.isEmpty()) {
                     throw new EvaluationException();
                 }
-                Double[] sum = parameters.get(0);
-                parameters.remove(0);
-                for (Double[] toAdd : parameters) {
+                //copy the first array so that the parameters are left unchanged
+                Double[] sum = parameters.get(0).clone();
+                for (Double[] toAdd : parameters.subList(1, parameters.size())) {
                     if (toAdd.length != sum.length) {
                         throw new EvaluationException();
                     }
@@ -36,14 +39,15 @@ public class DoubleArraySolver extends Solver<Double[]> {
                 return sum;
             }
         });
-        addOperator('-', "difference", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Double[]>("difference") {
+        addOperator('-', "difference", OperatorType.ParametersBeforeAndAfterOperator, 1, Associativity.Left);
+        addFunction(new Function<Double[]>("difference", true) {
             @Override
             public Double[] evaluate(List<Double[]> parameters) throws EvaluationException {
                 if (parameters.size() < 2) {
                     throw new EvaluationException();
                 }
-                Double[] out = parameters.get(0);
+                //copy the first array so that the parameters are left unchanged
+                Double[] out = parameters.get(0).clone();
                 //special empty case
                 if (Arrays.equals(out, new Double[]{})) {
                     out = new Double[parameters.get(1).length];
@@ -64,7 +68,7 @@ public class DoubleArraySolver extends Solver<Double[]> {
     }
 
     private static Function<Double[]> multiplicationFunction() {
-        return new Function<Double[]>("multiply") {
+        return new Function<Double[]>("multiply", true) {
             @Override
             public Double[] evaluate(List<Double[]> parameters) throws EvaluationException {
                 if (parameters.isEmpty()) {
@@ -89,22 +93,33 @@ public class DoubleArraySolver extends Solver<Double[]> {
 
     @Override
     public Double[] toValue(String value) throws ParsingException {
-        if (value.equals("")) {
-            return new Double[]{};
+        double[] values = PrimitiveDoubleArraySolver.parseArray(value);
+        Double[] out = new Double[values.length];
+        for (int index = 0; index < values.length; index++) {
+            out[index] = values[index];
         }
-        try {
-            value = value.replace("[", "");
-            value = value.replace(" ", "");
-            value = value.replace("]", "");
-            String[] doubles = value.split(",");
-            Double[] out = new Double[doubles.length];
-            for (int index = 0; index < doubles.length; index++) {
-                out[index] = Double.valueOf(doubles[index]);
-            }
-            return out;
-        } catch (Exception e) {
+        return out;
+    }
+
+    @Override
+    protected void writeValue(Double[] value, DataOutput out) throws IOException {
+        out.writeInt(value.length);
+        for (Double element : value) {
+            out.writeDouble(element);
+        }
+    }
+
+    @Override
+    protected Double[] readValue(ByteBuffer in) throws ParsingException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / Double.BYTES) {
             throw new ParsingException();
         }
+        Double[] value = new Double[length];
+        for (int index = 0; index < length; index++) {
+            value[index] = in.getDouble();
+        }
+        return value;
     }
 
     @Override
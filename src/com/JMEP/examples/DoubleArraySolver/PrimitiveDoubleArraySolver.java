@@ -0,0 +1,243 @@
+package com.JMEP.examples.DoubleArraySolver;
+
+import com.JMEP.solver.*;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An example of the solver class that uses primitive double arrays. It has the same functions and operators as the
+ * DoubleArraySolver, but each array is a single object instead of one object per element, and compiled expressions
+ * reuse the arrays they write into.
+ */
+public class PrimitiveDoubleArraySolver extends Solver<double[]> {
+    public PrimitiveDoubleArraySolver() {
+        super(multiplicationFunction());
+        addSynonym("times", "*");
+        addOperator('*', "multiply", OperatorType.ParametersBeforeAndAfterOperator, 2, Associativity.Left);
+        addOperator('+', "sum", OperatorType.ParametersBeforeAndAfterOperator, 1, Associativity.Left);
+        addFunction(new DoubleArrayFunction("sum", true) {
+            @Override
+            public int getResultLength(double[][] parameters) throws EvaluationException {
+                return getCommonLength(parameters);
+            }
+
+            @Override
+            public void apply(double[][] parameters, double[] out) {
+                System.arraycopy(parameters[0], 0, out, 0, out.length);
+                for (int index = 1; index < parameters.length; index++) {
+                    double[] parameter = parameters[index];
+                    for (int element = 0; element < out.length; element++) {
+                        out[element] += parameter[element];
+                    }
+                }
+            }
+        });
+        addOperator('-', "difference", OperatorType.ParametersBeforeAndAfterOperator, 1, Associativity.Left);
+        addFunction(new DoubleArrayFunction("difference", true) {
+            @Override
+            public int getResultLength(double[][] parameters) throws EvaluationException {
+                if (parameters.length < 2) {
+                    throw new EvaluationException();
+                }
+                //an empty first array is 0, which makes -X the negation of X
+                if (parameters[0].length != 0 && parameters[0].length != parameters[1].length) {
+                    throw new EvaluationException();
+                }
+                return parameters[1].length;
+            }
+
+            @Override
+            public void apply(double[][] parameters, double[] out) {
+                double[] first = parameters[0];
+                double[] second = parameters[1];
+                if (first.length == 0) {
+                    for (int element = 0; element < out.length; element++) {
+                        out[element] = -second[element];
+                    }
+                } else {
+                    for (int element = 0; element < out.length; element++) {
+                        out[element] = first[element] - second[element];
+                    }
+                }
+            }
+        });
+    }
+
+    private static Function<double[]> multiplicationFunction() {
+        return new DoubleArrayFunction("multiply", true) {
+            @Override
+            public int getResultLength(double[][] parameters) throws EvaluationException {
+                return getCommonLength(parameters);
+            }
+
+            @Override
+            public void apply(double[][] parameters, double[] out) {
+                System.arraycopy(parameters[0], 0, out, 0, out.length);
+                for (int index = 1; index < parameters.length; index++) {
+                    double[] parameter = parameters[index];
+                    for (int element = 0; element < out.length; element++) {
+                        out[element] *= parameter[element];
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Gives the length that every parameter has.
+     *
+     * @param parameters The parameters
+     * @return The length of the parameters
+     * @throws EvaluationException If there are no parameters or they have different lengths
+     */
+    private static int getCommonLength(double[][] parameters) throws EvaluationException {
+        if (parameters.length == 0) {
+            throw new EvaluationException();
+        }
+        for (double[] parameter : parameters) {
+            if (parameter.length != parameters[0].length) {
+                throw new EvaluationException();
+            }
+        }
+        return parameters[0].length;
+    }
+
+    /**
+     * Parses a mathematical expression once into arrays that are reused on every evaluation, so that evaluating it
+     * with arrays of the same length allocates nothing. Anything in the expression that cannot be converted into a
+     * value becomes a variable.
+     *
+     * @param problem The expression to compile
+     * @return The compiled expression
+     * @throws ParsingException If there is an error in parsing
+     */
+    public CompiledDoubleArrayExpression compileArray(String problem) throws ParsingException {
+        CompiledExpression<double[]> compiled = compile(problem);
+        DoubleArrayNodeCompiler compiler = new DoubleArrayNodeCompiler(compiled.getVariableNames().size());
+        DoubleArrayNode root = compiled.accept(compiler);
+        return new CompiledDoubleArrayExpression(root, compiler.getSharedNodes(), compiled.getVariableNames());
+    }
+
+    @Override
+    public double[] toValue(String value) throws ParsingException {
+        return parseArray(value);
+    }
+
+    @Override
+    protected void writeValue(double[] value, DataOutput out) throws IOException {
+        out.writeInt(value.length);
+        for (double element : value) {
+            out.writeDouble(element);
+        }
+    }
+
+    @Override
+    protected double[] readValue(ByteBuffer in) throws ParsingException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / Double.BYTES) {
+            throw new ParsingException();
+        }
+        double[] value = new double[length];
+        in.asDoubleBuffer().get(value);
+        in.position(in.position() + length * Double.BYTES);
+        return value;
+    }
+
+    /**
+     * Reads an array of the form [1,2,3] without splitting it into Strings first. Brackets and spaces are ignored
+     * wherever they are and empty elements at the end are dropped, as DoubleArraySolver always has, so [1, 2,] is
+     * [1,2] and [1 2] is [12].
+     *
+     * @param value The String representation of the array, where the brackets are optional
+     * @return The array, which is empty for ""
+     * @throws ParsingException If the String is not an array of numbers
+     */
+    static double[] parseArray(String value) throws ParsingException {
+        if (value.isEmpty()) {
+            return new double[0];
+        }
+        //the index after the last character that is part of a number, which is where the elements end
+        int end = value.length();
+        while (end > 0 && (isIgnored(value.charAt(end - 1)) || value.charAt(end - 1) == ',')) {
+            end--;
+        }
+        int count = 1;
+        if (value.indexOf(',') != -1) {
+            //with a comma, empty elements at the end are dropped, which can leave no elements at all
+            count = end == 0 ? 0 : 1;
+            for (int index = 0; index < end; index++) {
+                if (value.charAt(index) == ',') {
+                    count++;
+                }
+            }
+        } else {
+            end = value.length();
+        }
+        double[] out = new double[count];
+        int elementStart = 0;
+        try {
+            for (int element = 0; element < count; element++) {
+                int elementEnd = value.indexOf(',', elementStart);
+                if (elementEnd == -1 || elementEnd > end) {
+                    elementEnd = end;
+                }
+                out[element] = Double.parseDouble(numberText(value, elementStart, elementEnd));
+                elementStart = elementEnd + 1;
+            }
+        } catch (NumberFormatException e) {
+            throw new ParsingException();
+        }
+        return out;
+    }
+
+    /**
+     * Checks if a character is left out of the numbers of an array.
+     *
+     * @param character The character to check
+     * @return True for brackets and spaces, false otherwise
+     */
+    private static boolean isIgnored(char character) {
+        return character == '[' || character == ']' || character == ' ';
+    }
+
+    /**
+     * Gives the text of one element of an array without its brackets and spaces.
+     *
+     * @param value The String representation of the array
+     * @param start The index of the first character of the element
+     * @param end   The index after the last character of the element
+     * @return The text of the number
+     */
+    private static String numberText(String value, int start, int end) {
+        while (start < end && isIgnored(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && isIgnored(value.charAt(end - 1))) {
+            end--;
+        }
+        for (int index = start; index < end; index++) {
+            if (isIgnored(value.charAt(index))) {
+                //only copy character by character when something must be left out of the middle
+                StringBuilder number = new StringBuilder(end - start);
+                for (int kept = start; kept < end; kept++) {
+                    if (!isIgnored(value.charAt(kept))) {
+                        number.append(value.charAt(kept));
+                    }
+                }
+                return number.toString();
+            }
+        }
+        return value.substring(start, end);
+    }
+
+    @Override
+    public Map<Character, Character> getNumberWrappers() {
+        HashMap<Character, Character> out = new HashMap<>();
+        out.put('[', ']');
+        return out;
+    }
+}
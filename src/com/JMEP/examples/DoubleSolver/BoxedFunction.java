@@ -0,0 +1,43 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.Function;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A BoxedFunction lets a Function on Doubles be used where a DoubleFunction is needed, boxing its parameters.
+ */
+class BoxedFunction extends DoubleFunction {
+    //the function to box parameters for
+    private final Function<Double> function;
+
+    /**
+     * Creates a BoxedFunction with the following:
+     *
+     * @param boxedFunction The function to box parameters for
+     */
+    BoxedFunction(Function<Double> boxedFunction) {
+        super(boxedFunction.getName());
+        function = boxedFunction;
+    }
+
+    /**
+     * A getter for the function this boxes parameters for.
+     *
+     * @return The function
+     */
+    Function<Double> getFunction() {
+        return function;
+    }
+
+    @Override
+    public double apply(double[] parameters) throws EvaluationException {
+        List<Double> boxed = new ArrayList<>(parameters.length);
+        for (double parameter : parameters) {
+            boxed.add(parameter);
+        }
+        return function.evaluate(boxed);
+    }
+}
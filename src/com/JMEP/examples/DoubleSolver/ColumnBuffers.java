@@ -0,0 +1,47 @@
+package com.JMEP.examples.DoubleSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ColumnBuffers hands out the temporary columns used while evaluating a block of rows, so that they are only created
+ * once per batch. Columns are given back in the opposite order to how they were taken.
+ */
+final class ColumnBuffers {
+    //the length of every column
+    private final int length;
+    //the columns that have been created
+    private final List<double[]> columns = new ArrayList<>();
+    //the number of columns that are in use
+    private int used = 0;
+
+    /**
+     * Creates ColumnBuffers with the following:
+     *
+     * @param columnLength The length of every column
+     */
+    ColumnBuffers(int columnLength) {
+        length = columnLength;
+    }
+
+    /**
+     * Takes a column that is not in use.
+     *
+     * @return The column
+     */
+    double[] take() {
+        if (used == columns.size()) {
+            columns.add(new double[length]);
+        }
+        return columns.get(used++);
+    }
+
+    /**
+     * Gives back the columns that were taken last.
+     *
+     * @param count The number of columns to give back
+     */
+    void release(int count) {
+        used -= count;
+    }
+}
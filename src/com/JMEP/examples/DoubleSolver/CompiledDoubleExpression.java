@@ -0,0 +1,237 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.EvaluationException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A CompiledDoubleExpression is an expression that has been parsed once and is evaluated on primitive doubles, with
+ * no boxing of values. Each evaluation finds the frame of its thread once and evaluates with the memory it keeps, so
+ * once the functions it calls have been used, evaluating it with an array of values allocates nothing.
+ */
+public final class CompiledDoubleExpression {
+    //the number of rows evaluated together in a batch, chosen so that the columns of a block stay in the cache
+    private static final int blockSize = 1024;
+    //the expression to evaluate
+    private final DoubleNode expression;
+    //the number of shared subexpressions, whose values and marks that they have been evaluated fill the slots after
+    //the variable slots
+    private final int sharedCount;
+    //the names of the variable slots, in slot order
+    private final List<String> variableNames;
+    //the number of nodes evaluated for each row, which is used to choose how many rows to evaluate together
+    private final int nodeCount;
+
+    /**
+     * Creates a CompiledDoubleExpression with the following:
+     *
+     * @param root        The expression to evaluate
+     * @param sharedNodes The shared subexpressions, by their position among the shared subexpressions, or null for
+     *                    those that are not used
+     * @param variables   The names of the variable slots, in slot order
+     */
+    CompiledDoubleExpression(DoubleNode root, DoubleNode[] sharedNodes, List<String> variables) {
+        expression = root;
+        sharedCount = sharedNodes.length;
+        variableNames = variables;
+        int count = root.countNodes();
+        for (DoubleNode sharedNode : sharedNodes) {
+            if (sharedNode != null) {
+                count += sharedNode.countNodes();
+            }
+        }
+        nodeCount = count;
+    }
+
+    /**
+     * A getter for the names of the variables in this expression.
+     *
+     * @return The names of the variables, in slot order
+     */
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * Gives the slot of a variable.
+     *
+     * @param variableName The name of the variable
+     * @return The slot of the variable, or -1 if this expression has no such variable
+     */
+    public int getVariableIndex(String variableName) {
+        return variableNames.indexOf(variableName);
+    }
+
+    /**
+     * Evaluates this expression with the following variable values:
+     *
+     * @param variableValues The values of the variables, in slot order
+     * @return The value this expression evaluates to
+     * @throws EvaluationException If the number of values does not match the number of variables or there is an
+     *                             error in evaluation
+     */
+    public double evaluate(double... variableValues) throws EvaluationException {
+        if (variableValues.length != variableNames.size()) {
+            throw new EvaluationException();
+        }
+        Frame frame = Frame.current();
+        if (sharedCount == 0) {
+            return expression.evaluate(variableValues, frame);
+        }
+        double[] slots = frame.takeSlots(variableValues.length + 2 * sharedCount);
+        try {
+            System.arraycopy(variableValues, 0, slots, 0, variableValues.length);
+            //no shared subexpression has been evaluated yet
+            Arrays.fill(slots, variableValues.length + sharedCount, slots.length, 0);
+            return expression.evaluate(slots, frame);
+        } finally {
+            frame.releaseSlots(slots);
+        }
+    }
+
+    /**
+     * Evaluates this expression with the following variable values:
+     *
+     * @param variableValues A map from variable names to their values
+     * @return The value this expression evaluates to
+     * @throws EvaluationException If a variable has no value or there is an error in evaluation
+     */
+    public double evaluate(Map<String, Double> variableValues) throws EvaluationException {
+        double[] slots = new double[variableNames.size() + 2 * sharedCount];
+        for (int index = 0; index < variableNames.size(); index++) {
+            Double value = variableValues.get(variableNames.get(index));
+            if (value == null) {
+                throw new EvaluationException();
+            }
+            slots[index] = value;
+        }
+        return expression.evaluate(slots, Frame.current());
+    }
+
+    /**
+     * Evaluates this expression on every row of a set of columns. The expression is evaluated one part at a time
+     * across a block of rows, so each function runs as a loop over the block instead of once per row.
+     *
+     * @param columns A map from variable names to the value of the variable in each row
+     * @param out     The array to place the value of each row into, which has one element per row
+     * @throws EvaluationException If a variable has no column, a column does not have one value per row, or there
+     *                             is an error in evaluation
+     */
+    public void evaluateBatch(Map<String, double[]> columns, double[] out) throws EvaluationException {
+        evaluateBatch(toSlotColumns(columns), out);
+    }
+
+    /**
+     * Evaluates this expression on every row of a set of columns.
+     *
+     * @param columns The value of each variable in each row, one column per variable, in slot order
+     * @param out     The array to place the value of each row into, which has one element per row
+     * @throws EvaluationException If the number of columns does not match the number of variables, a column does not
+     *                             have one value per row, or there is an error in evaluation
+     */
+    public void evaluateBatch(double[][] columns, double[] out) throws EvaluationException {
+        checkColumns(columns, out);
+        evaluateRows(columns, out, 0, out.length);
+    }
+
+    /**
+     * Evaluates this expression on every row of a set of columns, splitting the rows between the threads of the common
+     * ForkJoinPool. Functions in the expression must be safe to call from several threads at once.
+     *
+     * @param columns A map from variable names to the value of the variable in each row
+     * @param out     The array to place the value of each row into, which has one element per row
+     * @throws EvaluationException If a variable has no column, a column does not have one value per row, or there
+     *                             is an error in evaluation
+     */
+    public void evaluateBatchInParallel(Map<String, double[]> columns, double[] out) throws EvaluationException {
+        evaluateBatchInParallel(toSlotColumns(columns), out, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates this expression on every row of a set of columns, splitting the rows into chunks that are run on the
+     * executor. Fewer rows are put in each chunk the longer the expression takes to evaluate. Functions in the
+     * expression must be safe to call from several threads at once.
+     *
+     * @param columns  The value of each variable in each row, one column per variable, in slot order
+     * @param out      The array to place the value of each row into, which has one element per row
+     * @param executor The executor to evaluate the chunks on, which can be a ForkJoinPool
+     * @throws EvaluationException If the number of columns does not match the number of variables, a column does not
+     *                             have one value per row, or there is an error in evaluation
+     */
+    public void evaluateBatchInParallel(double[][] columns, double[] out, Executor executor)
+            throws EvaluationException {
+        checkColumns(columns, out);
+        int threadCount = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        new ParallelBatch(this, columns, out, nodeCount, threadCount).run(executor);
+    }
+
+    /**
+     * Gives the column of each variable slot.
+     *
+     * @param columns A map from variable names to the value of the variable in each row
+     * @return The columns, in slot order
+     * @throws EvaluationException If a variable has no column
+     */
+    private double[][] toSlotColumns(Map<String, double[]> columns) throws EvaluationException {
+        double[][] slotColumns = new double[variableNames.size()][];
+        for (int index = 0; index < slotColumns.length; index++) {
+            slotColumns[index] = columns.get(variableNames.get(index));
+            if (slotColumns[index] == null) {
+                throw new EvaluationException();
+            }
+        }
+        return slotColumns;
+    }
+
+    /**
+     * Checks that there is one column per variable, each with one value per row.
+     *
+     * @param columns The value of each variable in each row, one column per variable, in slot order
+     * @param out     The array to place the value of each row into, which has one element per row
+     * @throws EvaluationException If the columns do not match the variables or the rows
+     */
+    private void checkColumns(double[][] columns, double[] out) throws EvaluationException {
+        if (columns.length != variableNames.size()) {
+            throw new EvaluationException();
+        }
+        for (double[] column : columns) {
+            if (column.length != out.length) {
+                throw new EvaluationException();
+            }
+        }
+    }
+
+    /**
+     * Evaluates this expression on some of the rows of a set of columns, one block at a time.
+     *
+     * @param columns The value of each variable in each row, one column per variable, in slot order
+     * @param out     The array to place the value of each row into
+     * @param from    The first row to evaluate
+     * @param to      The row after the last row to evaluate
+     * @throws EvaluationException If there is an error in evaluation
+     */
+    void evaluateRows(double[][] columns, double[] out, int from, int to) throws EvaluationException {
+        int variableCount = variableNames.size();
+        int blockLength = Math.min(blockSize, to - from);
+        ColumnBuffers buffers = new ColumnBuffers(blockLength);
+        double[][] slots = new double[variableCount + 2 * sharedCount][blockLength];
+        double[] result = new double[blockLength];
+        for (int start = from; start < to; start += blockLength) {
+            int length = Math.min(blockLength, to - start);
+            for (int index = 0; index < variableCount; index++) {
+                System.arraycopy(columns[index], start, slots[index], 0, length);
+            }
+            //no shared subexpression has been evaluated for this block yet
+            for (int index = variableCount + sharedCount; index < slots.length; index++) {
+                Arrays.fill(slots[index], 0);
+            }
+            expression.evaluateBlock(slots, length, result, buffers);
+            System.arraycopy(result, 0, out, start, length);
+        }
+    }
+}
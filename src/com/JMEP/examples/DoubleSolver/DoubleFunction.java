@@ -0,0 +1,156 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.Function;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+/**
+ * A function on primitive doubles. The DoubleSolver evaluates these without boxing any values. Functions that take
+ * one or two parameters should also override the matching apply method so that no array is created for them.
+ */
+public abstract class DoubleFunction extends Function<Double> {
+
+    /**
+     * Creates a DoubleFunction with the following:
+     *
+     * @param functionName The name of the function.
+     */
+    public DoubleFunction(String functionName) {
+        super(functionName);
+    }
+
+    /**
+     * Creates a DoubleFunction with the following:
+     *
+     * @param functionName The name of the function.
+     * @param isPure       Whether the function always gives the same result for the same parameters and has no side
+     *                     effects.
+     */
+    public DoubleFunction(String functionName, boolean isPure) {
+        super(functionName, isPure);
+    }
+
+    /**
+     * Creates a DoubleFunction with the following:
+     *
+     * @param functionName  The name of the function.
+     * @param isPure        Whether the function always gives the same result for the same parameters and has no side
+     *                      effects.
+     * @param isAssociative Whether f(f(a,b),c) and f(a,b,c) always give the same result, for any number of
+     *                      parameters.
+     */
+    public DoubleFunction(String functionName, boolean isPure, boolean isAssociative) {
+        super(functionName, isPure, isAssociative);
+    }
+
+    /**
+     * Evaluates the function with a single parameter.
+     *
+     * @param parameter The parameter to use in the evaluation.
+     * @return The result of the parameter when placed in the function.
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public double apply(double parameter) throws EvaluationException {
+        return apply(new double[]{parameter});
+    }
+
+    /**
+     * Evaluates the function with two parameters.
+     *
+     * @param first  The first parameter to use in the evaluation.
+     * @param second The second parameter to use in the evaluation.
+     * @return The result of the parameters when placed in the function.
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public double apply(double first, double second) throws EvaluationException {
+        return apply(new double[]{first, second});
+    }
+
+    /**
+     * Evaluates the function with any number of parameters. The array is reused for later calls, so it must not be
+     * kept after this returns.
+     *
+     * @param parameters The parameters to use in the evaluation.
+     * @return The result of those parameters when placed in the function.
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public abstract double apply(double[] parameters) throws EvaluationException;
+
+    /**
+     * Evaluates the function with a single parameter on each row of a column. Functions that are used in batches should
+     * override this with a loop that does not call apply.
+     *
+     * @param parameter The parameter of each row
+     * @param out       The column to place the result of each row into
+     * @param length    The number of rows
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public void applyToColumns(double[] parameter, double[] out, int length) throws EvaluationException {
+        for (int row = 0; row < length; row++) {
+            out[row] = apply(parameter[row]);
+        }
+    }
+
+    /**
+     * Evaluates the function with two parameters on each row of a pair of columns. For an associative function, out can
+     * be the same column as first, since a call with many parameters is evaluated two at a time into one column.
+     *
+     * @param first  The first parameter of each row
+     * @param second The second parameter of each row
+     * @param out    The column to place the result of each row into
+     * @param length The number of rows
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public void applyToColumns(double[] first, double[] second, double[] out, int length) throws EvaluationException {
+        for (int row = 0; row < length; row++) {
+            out[row] = apply(first[row], second[row]);
+        }
+    }
+
+    /**
+     * Evaluates the function with any number of parameters on each row of a set of columns.
+     *
+     * @param parameters The columns of the parameters, in parameter order
+     * @param out        The column to place the result of each row into
+     * @param length     The number of rows
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public void applyToColumns(double[][] parameters, double[] out, int length) throws EvaluationException {
+        double[] values = new double[parameters.length];
+        for (int row = 0; row < length; row++) {
+            for (int index = 0; index < values.length; index++) {
+                values[index] = parameters[index][row];
+            }
+            out[row] = apply(values);
+        }
+    }
+
+    /**
+     * Gives a method handle that computes this function, so that expressions compiled with method handles can call
+     * it directly instead of through apply. The handle must take the given number of doubles and return a double.
+     *
+     * @param parameterCount The number of parameters placed into the function.
+     * @return The method handle, or null if this function does not have one for that number of parameters.
+     */
+    public MethodHandle getMethodHandle(int parameterCount) {
+        return null;
+    }
+
+    @Override
+    public final Double evaluate(List<Double> parameters) throws EvaluationException {
+        switch (parameters.size()) {
+            case 1:
+                return apply(parameters.get(0));
+            case 2:
+                return apply(parameters.get(0), parameters.get(1));
+            default:
+                double[] values = new double[parameters.size()];
+                for (int index = 0; index < values.length; index++) {
+                    values[index] = parameters.get(index);
+                }
+                return apply(values);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.LazyFunction;
+import com.JMEP.solver.LazyParameters;
+
+import java.util.Arrays;
+
+/**
+ * A DoubleNode is part of an expression that evaluates to a primitive double without boxing.
+ */
+abstract class DoubleNode {
+
+    /**
+     * Evaluates this node.
+     *
+     * @param variables The values of the variable slots, in slot order
+     * @param frame     The frame of the thread that is evaluating
+     * @return The value this node evaluates to
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    abstract double evaluate(double[] variables, Frame frame) throws EvaluationException;
+
+    /**
+     * Counts the nodes in this node, including itself, as an estimate of how long it takes to evaluate.
+     *
+     * @return The number of nodes
+     */
+    int countNodes() {
+        return 1;
+    }
+
+    /**
+     * Evaluates this node on each row of a block of rows. By default, each row is evaluated by itself.
+     *
+     * @param slots   The values of the slots, one column per slot
+     * @param length  The number of rows in the block
+     * @param out     The column to place the value of each row into
+     * @param buffers The temporary columns to use
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    void evaluateBlock(double[][] slots, int length, double[] out, ColumnBuffers buffers) throws EvaluationException {
+        double[] row = new double[slots.length];
+        Frame frame = Frame.current();
+        for (int rowIndex = 0; rowIndex < length; rowIndex++) {
+            for (int slot = 0; slot < row.length; slot++) {
+                row[slot] = slots[slot][rowIndex];
+            }
+            out[rowIndex] = evaluate(row, frame);
+        }
+    }
+
+    /**
+     * A node that is always the same value.
+     */
+    static final class Constant extends DoubleNode {
+        //the value of this node
+        final double value;
+
+        /**
+         * Creates a Constant with the following:
+         *
+         * @param constant The value of the node
+         */
+        Constant(double constant) {
+            value = constant;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) {
+            return value;
+        }
+
+        @Override
+        void evaluateBlock(double[][] slots, int length, double[] out, ColumnBuffers buffers) {
+            Arrays.fill(out, 0, length, value);
+        }
+    }
+
+    /**
+     * A node that is the value of a variable slot.
+     */
+    static final class Variable extends DoubleNode {
+        //the slot of the variable
+        final int index;
+
+        /**
+         * Creates a Variable with the following:
+         *
+         * @param slot The slot of the variable
+         */
+        Variable(int slot) {
+            index = slot;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) {
+            return variables[index];
+        }
+
+        @Override
+        void evaluateBlock(double[][] slots, int length, double[] out, ColumnBuffers buffers) {
+            System.arraycopy(slots[index], 0, out, 0, length);
+        }
+    }
+
+    /**
+     * A node that is the value of a shared subexpression. The subexpression is evaluated the first time the node is
+     * evaluated and its value kept in a slot after the variable slots, with a mark in another slot that it has been
+     * evaluated, so a subexpression that is only used where a LazyFunction skips it is never evaluated.
+     */
+    static final class Shared extends DoubleNode {
+        //the slot the value of the subexpression is kept in
+        final int index;
+        //the slot that is not 0 once the subexpression has been evaluated
+        final int mark;
+        //the subexpression
+        final DoubleNode subexpression;
+
+        /**
+         * Creates a Shared with the following:
+         *
+         * @param slot      The slot the value of the subexpression is kept in
+         * @param markSlot  The slot that is not 0 once the subexpression has been evaluated
+         * @param evaluable The subexpression
+         */
+        Shared(int slot, int markSlot, DoubleNode evaluable) {
+            index = slot;
+            mark = markSlot;
+            subexpression = evaluable;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) throws EvaluationException {
+            if (variables[mark] == 0) {
+                variables[index] = subexpression.evaluate(variables, frame);
+                variables[mark] = 1;
+            }
+            return variables[index];
+        }
+
+        @Override
+        void evaluateBlock(double[][] slots, int length, double[] out, ColumnBuffers buffers)
+                throws EvaluationException {
+            //the whole column is evaluated at once, and rows that only need it where it is skipped use their own rows
+            if (slots[mark][0] == 0) {
+                subexpression.evaluateBlock(slots, length, slots[index], buffers);
+                Arrays.fill(slots[mark], 0, length, 1);
+            }
+            System.arraycopy(slots[index], 0, out, 0, length);
+        }
+    }
+
+    /**
+     * A node that places parameters into a LazyFunction, which only evaluates the parameters it asks for. The function
+     * works on boxed values, and each row of a block is evaluated by itself.
+     */
+    static final class LazyCall extends DoubleNode {
+        //the function to use
+        final LazyFunction<Double> function;
+        //the parameters to place into the function
+        final DoubleNode[] parameters;
+
+        /**
+         * Creates a LazyCall with the following:
+         *
+         * @param functionToUse      The function to use
+         * @param functionParameters The parameters to place into the function
+         */
+        LazyCall(LazyFunction<Double> functionToUse, DoubleNode[] functionParameters) {
+            function = functionToUse;
+            parameters = functionParameters;
+        }
+
+        @Override
+        double evaluate(final double[] variables, final Frame frame) throws EvaluationException {
+            final Double[] values = new Double[parameters.length];
+            return function.evaluate(new LazyParameters<Double>() {
+                @Override
+                public int size() {
+                    return parameters.length;
+                }
+
+                @Override
+                public Double get(int index) throws EvaluationException {
+                    if (values[index] == null) {
+                        values[index] = parameters[index].evaluate(variables, frame);
+                    }
+                    return values[index];
+                }
+            });
+        }
+
+        @Override
+        int countNodes() {
+            int count = 1;
+            for (DoubleNode parameter : parameters) {
+                count += parameter.countNodes();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A node that places parameters into a function.
+     */
+    static final class Call extends DoubleNode {
+        //the function to use
+        final DoubleFunction function;
+        //the parameters to place into the function
+        final DoubleNode[] parameters;
+
+        /**
+         * Creates a Call with the following:
+         *
+         * @param functionToUse      The function to use
+         * @param functionParameters The parameters to place into the function
+         */
+        Call(DoubleFunction functionToUse, DoubleNode[] functionParameters) {
+            function = functionToUse;
+            parameters = functionParameters;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) throws EvaluationException {
+            int count = parameters.length;
+            int first = frame.push(count);
+            try {
+                for (int index = 0; index < count; index++) {
+                    //evaluating a parameter can replace the stack, so it is found again for each one
+                    double value = parameters[index].evaluate(variables, frame);
+                    frame.getStack()[first + index] = value;
+                }
+                double[] values = frame.takeParameters(count);
+                try {
+                    System.arraycopy(frame.getStack(), first, values, 0, count);
+                    return function.apply(values);
+                } finally {
+                    frame.releaseParameters(values);
+                }
+            } finally {
+                frame.pop(count);
+            }
+        }
+
+        @Override
+        void evaluateBlock(double[][] slots, int length, double[] out, ColumnBuffers buffers)
+                throws EvaluationException {
+            if (function.isAssociative()) {
+                //a long chain like 1+2+3 needs only one column besides out, instead of one for every parameter
+                parameters[0].evaluateBlock(slots, length, out, buffers);
+                double[] column = buffers.take();
+                for (int index = 1; index < parameters.length; index++) {
+                    parameters[index].evaluateBlock(slots, length, column, buffers);
+                    function.applyToColumns(out, column, out, length);
+                }
+                buffers.release(1);
+                return;
+            }
+            double[][] columns = new double[parameters.length][];
+            for (int index = 0; index < columns.length; index++) {
+                columns[index] = buffers.take();
+                parameters[index].evaluateBlock(slots, length, columns[index], buffers);
+            }
+            function.applyToColumns(columns, out, length);
+            buffers.release(columns.length);
+        }
+
+        @Override
+        int countNodes() {
+            int count = 1;
+            for (DoubleNode parameter : parameters) {
+                count += parameter.countNodes();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A node that places one parameter into a function.
+     */
+    static final class UnaryCall extends DoubleNode {
+        //the function to use
+        final DoubleFunction function;
+        //the parameter to place into the function
+        final DoubleNode parameter;
+
+        /**
+         * Creates a UnaryCall with the following:
+         *
+         * @param functionToUse     The function to use
+         * @param functionParameter The parameter to place into the function
+         */
+        UnaryCall(DoubleFunction functionToUse, DoubleNode functionParameter) {
+            function = functionToUse;
+            parameter = functionParameter;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) throws EvaluationException {
+            return function.apply(parameter.evaluate(variables, frame));
+        }
+
+        @Override
+        void evaluateBlock(double[][] slots, int length, double[] out, ColumnBuffers buffers)
+                throws EvaluationException {
+            double[] column = buffers.take();
+            parameter.evaluateBlock(slots, length, column, buffers);
+            function.applyToColumns(column, out, length);
+            buffers.release(1);
+        }
+
+        @Override
+        int countNodes() {
+            return 1 + parameter.countNodes();
+        }
+    }
+
+    /**
+     * A node that places two parameters into a function.
+     */
+    static final class BinaryCall extends DoubleNode {
+        //the function to use
+        final DoubleFunction function;
+        //the first parameter to place into the function
+        final DoubleNode first;
+        //the second parameter to place into the function
+        final DoubleNode second;
+
+        /**
+         * Creates a BinaryCall with the following:
+         *
+         * @param functionToUse   The function to use
+         * @param firstParameter  The first parameter to place into the function
+         * @param secondParameter The second parameter to place into the function
+         */
+        BinaryCall(DoubleFunction functionToUse, DoubleNode firstParameter, DoubleNode secondParameter) {
+            function = functionToUse;
+            first = firstParameter;
+            second = secondParameter;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) throws EvaluationException {
+            return function.apply(first.evaluate(variables, frame), second.evaluate(variables, frame));
+        }
+
+        @Override
+        void evaluateBlock(double[][] slots, int length, double[] out, ColumnBuffers buffers)
+                throws EvaluationException {
+            double[] firstColumn = buffers.take();
+            first.evaluateBlock(slots, length, firstColumn, buffers);
+            double[] secondColumn = buffers.take();
+            second.evaluateBlock(slots, length, secondColumn, buffers);
+            function.applyToColumns(firstColumn, secondColumn, out, length);
+            buffers.release(2);
+        }
+
+        @Override
+        int countNodes() {
+            return 1 + first.countNodes() + second.countNodes();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.Evaluable;
+import com.JMEP.solver.ExpressionVisitor;
+import com.JMEP.solver.Function;
+import com.JMEP.solver.LazyFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Converts a parsed expression into DoubleNodes. Functions that are not DoubleFunctions are boxed, and LazyFunctions
+ * are given their parameters unevaluated. Shared subexpressions are converted and compiled once each, and are kept in
+ * extra slots after the variable slots the first time they are evaluated, followed by a slot for each that marks
+ * whether it has been.
+ */
+class DoubleNodeCompiler implements ExpressionVisitor<Double, DoubleNode> {
+    //the number of variable slots in the expression
+    private final int variableCount;
+    //the number of shared subexpressions in the expression
+    private final int sharedCount;
+    //compiles each shared subexpression after it is converted
+    private final UnaryOperator<DoubleNode> sharedCompiler;
+    //the nodes of the shared subexpressions that have been converted, by their position among the shared subexpressions
+    private final List<DoubleNode.Shared> shared = new ArrayList<>();
+
+    /**
+     * Creates a DoubleNodeCompiler that does not compile shared subexpressions with the following:
+     *
+     * @param variables            The number of variable slots in the expression
+     * @param sharedSubexpressions The number of shared subexpressions in the expression
+     */
+    DoubleNodeCompiler(int variables, int sharedSubexpressions) {
+        this(variables, sharedSubexpressions, UnaryOperator.identity());
+    }
+
+    /**
+     * Creates a DoubleNodeCompiler with the following:
+     *
+     * @param variables            The number of variable slots in the expression
+     * @param sharedSubexpressions The number of shared subexpressions in the expression
+     * @param compiler             Compiles each shared subexpression after it is converted
+     */
+    DoubleNodeCompiler(int variables, int sharedSubexpressions, UnaryOperator<DoubleNode> compiler) {
+        variableCount = variables;
+        sharedCount = sharedSubexpressions;
+        sharedCompiler = compiler;
+        for (int slot = 0; slot < sharedSubexpressions; slot++) {
+            shared.add(null);
+        }
+    }
+
+    /**
+     * Gives the shared subexpressions that have been converted and compiled.
+     *
+     * @return The shared subexpressions, by their position among the shared subexpressions, or null for those that
+     * have not been converted
+     */
+    DoubleNode[] getSharedNodes() {
+        DoubleNode[] nodes = new DoubleNode[shared.size()];
+        for (int index = 0; index < nodes.length; index++) {
+            nodes[index] = shared.get(index) == null ? null : shared.get(index).subexpression;
+        }
+        return nodes;
+    }
+
+    /**
+     * Gives the DoubleFunction to use for a function.
+     *
+     * @param function The function
+     * @return The function itself if it is a DoubleFunction, or a boxed version of it otherwise
+     */
+    static DoubleFunction toDoubleFunction(Function<Double> function) {
+        if (function instanceof DoubleFunction) {
+            return (DoubleFunction) function;
+        }
+        return new BoxedFunction(function);
+    }
+
+    @Override
+    public DoubleNode visitValue(Double value) {
+        return new DoubleNode.Constant(value);
+    }
+
+    @Override
+    public DoubleNode visitVariable(int index) {
+        return new DoubleNode.Variable(index);
+    }
+
+    @Override
+    public DoubleNode visitFunction(Function<Double> function, List<Evaluable<Double>> parameters) {
+        DoubleNode[] nodes = new DoubleNode[parameters.size()];
+        for (int index = 0; index < nodes.length; index++) {
+            nodes[index] = parameters.get(index).accept(this);
+        }
+        if (function instanceof LazyFunction) {
+            return new DoubleNode.LazyCall((LazyFunction<Double>) function, nodes);
+        }
+        DoubleFunction doubleFunction = toDoubleFunction(function);
+        switch (nodes.length) {
+            case 1:
+                return new DoubleNode.UnaryCall(doubleFunction, nodes[0]);
+            case 2:
+                return new DoubleNode.BinaryCall(doubleFunction, nodes[0], nodes[1]);
+            default:
+                return new DoubleNode.Call(doubleFunction, nodes);
+        }
+    }
+
+    @Override
+    public DoubleNode visitShared(int slot, Evaluable<Double> subexpression) {
+        if (shared.get(slot) == null) {
+            DoubleNode node = sharedCompiler.apply(subexpression.accept(this));
+            shared.set(slot, new DoubleNode.Shared(variableCount + slot, variableCount + sharedCount + slot, node));
+        }
+        return shared.get(slot);
+    }
+}
@@ -2,141 +2,367 @@ package com.JMEP.examples.DoubleSolver;
 
 import com.JMEP.solver.*;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 /**
- * An example of the solver class that uses Doubles
+ * An example of the solver class that uses Doubles. Expressions are evaluated on primitive doubles, so that no
+ * values are boxed while solving.
  */
 public class DoubleSolver extends Solver<Double> {
+    //the function of implicit multiplication and the * operator, which is the same for every DoubleSolver
+    private static final DoubleFunction multiplication = multiplicationFunction();
+
+    //the functions of the operators that compiled programs do with instructions of their own, with their instructions
+    private final Map<DoubleFunction, Integer> operatorInstructions = new IdentityHashMap<>();
 
     public DoubleSolver() {
-        super(multiplicationFunction());
-        addFunction(new Function<Double>("sin") {
+        super(multiplication);
+        addFunction(unaryFunction("sin", Math::sin, staticHandle(Math.class, "sin", 1)));
+        addFunction(unaryFunction("cos", Math::cos, staticHandle(Math.class, "cos", 1)));
+        addFunction(unaryFunction("tan", Math::tan, staticHandle(Math.class, "tan", 1)));
+        addFunction(unaryFunction("log", Math::log10, staticHandle(Math.class, "log10", 1)));
+        addFunction(unaryFunction("ln", Math::log, staticHandle(Math.class, "log", 1)));
+        addOperator('!', "factorial", OperatorType.ParameterBeforeOperator, 4, Associativity.Left);
+        addFunction(unaryFunction("factorial", DoubleSolver::factorial, staticHandle(DoubleSolver.class, "factorial", 1)));
+        addOperator('^', "power", OperatorType.ParametersBeforeAndAfterOperator, 3, Associativity.Right);
+        addFunction(binaryFunction("power", Math::pow, staticHandle(Math.class, "pow", 2)));
+        addSynonym("times", "*");
+        addOperator('*', "multiply", OperatorType.ParametersBeforeAndAfterOperator, 2, Associativity.Left);
+        addOperator('/', "divide", OperatorType.ParametersBeforeAndAfterOperator, 2, Associativity.Left);
+        DoubleFunction division = binaryFunction("divide", DoubleSolver::divide,
+                staticHandle(DoubleSolver.class, "divide", 2));
+        addFunction(division);
+        addOperator('+', "sum", OperatorType.ParametersBeforeAndAfterOperator, 1, Associativity.Left);
+        DoubleFunction sum = new DoubleFunction("sum", true, true) {
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 1) {
-                    throw new EvaluationException();
-                }
-                return Math.sin(parameters.get(0));
+            public double apply(double parameter) {
+                return parameter;
             }
-        });
-        addFunction(new Function<Double>("cos") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 1) {
-                    throw new EvaluationException();
-                }
-                return Math.cos(parameters.get(0));
+            public double apply(double first, double second) {
+                return first + second;
             }
-        });
-        addFunction(new Function<Double>("tan") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 1) {
+            public double apply(double[] parameters) throws EvaluationException {
+                if (parameters.length == 0) {
                     throw new EvaluationException();
                 }
-                return Math.tan(parameters.get(0));
+                double sum = 0;
+                for (double toAdd : parameters) {
+                    sum += toAdd;
+                }
+                return sum;
             }
-        });
-        addFunction(new Function<Double>("log") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 1) {
-                    throw new EvaluationException();
+            public void applyToColumns(double[] first, double[] second, double[] out, int length) {
+                for (int row = 0; row < length; row++) {
+                    out[row] = first[row] + second[row];
                 }
-                return Math.log10(parameters.get(0));
             }
-        });
-        addFunction(new Function<Double>("ln") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 1) {
-                    throw new EvaluationException();
-                }
-                return Math.log(parameters.get(0));
+            public MethodHandle getMethodHandle(int parameterCount) {
+                return foldedHandle(staticHandle(DoubleSolver.class, "add", 2), parameterCount);
+            }
+        };
+        addFunction(sum);
+        addOperator('-', "difference", OperatorType.ParametersBeforeAndAfterOperator, 1, Associativity.Left);
+        DoubleFunction difference = binaryFunction("difference", DoubleSolver::subtract,
+                staticHandle(DoubleSolver.class, "subtract", 2));
+        addFunction(difference);
+        operatorInstructions.put(sum, InstructionCompiler.add);
+        operatorInstructions.put(difference, InstructionCompiler.subtract);
+        operatorInstructions.put(multiplication, InstructionCompiler.multiply);
+        operatorInstructions.put(division, InstructionCompiler.divide);
+    }
+
+    private static DoubleFunction multiplicationFunction() {
+        return new DoubleFunction("multiply", true, true) {
+            @Override
+            public double apply(double parameter) {
+                return parameter;
             }
-        });
-        addOperator('!', "factorial", OperatorType.ParameterBeforeOperator);
-        addFunction(new Function<Double>("factorial") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 1) {
+            public double apply(double first, double second) {
+                return first * second;
+            }
+
+            @Override
+            public double apply(double[] parameters) throws EvaluationException {
+                if (parameters.length == 0) {
                     throw new EvaluationException();
                 }
-                int number = (int) (double) parameters.get(0);
-                int product = 1;
-                for (int i = 1; i <= number; i++) {
-                    product *= i;
+                double product = 1;
+                for (double toMultiply : parameters) {
+                    product *= toMultiply;
                 }
-                return (double) product;
+                return product;
             }
-        });
-        addOperator('^', "power", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Double>("power") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 2) {
-                    throw new EvaluationException();
+            public void applyToColumns(double[] first, double[] second, double[] out, int length) {
+                for (int row = 0; row < length; row++) {
+                    out[row] = first[row] * second[row];
                 }
-                return Math.pow(parameters.get(0), parameters.get(1));
             }
-        });
-        addSynonym("times", "*");
-        addOperator('*', "multiply", OperatorType.ParametersBeforeAndAfterOperator);
-        addOperator('/', "divide", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Double>("divide") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.size() != 2) {
-                    throw new EvaluationException();
-                }
-                return parameters.get(0) / parameters.get(1);
+            public MethodHandle getMethodHandle(int parameterCount) {
+                return foldedHandle(staticHandle(DoubleSolver.class, "multiply", 2), parameterCount);
+            }
+        };
+    }
+
+    private static double factorial(double parameter) {
+        int number = (int) parameter;
+        int product = 1;
+        for (int i = 1; i <= number; i++) {
+            product *= i;
+        }
+        return (double) product;
+    }
+
+    private static double add(double first, double second) {
+        return first + second;
+    }
+
+    private static double subtract(double first, double second) {
+        return first - second;
+    }
+
+    private static double multiply(double first, double second) {
+        return first * second;
+    }
+
+    private static double divide(double first, double second) {
+        return first / second;
+    }
+
+    /**
+     * Finds a static method that takes the given number of doubles and returns a double.
+     *
+     * @param owner          The class the method is in
+     * @param name           The name of the method
+     * @param parameterCount The number of parameters the method takes
+     * @return A method handle of the method
+     */
+    private static MethodHandle staticHandle(Class<?> owner, String name, int parameterCount) {
+        Class<?>[] parameterTypes = new Class<?>[parameterCount];
+        Arrays.fill(parameterTypes, double.class);
+        try {
+            return MethodHandles.lookup().findStatic(owner, name, MethodType.methodType(double.class, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gives a method handle that combines any number of doubles from left to right, ie: f(f(a,b),c) for three.
+     *
+     * @param combine        A method handle that combines two doubles
+     * @param parameterCount The number of doubles to combine
+     * @return The method handle
+     */
+    private static MethodHandle foldedHandle(MethodHandle combine, int parameterCount) {
+        if (parameterCount == 1) {
+            return MethodHandles.identity(double.class);
+        }
+        MethodHandle folded = combine;
+        for (int count = 2; count < parameterCount; count++) {
+            folded = MethodHandles.collectArguments(combine, 0, folded);
+        }
+        return folded;
+    }
+
+    /**
+     * Creates a DoubleFunction that takes exactly one parameter.
+     *
+     * @param name      The name of the function
+     * @param operation The operation the function performs
+     * @param handle    A method handle of the operation
+     * @return The function
+     */
+    private static DoubleFunction unaryFunction(String name, DoubleUnaryOperator operation, MethodHandle handle) {
+        return new DoubleFunction(name, true) {
+            @Override
+            public double apply(double parameter) {
+                return operation.applyAsDouble(parameter);
             }
-        });
-        addOperator('+', "sum", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Double>("sum") {
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.isEmpty()) {
-                    throw new EvaluationException();
+            public void applyToColumns(double[] parameter, double[] out, int length) {
+                for (int row = 0; row < length; row++) {
+                    out[row] = operation.applyAsDouble(parameter[row]);
                 }
-                double sum = 0;
-                for (double toAdd : parameters) {
-                    sum += toAdd;
-                }
-                return sum;
             }
-        });
-        addOperator('-', "difference", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Double>("difference") {
+
+            @Override
+            public MethodHandle getMethodHandle(int parameterCount) {
+                return parameterCount == 1 ? handle : null;
+            }
+
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.isEmpty()) {
+            public double apply(double[] parameters) throws EvaluationException {
+                if (parameters.length != 1) {
                     throw new EvaluationException();
                 }
-                return parameters.get(0) - (parameters.get(1));
+                return operation.applyAsDouble(parameters[0]);
             }
-        });
+        };
     }
 
-    private static Function<Double> multiplicationFunction() {
-        return new Function<Double>("multiply") {
+    /**
+     * Creates a DoubleFunction that takes exactly two parameters.
+     *
+     * @param name      The name of the function
+     * @param operation The operation the function performs
+     * @param handle    A method handle of the operation
+     * @return The function
+     */
+    private static DoubleFunction binaryFunction(String name, DoubleBinaryOperator operation, MethodHandle handle) {
+        return new DoubleFunction(name, true) {
             @Override
-            public Double evaluate(List<Double> parameters) throws EvaluationException {
-                if (parameters.isEmpty()) {
-                    throw new EvaluationException();
+            public double apply(double first, double second) {
+                return operation.applyAsDouble(first, second);
+            }
+
+            @Override
+            public void applyToColumns(double[] first, double[] second, double[] out, int length) {
+                for (int row = 0; row < length; row++) {
+                    out[row] = operation.applyAsDouble(first[row], second[row]);
                 }
-                double product = 1;
-                for (double toMultiply : parameters) {
-                    product *= toMultiply;
+            }
+
+            @Override
+            public MethodHandle getMethodHandle(int parameterCount) {
+                return parameterCount == 2 ? handle : null;
+            }
+
+            @Override
+            public double apply(double[] parameters) throws EvaluationException {
+                if (parameters.length != 2) {
+                    throw new EvaluationException();
                 }
-                return product;
+                return operation.applyAsDouble(parameters[0], parameters[1]);
             }
         };
     }
 
+    /**
+     * Parses a mathematical expression once so that it can be evaluated many times on primitive doubles. Anything in
+     * the expression that cannot be converted into a value becomes a variable.
+     *
+     * @param problem The expression to compile
+     * @return The compiled expression
+     * @throws ParsingException If there is an error in parsing
+     */
+    public CompiledDoubleExpression compileDouble(String problem) throws ParsingException {
+        CompiledExpression<Double> compiled = compile(problem);
+        DoubleNodeCompiler compiler = new DoubleNodeCompiler(compiled.getVariableNames().size(),
+                compiled.getSharedCount());
+        DoubleNode root = compiled.accept(compiler);
+        return new CompiledDoubleExpression(root, compiler.getSharedNodes(), compiled.getVariableNames());
+    }
+
+    /**
+     * Solves a mathematical expression on primitive doubles
+     *
+     * @param problem The expression to solve
+     * @return A number representing the solution
+     * @throws EvaluationException If there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
+     */
+    public double solveDouble(String problem) throws EvaluationException, ParsingException {
+        CompiledDoubleExpression compiled = compileDouble(problem);
+        //anything that could not be converted into a value must be defined before solving
+        if (!compiled.getVariableNames().isEmpty()) {
+            throw new ParsingException();
+        }
+        MetricsListener listener = getMetricsListener();
+        if (listener == null) {
+            return compiled.evaluate();
+        }
+        //primitive evaluation is timed as a whole, since its function calls are not seen by the listener
+        long start = System.nanoTime();
+        try {
+            double value = compiled.evaluate();
+            listener.evaluated(System.nanoTime() - start);
+            return value;
+        } catch (EvaluationException | RuntimeException e) {
+            listener.evaluationFailed(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Solves a mathematical expression for every row of a set of columns, which is much faster than solving it once
+     * per row.
+     *
+     * @param problem The expression to solve
+     * @param columns A map from variable names to the value of the variable in each row
+     * @param out     The array to place the solution of each row into, which has one element per row
+     * @throws EvaluationException If there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
+     */
+    public void evaluateBatch(String problem, Map<String, double[]> columns, double[] out)
+            throws EvaluationException, ParsingException {
+        compileDouble(problem).evaluateBatch(columns, out);
+    }
+
+    /**
+     * Parses a mathematical expression once and compiles it into method handles, so that the JIT can optimize it like
+     * hand-written code. This takes longer than compileDouble, but evaluating the result is faster.
+     *
+     * @param problem The expression to compile
+     * @return The compiled expression
+     * @throws ParsingException If there is an error in parsing
+     */
+    public CompiledDoubleExpression compileDoubleWithMethodHandles(String problem) throws ParsingException {
+        CompiledExpression<Double> compiled = compile(problem);
+        DoubleNodeCompiler compiler = new DoubleNodeCompiler(compiled.getVariableNames().size(),
+                compiled.getSharedCount(), MethodHandleCompiler::compile);
+        DoubleNode root = MethodHandleCompiler.compile(compiled.accept(compiler));
+        return new CompiledDoubleExpression(root, compiler.getSharedNodes(), compiled.getVariableNames());
+    }
+
+    /**
+     * Parses a mathematical expression once and compiles it into a postfix program of instructions, which a single
+     * loop runs over a stack of values instead of calling each part of the expression in turn. Adding, subtracting,
+     * multiplying and dividing are done inside the loop. This generates no code, so it is quick to compile, and
+     * evaluating the result is faster than compileDouble.
+     *
+     * @param problem The expression to compile
+     * @return The compiled expression
+     * @throws ParsingException If there is an error in parsing
+     */
+    public CompiledDoubleExpression compileDoubleToInstructions(String problem) throws ParsingException {
+        CompiledExpression<Double> compiled = compile(problem);
+        DoubleNodeCompiler compiler = new DoubleNodeCompiler(compiled.getVariableNames().size(),
+                compiled.getSharedCount(), node -> InstructionCompiler.compile(node, operatorInstructions));
+        DoubleNode root = InstructionCompiler.compile(compiled.accept(compiler), operatorInstructions);
+        return new CompiledDoubleExpression(root, compiler.getSharedNodes(), compiled.getVariableNames());
+    }
+
+    @Override
+    public Double solve(String problem) throws EvaluationException, ParsingException {
+        return solveDouble(problem);
+    }
+
     @Override
     public Double toValue(String value) throws ParsingException {
         if (value.equals("")) {
@@ -149,6 +375,16 @@ public class DoubleSolver extends Solver<Double> {
         }
     }
 
+    @Override
+    protected void writeValue(Double value, DataOutput out) throws IOException {
+        out.writeDouble(value);
+    }
+
+    @Override
+    protected Double readValue(ByteBuffer in) {
+        return in.getDouble();
+    }
+
     @Override
     public Map<Character, Character> getNumberWrappers() {
         return new HashMap<>();
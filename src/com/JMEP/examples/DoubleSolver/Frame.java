@@ -0,0 +1,120 @@
+package com.JMEP.examples.DoubleSolver;
+
+import java.util.Arrays;
+
+/**
+ * A Frame is the memory one thread evaluates primitive expressions with: a stack that the parameters of each call are
+ * evaluated onto, and the arrays they are copied into when a function takes an array. Each thread has a single Frame
+ * that is found once when an evaluation starts and passed down to every node, and it grows to the most that any
+ * expression has needed, so once it is big enough evaluating allocates nothing.
+ */
+final class Frame {
+    //the frame of each thread
+    private static final ThreadLocal<Frame> frames = ThreadLocal.withInitial(Frame::new);
+
+    //the values on the stack, which is replaced by a longer array when it is full
+    private double[] stack = new double[16];
+    //the number of values on the stack
+    private int size = 0;
+    //the array a function is given its parameters in, by the number of parameters
+    private ScratchArray[] parameterArrays = new ScratchArray[8];
+    //the array the variables and shared subexpressions of an expression are placed into, by its length
+    private ScratchArray[] slotArrays = new ScratchArray[8];
+
+    private Frame() {
+    }
+
+    /**
+     * Gives the frame of the current thread.
+     *
+     * @return The frame
+     */
+    static Frame current() {
+        return frames.get();
+    }
+
+    /**
+     * Makes room for values on top of the stack, which must be given back with pop.
+     *
+     * @param count The number of values
+     * @return The index on the stack of the first value
+     */
+    int push(int count) {
+        int first = size;
+        size += count;
+        if (size > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(size, stack.length * 2));
+        }
+        return first;
+    }
+
+    /**
+     * Gives back the values on top of the stack.
+     *
+     * @param count The number of values
+     */
+    void pop(int count) {
+        size -= count;
+    }
+
+    /**
+     * A getter for the stack. A longer array replaces it when values are pushed past its end, so it must be found
+     * again after anything that can push.
+     *
+     * @return The stack
+     */
+    double[] getStack() {
+        return stack;
+    }
+
+    /**
+     * Takes the array to give a function its parameters in, which must be given back with releaseParameters.
+     *
+     * @param count The number of parameters
+     * @return The array
+     */
+    double[] takeParameters(int count) {
+        if (count >= parameterArrays.length) {
+            parameterArrays = Arrays.copyOf(parameterArrays, count + 1);
+        }
+        if (parameterArrays[count] == null) {
+            parameterArrays[count] = new ScratchArray(count);
+        }
+        return parameterArrays[count].take();
+    }
+
+    /**
+     * Gives back an array taken with takeParameters.
+     *
+     * @param parameters The array
+     */
+    void releaseParameters(double[] parameters) {
+        parameterArrays[parameters.length].release(parameters);
+    }
+
+    /**
+     * Takes the array to place the variables and shared subexpressions of an expression into, which must be given back
+     * with releaseSlots.
+     *
+     * @param length The number of variables and shared subexpressions
+     * @return The array
+     */
+    double[] takeSlots(int length) {
+        if (length >= slotArrays.length) {
+            slotArrays = Arrays.copyOf(slotArrays, length + 1);
+        }
+        if (slotArrays[length] == null) {
+            slotArrays[length] = new ScratchArray(length);
+        }
+        return slotArrays[length].take();
+    }
+
+    /**
+     * Gives back an array taken with takeSlots.
+     *
+     * @param slots The array
+     */
+    void releaseSlots(double[] slots) {
+        slotArrays[slots.length].release(slots);
+    }
+}
@@ -0,0 +1,368 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.EvaluationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles DoubleNodes into a postfix program: an array of instructions that push values onto a stack and replace the
+ * values on top of it with the result of a function, run by a single loop instead of a call for every node. The
+ * functions that DoubleSolver uses for its operators have instructions of their own, so they are done inside the loop.
+ */
+class InstructionCompiler {
+    //pushes a constant from the constant pool, followed by its index
+    static final int pushConstant = 0;
+    //pushes the value of a slot, followed by the slot
+    static final int pushSlot = 1;
+    //replaces the top value with a function of it, followed by the index of the function
+    static final int callUnary = 2;
+    //replaces the top two values with a function of them, followed by the index of the function
+    static final int callBinary = 3;
+    //replaces the top values with a function of them, followed by the index of the function and the number of values
+    static final int call = 4;
+    //pushes the value of a node that cannot be compiled, followed by the index of the node
+    static final int evaluateNode = 5;
+    //replace the top two values with their sum, difference, product or quotient
+    static final int add = 6;
+    static final int subtract = 7;
+    static final int multiply = 8;
+    static final int divide = 9;
+    //replace the top value with its sum, difference, product or quotient with a slot, followed by the slot
+    private static final int addSlot = 10;
+    private static final int subtractSlot = 11;
+    private static final int multiplySlot = 12;
+    private static final int divideSlot = 13;
+    //replace the top value with its sum, difference, product or quotient with a constant, followed by its index
+    private static final int addConstant = 14;
+    private static final int subtractConstant = 15;
+    private static final int multiplyConstant = 16;
+    private static final int divideConstant = 17;
+    //the distance from an operation to the same operation with a slot, and to the same operation with a constant
+    private static final int withSlot = addSlot - add;
+    private static final int withConstant = addConstant - add;
+
+    //the instructions of the program so far
+    private final List<Integer> instructions = new ArrayList<>();
+    //the constant pool
+    private final List<Double> constants = new ArrayList<>();
+    //the function pool
+    private final List<DoubleFunction> functions = new ArrayList<>();
+    //the nodes that cannot be compiled
+    private final List<DoubleNode> nodes = new ArrayList<>();
+    //the functions that have an instruction of their own when given two parameters, with their instructions
+    private final Map<DoubleFunction, Integer> operations;
+    //the number of values on the stack after the instructions so far, and the most there have been
+    private int depth = 0;
+    private int maximumDepth = 0;
+
+    /**
+     * Creates an InstructionCompiler with the following:
+     *
+     * @param binaryOperations The functions that have an instruction of their own when given two parameters
+     */
+    private InstructionCompiler(Map<DoubleFunction, Integer> binaryOperations) {
+        operations = binaryOperations;
+    }
+
+    /**
+     * Compiles a node into a program.
+     *
+     * @param root             The node to compile
+     * @param binaryOperations The functions that have an instruction of their own when given two parameters, with
+     *                         their instructions
+     * @return A node that runs the program
+     */
+    static DoubleNode compile(DoubleNode root, Map<DoubleFunction, Integer> binaryOperations) {
+        InstructionCompiler compiler = new InstructionCompiler(binaryOperations);
+        compiler.emit(root);
+        int[] code = new int[compiler.instructions.size()];
+        for (int index = 0; index < code.length; index++) {
+            code[index] = compiler.instructions.get(index);
+        }
+        double[] constantPool = new double[compiler.constants.size()];
+        for (int index = 0; index < constantPool.length; index++) {
+            constantPool[index] = compiler.constants.get(index);
+        }
+        return new Program(code, constantPool, compiler.functions.toArray(new DoubleFunction[0]),
+                compiler.nodes.toArray(new DoubleNode[0]), compiler.maximumDepth, root.countNodes());
+    }
+
+    /**
+     * Adds the instructions that push the value of a node.
+     *
+     * @param node The node
+     */
+    private void emit(DoubleNode node) {
+        if (node instanceof DoubleNode.Constant) {
+            emit(pushConstant, indexOf(constants, ((DoubleNode.Constant) node).value), 1);
+        } else if (node instanceof DoubleNode.Variable) {
+            emit(pushSlot, ((DoubleNode.Variable) node).index, 1);
+        } else if (node instanceof DoubleNode.UnaryCall) {
+            DoubleNode.UnaryCall unary = (DoubleNode.UnaryCall) node;
+            emit(unary.parameter);
+            emit(callUnary, indexOf(functions, unary.function), 0);
+        } else if (node instanceof DoubleNode.BinaryCall) {
+            DoubleNode.BinaryCall binary = (DoubleNode.BinaryCall) node;
+            emit(binary.first);
+            emitSecond(binary.function, binary.second);
+        } else if (node instanceof DoubleNode.Call && ((DoubleNode.Call) node).function.isAssociative()
+                && operations.containsKey(((DoubleNode.Call) node).function)) {
+            //a chain like 1+2+3 is done two values at a time, with the operation of the function
+            DoubleNode.Call chain = (DoubleNode.Call) node;
+            emit(chain.parameters[0]);
+            for (int index = 1; index < chain.parameters.length; index++) {
+                emitSecond(chain.function, chain.parameters[index]);
+            }
+        } else if (node instanceof DoubleNode.Call) {
+            DoubleNode.Call nary = (DoubleNode.Call) node;
+            for (DoubleNode parameter : nary.parameters) {
+                emit(parameter);
+            }
+            emit(call, indexOf(functions, nary.function), 1 - nary.parameters.length);
+            instructions.add(nary.parameters.length);
+        } else if (node instanceof DoubleNode.LazyCall) {
+            //a LazyFunction asks for its parameters itself, so each of them is compiled into a program of its own
+            DoubleNode.LazyCall lazy = (DoubleNode.LazyCall) node;
+            DoubleNode[] parameters = new DoubleNode[lazy.parameters.length];
+            for (int index = 0; index < parameters.length; index++) {
+                parameters[index] = compile(lazy.parameters[index], operations);
+            }
+            emit(evaluateNode, nodes.size(), 1);
+            nodes.add(new DoubleNode.LazyCall(lazy.function, parameters));
+        } else {
+            //nodes that cannot be compiled, like shared subexpressions, which were compiled by themselves, are
+            //evaluated as they are
+            emit(evaluateNode, nodes.size(), 1);
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Adds the instructions that replace the value on top of the stack with a function of it and the value of a node.
+     *
+     * @param function The function of two parameters
+     * @param second   The node of the second parameter
+     */
+    private void emitSecond(DoubleFunction function, DoubleNode second) {
+        Integer operation = operations.get(function);
+        //an operation with a slot or a constant is one instruction instead of two
+        if (operation != null && second instanceof DoubleNode.Variable) {
+            emit(operation + withSlot, ((DoubleNode.Variable) second).index, 0);
+        } else if (operation != null && second instanceof DoubleNode.Constant) {
+            emit(operation + withConstant, indexOf(constants, ((DoubleNode.Constant) second).value), 0);
+        } else if (operation != null) {
+            emit(second);
+            instructions.add(operation);
+            depth--;
+        } else {
+            emit(second);
+            emit(callBinary, indexOf(functions, function), -1);
+        }
+    }
+
+    /**
+     * Adds an instruction and its operand.
+     *
+     * @param instruction The instruction
+     * @param operand     The operand of the instruction
+     * @param change      The change in the number of values on the stack
+     */
+    private void emit(int instruction, int operand, int change) {
+        instructions.add(instruction);
+        instructions.add(operand);
+        depth += change;
+        maximumDepth = Math.max(maximumDepth, depth);
+    }
+
+    /**
+     * Finds something in a pool, adding it if it is not there yet.
+     *
+     * @param pool  The pool
+     * @param value The thing to find
+     * @param <T>   The type of the things in the pool
+     * @return The index of the thing in the pool
+     */
+    private static <T> int indexOf(List<T> pool, T value) {
+        int index = pool.indexOf(value);
+        if (index == -1) {
+            index = pool.size();
+            pool.add(value);
+        }
+        return index;
+    }
+
+    /**
+     * A node that runs a compiled program.
+     */
+    static final class Program extends DoubleNode {
+        //the instructions, each followed by its operands
+        private final int[] code;
+        //the constant pool
+        private final double[] constants;
+        //the function pool
+        private final DoubleFunction[] functions;
+        //the nodes that cannot be compiled
+        private final DoubleNode[] nodes;
+        //the most values that are ever on the stack
+        private final int stackSize;
+        //the number of nodes that were compiled
+        private final int nodeCount;
+
+        /**
+         * Creates a Program with the following:
+         *
+         * @param instructions  The instructions, each followed by its operands
+         * @param constantPool  The constant pool
+         * @param functionPool  The function pool
+         * @param nodePool      The nodes that cannot be compiled
+         * @param mostValues    The most values that are ever on the stack
+         * @param compiledNodes The number of nodes that were compiled
+         */
+        Program(int[] instructions, double[] constantPool, DoubleFunction[] functionPool, DoubleNode[] nodePool,
+                int mostValues, int compiledNodes) {
+            code = instructions;
+            constants = constantPool;
+            functions = functionPool;
+            nodes = nodePool;
+            stackSize = mostValues;
+            nodeCount = compiledNodes;
+        }
+
+        @Override
+        int countNodes() {
+            return nodeCount;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) throws EvaluationException {
+            int first = frame.push(stackSize);
+            try {
+                return run(variables, frame, first);
+            } finally {
+                frame.pop(stackSize);
+            }
+        }
+
+        /**
+         * Runs the program on the values of the frame's stack from a position.
+         *
+         * @param variables The values of the slots, in slot order
+         * @param frame     The frame of the thread that is evaluating
+         * @param first     The position on the frame's stack of the first value of the program
+         * @return The value left on the stack
+         * @throws EvaluationException If there is an error in the evaluation
+         */
+        private double run(double[] variables, Frame frame, int first) throws EvaluationException {
+            int[] instructions = code;
+            //calling a function or a node can replace the frame's stack, so it is found again after each one
+            double[] stack = frame.getStack();
+            //the index of the top value of the stack
+            int top = first - 1;
+            int position = 0;
+            while (position < instructions.length) {
+                switch (instructions[position++]) {
+                    case pushConstant:
+                        stack[++top] = constants[instructions[position++]];
+                        break;
+                    case pushSlot:
+                        stack[++top] = variables[instructions[position++]];
+                        break;
+                    case add:
+                        top--;
+                        stack[top] = stack[top] + stack[top + 1];
+                        break;
+                    case subtract:
+                        top--;
+                        stack[top] = stack[top] - stack[top + 1];
+                        break;
+                    case multiply:
+                        top--;
+                        stack[top] = stack[top] * stack[top + 1];
+                        break;
+                    case divide:
+                        top--;
+                        stack[top] = stack[top] / stack[top + 1];
+                        break;
+                    case addSlot:
+                        stack[top] = stack[top] + variables[instructions[position++]];
+                        break;
+                    case subtractSlot:
+                        stack[top] = stack[top] - variables[instructions[position++]];
+                        break;
+                    case multiplySlot:
+                        stack[top] = stack[top] * variables[instructions[position++]];
+                        break;
+                    case divideSlot:
+                        stack[top] = stack[top] / variables[instructions[position++]];
+                        break;
+                    case addConstant:
+                        stack[top] = stack[top] + constants[instructions[position++]];
+                        break;
+                    case subtractConstant:
+                        stack[top] = stack[top] - constants[instructions[position++]];
+                        break;
+                    case multiplyConstant:
+                        stack[top] = stack[top] * constants[instructions[position++]];
+                        break;
+                    case divideConstant:
+                        stack[top] = stack[top] / constants[instructions[position++]];
+                        break;
+                    case callUnary: {
+                        double value = functions[instructions[position++]].apply(stack[top]);
+                        stack = frame.getStack();
+                        stack[top] = value;
+                        break;
+                    }
+                    case callBinary: {
+                        top--;
+                        double value = functions[instructions[position++]].apply(stack[top], stack[top + 1]);
+                        stack = frame.getStack();
+                        stack[top] = value;
+                        break;
+                    }
+                    case call: {
+                        DoubleFunction function = functions[instructions[position++]];
+                        int count = instructions[position++];
+                        top -= count;
+                        double value = callFunction(function, frame, top + 1, count);
+                        stack = frame.getStack();
+                        stack[++top] = value;
+                        break;
+                    }
+                    case evaluateNode: {
+                        double value = nodes[instructions[position++]].evaluate(variables, frame);
+                        stack = frame.getStack();
+                        stack[++top] = value;
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException();
+                }
+            }
+            return stack[top];
+        }
+
+        /**
+         * Places values from the frame's stack into a function.
+         *
+         * @param function The function to use
+         * @param frame    The frame of the thread that is evaluating
+         * @param first    The index of the first value on the stack
+         * @param count    The number of values
+         * @return The value of the function
+         * @throws EvaluationException If there is an error in the evaluation
+         */
+        private double callFunction(DoubleFunction function, Frame frame, int first, int count)
+                throws EvaluationException {
+            double[] parameters = frame.takeParameters(count);
+            try {
+                System.arraycopy(frame.getStack(), first, parameters, 0, count);
+                return function.apply(parameters);
+            } finally {
+                frame.releaseParameters(parameters);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.EvaluationException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Compiles DoubleNodes into a single method handle that the JIT can optimize like hand-written code. Functions that
+ * give a method handle are called through it directly, and all others are called through their apply methods.
+ */
+class MethodHandleCompiler {
+    //the most parameters a call can have to be compiled into one method handle, which can take at most 255 arguments
+    //before its parameters are combined, and takes two for each parameter
+    private static final int maximumParameters = 64;
+    //the type of a compiled node, which takes the variable values and the frame and returns the value of the node
+    private static final MethodType nodeType = MethodType.methodType(double.class, double[].class, Frame.class);
+    //gives an element of a double array
+    private static final MethodHandle arrayElement = MethodHandles.arrayElementGetter(double[].class);
+    //DoubleFunction.apply for one, two, and any number of parameters
+    private static final MethodHandle applyUnary;
+    private static final MethodHandle applyBinary;
+    private static final MethodHandle applyArray;
+    //DoubleNode.evaluate
+    private static final MethodHandle evaluateNode;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            applyUnary = lookup.findVirtual(DoubleFunction.class, "apply",
+                    MethodType.methodType(double.class, double.class));
+            applyBinary = lookup.findVirtual(DoubleFunction.class, "apply",
+                    MethodType.methodType(double.class, double.class, double.class));
+            applyArray = lookup.findVirtual(DoubleFunction.class, "apply",
+                    MethodType.methodType(double.class, double[].class));
+            evaluateNode = lookup.findVirtual(DoubleNode.class, "evaluate", nodeType);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Compiles a node into a method handle.
+     *
+     * @param root The node to compile
+     * @return A node that evaluates the compiled method handle
+     */
+    static DoubleNode compile(DoubleNode root) {
+        return new CompiledNode(toMethodHandle(root), root.countNodes());
+    }
+
+    /**
+     * Converts a node into a method handle that takes the variable values and the frame and returns the value of the
+     * node.
+     *
+     * @param node The node to convert
+     * @return The method handle
+     */
+    private static MethodHandle toMethodHandle(DoubleNode node) {
+        if (node instanceof DoubleNode.Constant) {
+            MethodHandle constant = MethodHandles.constant(double.class, ((DoubleNode.Constant) node).value);
+            return MethodHandles.dropArguments(constant, 0, double[].class, Frame.class);
+        }
+        if (node instanceof DoubleNode.Variable) {
+            MethodHandle variable = MethodHandles.insertArguments(arrayElement, 1, ((DoubleNode.Variable) node).index);
+            return MethodHandles.dropArguments(variable, 1, Frame.class);
+        }
+        if (node instanceof DoubleNode.UnaryCall) {
+            DoubleNode.UnaryCall call = (DoubleNode.UnaryCall) node;
+            return callFunction(call.function, call.parameter);
+        }
+        if (node instanceof DoubleNode.BinaryCall) {
+            DoubleNode.BinaryCall call = (DoubleNode.BinaryCall) node;
+            return callFunction(call.function, call.first, call.second);
+        }
+        if (node instanceof DoubleNode.Call) {
+            DoubleNode.Call call = (DoubleNode.Call) node;
+            if (call.parameters.length > maximumParameters) {
+                //a call with too many parameters for one method handle, like a long chain of 1+2+3, is evaluated as
+                //it is, with each of its parameters compiled
+                DoubleNode[] parameters = new DoubleNode[call.parameters.length];
+                for (int index = 0; index < parameters.length; index++) {
+                    parameters[index] = compile(call.parameters[index]);
+                }
+                return evaluateNode.bindTo(new DoubleNode.Call(call.function, parameters));
+            }
+            return callFunction(call.function, call.parameters);
+        }
+        if (node instanceof DoubleNode.LazyCall) {
+            //a LazyFunction asks for its parameters itself, so only they are compiled
+            DoubleNode.LazyCall call = (DoubleNode.LazyCall) node;
+            DoubleNode[] parameters = new DoubleNode[call.parameters.length];
+            for (int index = 0; index < parameters.length; index++) {
+                parameters[index] = compile(call.parameters[index]);
+            }
+            return evaluateNode.bindTo(new DoubleNode.LazyCall(call.function, parameters));
+        }
+        //nodes that cannot be compiled, like shared subexpressions, which were compiled by themselves, are evaluated
+        //as they are
+        return evaluateNode.bindTo(node);
+    }
+
+    /**
+     * Gives a method handle that places the values of parameter nodes into a function.
+     *
+     * @param function   The function to use
+     * @param parameters The parameters to place into the function
+     * @return The method handle
+     */
+    private static MethodHandle callFunction(DoubleFunction function, DoubleNode... parameters) {
+        MethodHandle target = function.getMethodHandle(parameters.length);
+        if (target == null) {
+            if (parameters.length == 1) {
+                target = applyUnary.bindTo(function);
+            } else if (parameters.length == 2) {
+                target = applyBinary.bindTo(function);
+            } else {
+                target = applyArray.bindTo(function).asCollector(double[].class, parameters.length);
+            }
+        }
+        //the filtered handle takes the variable values and the frame once for each parameter, so pass the same to each
+        MethodHandle filtered = target;
+        int[] reorder = new int[2 * parameters.length];
+        for (int index = 0; index < parameters.length; index++) {
+            filtered = MethodHandles.collectArguments(filtered, 2 * index, toMethodHandle(parameters[index]));
+            reorder[2 * index + 1] = 1;
+        }
+        return MethodHandles.permuteArguments(filtered, nodeType, reorder);
+    }
+
+    /**
+     * A node that evaluates a compiled method handle.
+     */
+    static final class CompiledNode extends DoubleNode {
+        //the compiled method handle, which takes the variable values and the frame and returns the value of the
+        //expression
+        private final MethodHandle handle;
+        //the number of nodes that were compiled
+        private final int nodeCount;
+
+        /**
+         * Creates a CompiledNode with the following:
+         *
+         * @param compiled      The compiled method handle
+         * @param compiledNodes The number of nodes that were compiled
+         */
+        CompiledNode(MethodHandle compiled, int compiledNodes) {
+            handle = compiled;
+            nodeCount = compiledNodes;
+        }
+
+        @Override
+        int countNodes() {
+            return nodeCount;
+        }
+
+        @Override
+        double evaluate(double[] variables, Frame frame) throws EvaluationException {
+            try {
+                return (double) handle.invokeExact(variables, frame);
+            } catch (EvaluationException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new EvaluationException();
+            }
+        }
+    }
+}
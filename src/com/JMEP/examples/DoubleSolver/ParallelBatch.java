@@ -0,0 +1,162 @@
+package com.JMEP.examples.DoubleSolver;
+
+import com.JMEP.solver.EvaluationException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Evaluates a batch of rows across several threads. The rows are split into chunks that are evaluated separately, and
+ * each chunk uses its own temporary columns, so the expression itself is only read.
+ */
+final class ParallelBatch {
+    //the number of node evaluations each chunk should do at least, so that starting a chunk costs little in comparison
+    private static final long chunkCost = 1 << 18;
+    //the number of chunks to aim for per thread, so that threads that finish early can help with the rest
+    private static final int chunksPerThread = 4;
+    //the expression to evaluate
+    private final CompiledDoubleExpression expression;
+    //the value of each variable in each row, one column per variable, in slot order
+    private final double[][] columns;
+    //the array to place the value of each row into
+    private final double[] out;
+    //the number of rows in each chunk
+    private final int chunkRows;
+    //the first error thrown by any chunk, or by the executor when it would not take a chunk
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    /**
+     * Creates a ParallelBatch with the following:
+     *
+     * @param compiled    The expression to evaluate
+     * @param slotColumns The value of each variable in each row, one column per variable, in slot order
+     * @param results     The array to place the value of each row into
+     * @param nodeCount   The number of nodes evaluated for each row
+     * @param threadCount The number of threads that will evaluate the chunks
+     */
+    ParallelBatch(CompiledDoubleExpression compiled, double[][] slotColumns, double[] results, int nodeCount,
+                  int threadCount) {
+        expression = compiled;
+        columns = slotColumns;
+        out = results;
+        long leastRows = chunkCost / Math.max(nodeCount, 1);
+        long chunkCount = (long) threadCount * chunksPerThread;
+        long balancedRows = (results.length + chunkCount - 1) / chunkCount;
+        chunkRows = (int) Math.max(1, Math.max(leastRows, balancedRows));
+    }
+
+    /**
+     * Evaluates every row using the following executor, and waits for them all to finish. If a chunk throws, or the
+     * executor will not take a chunk, the chunks that were given to the executor still finish before this throws.
+     *
+     * @param executor The executor to run the chunks on
+     * @throws EvaluationException If there is an error in evaluation
+     */
+    void run(Executor executor) throws EvaluationException {
+        if (out.length <= chunkRows) {
+            expression.evaluateRows(columns, out, 0, out.length);
+            return;
+        }
+        if (executor instanceof ForkJoinPool) {
+            ((ForkJoinPool) executor).invoke(new Chunk(0, out.length));
+        } else {
+            int chunkCount = (out.length + chunkRows - 1) / chunkRows;
+            CountDownLatch finished = new CountDownLatch(chunkCount);
+            int submitted = 0;
+            try {
+                for (int start = 0; start < out.length; start += chunkRows) {
+                    int from = start;
+                    int to = Math.min(out.length, start + chunkRows);
+                    executor.execute(() -> {
+                        try {
+                            evaluateChunk(from, to);
+                        } finally {
+                            finished.countDown();
+                        }
+                    });
+                    submitted++;
+                }
+            } catch (RejectedExecutionException e) {
+                //the chunks that were given out skip their rows if they have not started, and the rest never will
+                error.compareAndSet(null, e);
+                for (int chunk = submitted; chunk < chunkCount; chunk++) {
+                    finished.countDown();
+                }
+            }
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error.compareAndSet(null, e);
+                throw new EvaluationException();
+            }
+        }
+        Throwable thrown = error.get();
+        if (thrown instanceof EvaluationException) {
+            throw (EvaluationException) thrown;
+        }
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        }
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+        if (thrown != null) {
+            throw new EvaluationException();
+        }
+    }
+
+    /**
+     * Evaluates one chunk of rows, keeping the first error, including an Error, instead of throwing it, so that it is
+     * thrown by run instead of by the thread of the executor.
+     *
+     * @param from The first row to evaluate
+     * @param to   The row after the last row to evaluate
+     */
+    private void evaluateChunk(int from, int to) {
+        if (error.get() != null) {
+            return;
+        }
+        try {
+            expression.evaluateRows(columns, out, from, to);
+        } catch (Throwable e) {
+            error.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * A range of rows that splits itself in half until it is no bigger than a chunk.
+     */
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        //the first row to evaluate
+        private final int from;
+        //the row after the last row to evaluate
+        private final int to;
+
+        /**
+         * Creates a Chunk with the following:
+         *
+         * @param firstRow The first row to evaluate
+         * @param endRow   The row after the last row to evaluate
+         */
+        Chunk(int firstRow, int endRow) {
+            from = firstRow;
+            to = endRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkRows) {
+                evaluateChunk(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(from, middle), new Chunk(middle, to));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.JMEP.examples.DoubleSolver;
+
+/**
+ * A ScratchArray is an array that one thread reuses for every evaluation, so that evaluating allocates nothing. If it
+ * is taken again before it is given back, which only happens when a function evaluates the same expression from
+ * inside an evaluation, a new array is given out instead.
+ */
+final class ScratchArray {
+    //the array that is reused
+    private final double[] values;
+    //whether the array has been taken and not given back
+    private boolean inUse = false;
+
+    /**
+     * Creates a ScratchArray with the following:
+     *
+     * @param length The length of the array
+     */
+    ScratchArray(int length) {
+        values = new double[length];
+    }
+
+    /**
+     * Takes the array, or a new one if it is already in use.
+     *
+     * @return The array
+     */
+    double[] take() {
+        if (inUse) {
+            return new double[values.length];
+        }
+        inUse = true;
+        return values;
+    }
+
+    /**
+     * Gives back an array that was taken.
+     *
+     * @param array The array that was taken
+     */
+    void release(double[] array) {
+        if (array == values) {
+            inUse = false;
+        }
+    }
+}
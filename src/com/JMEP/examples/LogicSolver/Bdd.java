@@ -0,0 +1,355 @@
+package com.JMEP.examples.LogicSolver;
+
+import com.JMEP.solver.EvaluationException;
+
+import java.util.Arrays;
+
+/**
+ * A Bdd keeps reduced ordered binary decision diagrams. A node tests a variable and goes to its low node if the
+ * variable is false and its high node if it is true, and variables are always tested in the order of their numbers.
+ * No two nodes are the same and no node has the same low and high node, so every function has exactly one node and two
+ * functions are equal exactly when their nodes are.
+ * <p>
+ * Nodes are numbers into arrays, found through a unique table. Every result of an if-then-else is kept in an
+ * operation cache. When the table is full, nodes that cannot be reached from a protected node are collected and
+ * reused, and the table only grows when too few of them can be, up to a largest number of nodes.
+ */
+final class Bdd {
+    //the node of the function that is always false
+    static final int falseNode = 0;
+    //the node of the function that is always true
+    static final int trueNode = 1;
+    //the variable of a node that is not used, which comes after every variable
+    private static final int noVariable = Integer.MAX_VALUE;
+    //the size of the operation cache when it is created, which must be a power of 2
+    private static final int initialCacheSize = 1 << 12;
+    //the largest size of the operation cache, which must be a power of 2
+    private static final int maximumCacheSize = 1 << 20;
+
+    //the largest number of nodes the table can grow to
+    private final int maximumNodes;
+    //the variable each node tests
+    private int[] variables;
+    //the node to go to if the variable is false
+    private int[] lows;
+    //the node to go to if the variable is true
+    private int[] highs;
+    //the next node in the same bucket of the unique table, or in the list of free nodes
+    private int[] nexts;
+    //the number of times each node has been protected and not released
+    private int[] references;
+    //the first node in each bucket of the unique table, or -1
+    private int[] buckets;
+    //the number of nodes that have been used at some point, including the terminal nodes
+    private int usedNodes = 2;
+    //the first node in the list of free nodes, or -1
+    private int freeNodes = -1;
+    //the number of nodes in the list of free nodes
+    private int freeCount;
+    //the parameters and result of each cached if-then-else, where a result of -1 means the entry is empty
+    private int[] cacheIfs;
+    private int[] cacheThens;
+    private int[] cacheElses;
+    private int[] cacheResults;
+
+    /**
+     * Creates a Bdd with the following:
+     *
+     * @param nodeLimit The largest number of nodes the table can grow to
+     */
+    Bdd(int nodeLimit) {
+        maximumNodes = nodeLimit;
+        int capacity = Math.min(1 << 12, Integer.highestOneBit(Math.max(nodeLimit, 2)));
+        variables = new int[capacity];
+        lows = new int[capacity];
+        highs = new int[capacity];
+        nexts = new int[capacity];
+        references = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        variables[falseNode] = noVariable;
+        variables[trueNode] = noVariable;
+        resizeCache(initialCacheSize);
+    }
+
+    /**
+     * Gives the node of a single variable.
+     *
+     * @param variable The number of the variable
+     * @return The node that is true exactly when the variable is
+     */
+    int variable(int variable) {
+        collectIfFull(falseNode, falseNode, falseNode);
+        return makeNode(variable, falseNode, trueNode);
+    }
+
+    /**
+     * Gives the node of the conjunction of two nodes.
+     *
+     * @param first  The first node
+     * @param second The second node
+     * @return The node of their conjunction
+     */
+    int and(int first, int second) {
+        return ifThenElse(first, second, falseNode);
+    }
+
+    /**
+     * Gives the node of the disjunction of two nodes.
+     *
+     * @param first  The first node
+     * @param second The second node
+     * @return The node of their disjunction
+     */
+    int or(int first, int second) {
+        return ifThenElse(first, trueNode, second);
+    }
+
+    /**
+     * Gives the node of the function that is the second node where the first node is true and the third where it
+     * is false. Every other operation is built from this one. Only the nodes it is given and protected nodes are
+     * kept if the table is collected, so any other node that is still needed must be protected first.
+     *
+     * @param condition The node that chooses
+     * @param then      The node where the condition is true
+     * @param otherwise The node where the condition is false
+     * @return The node of the result
+     */
+    int ifThenElse(int condition, int then, int otherwise) {
+        collectIfFull(condition, then, otherwise);
+        return apply(condition, then, otherwise);
+    }
+
+    /**
+     * Keeps a node and every node below it from being collected until it is released.
+     *
+     * @param node The node to protect
+     * @return The node
+     */
+    int protect(int node) {
+        references[node]++;
+        return node;
+    }
+
+    /**
+     * Undoes one protection of a node.
+     *
+     * @param node The node to release
+     */
+    void release(int node) {
+        references[node]--;
+    }
+
+    /**
+     * Counts the nodes that are in use, including the terminal nodes.
+     *
+     * @return The number of nodes
+     */
+    int countNodes() {
+        return usedNodes - freeCount;
+    }
+
+    /**
+     * Finds the result of an if-then-else by splitting it on its first variable.
+     *
+     * @param condition The node that chooses
+     * @param then      The node where the condition is true
+     * @param otherwise The node where the condition is false
+     * @return The node of the result
+     */
+    private int apply(int condition, int then, int otherwise) {
+        if (condition == trueNode || then == otherwise) {
+            return then;
+        }
+        if (condition == falseNode) {
+            return otherwise;
+        }
+        if (then == trueNode && otherwise == falseNode) {
+            return condition;
+        }
+        int entry = hash(condition, then, otherwise) & (cacheResults.length - 1);
+        if (cacheResults[entry] != -1 && cacheIfs[entry] == condition && cacheThens[entry] == then
+                && cacheElses[entry] == otherwise) {
+            return cacheResults[entry];
+        }
+        int variable = Math.min(variables[condition], Math.min(variables[then], variables[otherwise]));
+        int high = apply(cofactor(condition, variable, true), cofactor(then, variable, true),
+                cofactor(otherwise, variable, true));
+        int low = apply(cofactor(condition, variable, false), cofactor(then, variable, false),
+                cofactor(otherwise, variable, false));
+        int result = makeNode(variable, low, high);
+        //the cache may have been resized while finding the result
+        entry = hash(condition, then, otherwise) & (cacheResults.length - 1);
+        cacheIfs[entry] = condition;
+        cacheThens[entry] = then;
+        cacheElses[entry] = otherwise;
+        cacheResults[entry] = result;
+        return result;
+    }
+
+    /**
+     * Gives the node of a function with a variable set to a value, where the variable is not after the variable of
+     * the node.
+     *
+     * @param node     The node
+     * @param variable The variable
+     * @param value    The value of the variable
+     * @return The node with the variable set
+     */
+    private int cofactor(int node, int variable, boolean value) {
+        if (variables[node] != variable) {
+            return node;
+        }
+        return value ? highs[node] : lows[node];
+    }
+
+    /**
+     * Gives the node that tests a variable, using the unique table so that no two nodes are the same.
+     *
+     * @param variable The variable to test
+     * @param low      The node to go to if the variable is false
+     * @param high     The node to go to if the variable is true
+     * @return The node
+     */
+    private int makeNode(int variable, int low, int high) {
+        if (low == high) {
+            return low;
+        }
+        int bucket = hash(variable, low, high) & (buckets.length - 1);
+        for (int node = buckets[bucket]; node != -1; node = nexts[node]) {
+            if (variables[node] == variable && lows[node] == low && highs[node] == high) {
+                return node;
+            }
+        }
+        int node;
+        if (freeNodes != -1) {
+            node = freeNodes;
+            freeNodes = nexts[node];
+            freeCount--;
+        } else {
+            if (usedNodes == variables.length) {
+                grow();
+                bucket = hash(variable, low, high) & (buckets.length - 1);
+            }
+            node = usedNodes++;
+        }
+        variables[node] = variable;
+        lows[node] = low;
+        highs[node] = high;
+        references[node] = 0;
+        nexts[node] = buckets[bucket];
+        buckets[bucket] = node;
+        return node;
+    }
+
+    /**
+     * Collects the nodes that are no longer needed if the table has no room left. Only done before an operation
+     * starts, since the nodes in an unfinished operation are not protected.
+     *
+     * @param condition The first node of the next operation
+     * @param then      The second node of the next operation
+     * @param otherwise The third node of the next operation
+     */
+    private void collectIfFull(int condition, int then, int otherwise) {
+        if (freeCount + variables.length - usedNodes > variables.length / 4) {
+            return;
+        }
+        boolean[] marked = new boolean[usedNodes];
+        mark(condition, marked);
+        mark(then, marked);
+        mark(otherwise, marked);
+        for (int node = 2; node < usedNodes; node++) {
+            if (references[node] > 0) {
+                mark(node, marked);
+            }
+        }
+        Arrays.fill(buckets, -1);
+        freeNodes = -1;
+        freeCount = 0;
+        for (int node = usedNodes - 1; node >= 2; node--) {
+            if (marked[node]) {
+                int bucket = hash(variables[node], lows[node], highs[node]) & (buckets.length - 1);
+                nexts[node] = buckets[bucket];
+                buckets[bucket] = node;
+            } else {
+                variables[node] = noVariable;
+                nexts[node] = freeNodes;
+                freeNodes = node;
+                freeCount++;
+            }
+        }
+        //cached results may name nodes that were collected
+        Arrays.fill(cacheResults, -1);
+        //grow now if little was collected, so that the next operation does not collect again
+        if (freeCount + variables.length - usedNodes < variables.length / 2 && variables.length < maximumNodes) {
+            grow();
+        }
+    }
+
+    /**
+     * Marks a node and every node below it as needed.
+     *
+     * @param node   The node
+     * @param marked Whether each node has been marked
+     */
+    private void mark(int node, boolean[] marked) {
+        while (node > trueNode && !marked[node]) {
+            marked[node] = true;
+            mark(lows[node], marked);
+            node = highs[node];
+        }
+    }
+
+    /**
+     * Doubles the size of the table and rebuilds the unique table.
+     */
+    private void grow() {
+        if (variables.length >= maximumNodes) {
+            throw new BooleanFunctions.EvaluationFailure(new EvaluationException());
+        }
+        int capacity = (int) Math.min((long) variables.length * 2, Math.max(maximumNodes, variables.length + 1));
+        variables = Arrays.copyOf(variables, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+        highs = Arrays.copyOf(highs, capacity);
+        nexts = Arrays.copyOf(nexts, capacity);
+        references = Arrays.copyOf(references, capacity);
+        buckets = new int[Integer.highestOneBit(capacity)];
+        Arrays.fill(buckets, -1);
+        for (int node = 2; node < usedNodes; node++) {
+            if (variables[node] != noVariable) {
+                int bucket = hash(variables[node], lows[node], highs[node]) & (buckets.length - 1);
+                nexts[node] = buckets[bucket];
+                buckets[bucket] = node;
+            }
+        }
+        if (cacheResults.length < Math.min(buckets.length, maximumCacheSize)) {
+            resizeCache(Math.min(buckets.length, maximumCacheSize));
+        }
+    }
+
+    /**
+     * Replaces the operation cache with an empty one.
+     *
+     * @param size The number of entries, which must be a power of 2
+     */
+    private void resizeCache(int size) {
+        cacheIfs = new int[size];
+        cacheThens = new int[size];
+        cacheElses = new int[size];
+        cacheResults = new int[size];
+        Arrays.fill(cacheResults, -1);
+    }
+
+    /**
+     * Mixes three numbers into a hash.
+     *
+     * @param first  The first number
+     * @param second The second number
+     * @param third  The third number
+     * @return The hash
+     */
+    private static int hash(int first, int second, int third) {
+        int hash = first * 0x9E3779B1 + second * 0x85EBCA77 + third * 0xC2B2AE3D;
+        return hash ^ hash >>> 15;
+    }
+}
@@ -0,0 +1,123 @@
+package com.JMEP.examples.LogicSolver;
+
+import com.JMEP.solver.Evaluable;
+import com.JMEP.solver.ExpressionVisitor;
+import com.JMEP.solver.Function;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the node of a parsed expression in a Bdd. Conjunctions, disjunctions and negations become the operations of
+ * the Bdd, and any other function is built from its truth table, one parameter at a time. Since visitors cannot throw
+ * an EvaluationException, an error is carried out in a BooleanFunctions.EvaluationFailure.
+ */
+class BddBuilder implements ExpressionVisitor<Boolean, Integer> {
+    //the Bdd to build in
+    private final Bdd bdd;
+    //the truth tables of the functions in the expression
+    private final BooleanFunctions functions;
+    //the Bdd variable of each variable in the expression
+    private final int[] bddVariables;
+    //the nodes of the shared subexpressions that have been built, by their position, which are protected
+    private final Map<Integer, Integer> sharedNodes = new HashMap<>();
+
+    /**
+     * Creates a BddBuilder with the following:
+     *
+     * @param diagrams         The Bdd to build in
+     * @param booleanFunctions The truth tables of the functions in the expression
+     * @param variableOrder    The Bdd variable of each variable in the expression
+     */
+    BddBuilder(Bdd diagrams, BooleanFunctions booleanFunctions, int[] variableOrder) {
+        bdd = diagrams;
+        functions = booleanFunctions;
+        bddVariables = variableOrder;
+    }
+
+    /**
+     * Releases the nodes of the shared subexpressions, once the expression has been built.
+     */
+    void releaseShared() {
+        for (int node : sharedNodes.values()) {
+            bdd.release(node);
+        }
+        sharedNodes.clear();
+    }
+
+    @Override
+    public Integer visitValue(Boolean value) {
+        return value ? Bdd.trueNode : Bdd.falseNode;
+    }
+
+    @Override
+    public Integer visitVariable(int index) {
+        return bdd.variable(bddVariables[index]);
+    }
+
+    @Override
+    public Integer visitFunction(Function<Boolean> function, List<Evaluable<Boolean>> parameters) {
+        boolean[] results = functions.getCallTable(function, parameters.size());
+        int[] inputs = new int[parameters.size()];
+        for (int index = 0; index < inputs.length; index++) {
+            inputs[index] = bdd.protect(parameters.get(index).accept(this));
+        }
+        int result;
+        if (BooleanFunctions.isConjunction(results)) {
+            result = Bdd.trueNode;
+            for (int input : inputs) {
+                result = bdd.and(result, input);
+            }
+        } else if (BooleanFunctions.isDisjunction(results)) {
+            result = Bdd.falseNode;
+            for (int input : inputs) {
+                result = bdd.or(result, input);
+            }
+        } else if (BooleanFunctions.isFolded(function, inputs.length)) {
+            result = bdd.protect(inputs[0]);
+            for (int index = 1; index < inputs.length; index++) {
+                int next = fromTruthTable(results, new int[]{result, inputs[index]}, 0, 0);
+                bdd.release(result);
+                result = bdd.protect(next);
+            }
+            bdd.release(result);
+        } else {
+            result = fromTruthTable(results, inputs, 0, 0);
+        }
+        for (int input : inputs) {
+            bdd.release(input);
+        }
+        return result;
+    }
+
+    @Override
+    public Integer visitShared(int slot, Evaluable<Boolean> subexpression) {
+        Integer node = sharedNodes.get(slot);
+        if (node == null) {
+            node = bdd.protect(subexpression.accept(this));
+            sharedNodes.put(slot, node);
+        }
+        return node;
+    }
+
+    /**
+     * Builds the part of a truth table where the parameters before a position have already been given values.
+     *
+     * @param results The truth table
+     * @param inputs  The nodes of the parameters
+     * @param index   The position of the next parameter to give a value
+     * @param row     The row with the values given so far
+     * @return The node of that part of the truth table
+     */
+    private int fromTruthTable(boolean[] results, int[] inputs, int index, int row) {
+        if (index == inputs.length) {
+            return results[row] ? Bdd.trueNode : Bdd.falseNode;
+        }
+        int high = bdd.protect(fromTruthTable(results, inputs, index + 1, row | 1 << index));
+        int low = fromTruthTable(results, inputs, index + 1, row);
+        int result = bdd.ifThenElse(inputs[index], high, low);
+        bdd.release(high);
+        return result;
+    }
+}
@@ -0,0 +1,230 @@
+package com.JMEP.examples.LogicSolver;
+
+/**
+ * A BitNode is part of an expression that is evaluated on 64 sets of variable values at once. Each value is a long
+ * whose bit i is the value for set i, so functions become bitwise operations.
+ */
+abstract class BitNode {
+
+    /**
+     * Evaluates this node on 64 sets of values.
+     *
+     * @param slots The values of the slots, one long per slot
+     * @return The value of this node for each set
+     */
+    abstract long evaluate(long[] slots);
+
+    /**
+     * A node that is always the same value.
+     */
+    static final class Constant extends BitNode {
+        //every bit is the value of this node
+        final long bits;
+
+        /**
+         * Creates a Constant with the following:
+         *
+         * @param value The value of the node
+         */
+        Constant(boolean value) {
+            bits = value ? -1L : 0L;
+        }
+
+        @Override
+        long evaluate(long[] slots) {
+            return bits;
+        }
+    }
+
+    /**
+     * A node that is the value of a slot.
+     */
+    static final class Slot extends BitNode {
+        //the slot
+        final int index;
+
+        /**
+         * Creates a Slot with the following:
+         *
+         * @param slot The slot
+         */
+        Slot(int slot) {
+            index = slot;
+        }
+
+        @Override
+        long evaluate(long[] slots) {
+            return slots[index];
+        }
+    }
+
+    /**
+     * A node that is the negation of its parameter.
+     */
+    static final class Not extends BitNode {
+        //the parameter to negate
+        final BitNode parameter;
+
+        /**
+         * Creates a Not with the following:
+         *
+         * @param negated The parameter to negate
+         */
+        Not(BitNode negated) {
+            parameter = negated;
+        }
+
+        @Override
+        long evaluate(long[] slots) {
+            return ~parameter.evaluate(slots);
+        }
+    }
+
+    /**
+     * A node that is true when all of its parameters are.
+     */
+    static final class And extends BitNode {
+        //the parameters
+        final BitNode[] parameters;
+
+        /**
+         * Creates an And with the following:
+         *
+         * @param conjuncts The parameters
+         */
+        And(BitNode[] conjuncts) {
+            parameters = conjuncts;
+        }
+
+        @Override
+        long evaluate(long[] slots) {
+            long bits = -1L;
+            for (BitNode parameter : parameters) {
+                bits &= parameter.evaluate(slots);
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * A node that is true when any of its parameters are.
+     */
+    static final class Or extends BitNode {
+        //the parameters
+        final BitNode[] parameters;
+
+        /**
+         * Creates an Or with the following:
+         *
+         * @param disjuncts The parameters
+         */
+        Or(BitNode[] disjuncts) {
+            parameters = disjuncts;
+        }
+
+        @Override
+        long evaluate(long[] slots) {
+            long bits = 0L;
+            for (BitNode parameter : parameters) {
+                bits |= parameter.evaluate(slots);
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * A node that is any function, found from its truth table: it is true when its parameters match any row of the
+     * truth table that is true.
+     */
+    static final class Table extends BitNode {
+        //the rows of the truth table that are true, where bit i of a row is the value of parameter i
+        final int[] trueRows;
+        //the parameters
+        final BitNode[] parameters;
+
+        /**
+         * Creates a Table with the following:
+         *
+         * @param results            The truth table
+         * @param functionParameters The parameters
+         */
+        Table(boolean[] results, BitNode[] functionParameters) {
+            int count = 0;
+            for (boolean result : results) {
+                count += result ? 1 : 0;
+            }
+            trueRows = new int[count];
+            count = 0;
+            for (int row = 0; row < results.length; row++) {
+                if (results[row]) {
+                    trueRows[count++] = row;
+                }
+            }
+            parameters = functionParameters;
+        }
+
+        @Override
+        long evaluate(long[] slots) {
+            if (parameters.length == 2) {
+                long first = parameters[0].evaluate(slots);
+                long second = parameters[1].evaluate(slots);
+                long bits = 0L;
+                for (int row : trueRows) {
+                    bits |= ((row & 1) == 1 ? first : ~first) & ((row & 2) == 2 ? second : ~second);
+                }
+                return bits;
+            }
+            long[] values = new long[parameters.length];
+            for (int index = 0; index < values.length; index++) {
+                values[index] = parameters[index].evaluate(slots);
+            }
+            long bits = 0L;
+            for (int row : trueRows) {
+                long matches = -1L;
+                for (int index = 0; index < values.length; index++) {
+                    matches &= (row >> index & 1) == 1 ? values[index] : ~values[index];
+                }
+                bits |= matches;
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * A node that is a function of two parameters applied from left to right to any number of parameters, as in
+     * f(f(a,b),c), found from the truth table of two parameters.
+     */
+    static final class Fold extends BitNode {
+        //the truth table of two parameters
+        final boolean[] results;
+        //the parameters
+        final BitNode[] parameters;
+
+        /**
+         * Creates a Fold with the following:
+         *
+         * @param pairResults        The truth table of two parameters
+         * @param functionParameters The parameters
+         */
+        Fold(boolean[] pairResults, BitNode[] functionParameters) {
+            results = pairResults;
+            parameters = functionParameters;
+        }
+
+        @Override
+        long evaluate(long[] slots) {
+            long bits = parameters[0].evaluate(slots);
+            for (int index = 1; index < parameters.length; index++) {
+                long second = parameters[index].evaluate(slots);
+                long combined = 0L;
+                for (int row = 0; row < 4; row++) {
+                    if (results[row]) {
+                        combined |= ((row & 1) == 1 ? bits : ~bits) & ((row & 2) == 2 ? second : ~second);
+                    }
+                }
+                bits = combined;
+            }
+            return bits;
+        }
+    }
+}
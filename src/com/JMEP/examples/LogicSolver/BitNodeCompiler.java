@@ -0,0 +1,84 @@
+package com.JMEP.examples.LogicSolver;
+
+import com.JMEP.solver.Evaluable;
+import com.JMEP.solver.ExpressionVisitor;
+import com.JMEP.solver.Function;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a parsed expression into BitNodes. Functions are recognized from their truth tables, so conjunctions,
+ * disjunctions and negations become single bitwise operations whatever they are called. Shared subexpressions are
+ * converted once each and become extra slots after the variable slots, which are filled in before the expression is
+ * evaluated.
+ */
+class BitNodeCompiler implements ExpressionVisitor<Boolean, BitNode> {
+    //the truth tables of the functions in the expression
+    private final BooleanFunctions functions = new BooleanFunctions();
+    //the number of variable slots in the expression
+    private final int variableCount;
+    //the shared subexpressions that have been converted, by their position among the shared subexpressions
+    private final List<BitNode> shared = new ArrayList<>();
+
+    /**
+     * Creates a BitNodeCompiler with the following:
+     *
+     * @param variables The number of variable slots in the expression
+     */
+    BitNodeCompiler(int variables) {
+        variableCount = variables;
+    }
+
+    /**
+     * Gives the shared subexpressions that have been converted, in the order they must be evaluated.
+     *
+     * @return The shared subexpressions
+     */
+    BitNode[] getSharedNodes() {
+        return shared.toArray(new BitNode[0]);
+    }
+
+    @Override
+    public BitNode visitValue(Boolean value) {
+        return new BitNode.Constant(value);
+    }
+
+    @Override
+    public BitNode visitVariable(int index) {
+        return new BitNode.Slot(index);
+    }
+
+    @Override
+    public BitNode visitFunction(Function<Boolean> function, List<Evaluable<Boolean>> parameters) {
+        BitNode[] nodes = new BitNode[parameters.size()];
+        for (int index = 0; index < nodes.length; index++) {
+            nodes[index] = parameters.get(index).accept(this);
+        }
+        boolean[] results = functions.getCallTable(function, nodes.length);
+        if (BooleanFunctions.isConjunction(results)) {
+            return new BitNode.And(nodes);
+        }
+        if (BooleanFunctions.isDisjunction(results)) {
+            return new BitNode.Or(nodes);
+        }
+        if (BooleanFunctions.isFolded(function, nodes.length)) {
+            return new BitNode.Fold(results, nodes);
+        }
+        if (nodes.length == 1 && results[0] != results[1]) {
+            return results[1] ? nodes[0] : new BitNode.Not(nodes[0]);
+        }
+        return new BitNode.Table(results, nodes);
+    }
+
+    @Override
+    public BitNode visitShared(int slot, Evaluable<Boolean> subexpression) {
+        while (shared.size() <= slot) {
+            shared.add(null);
+        }
+        if (shared.get(slot) == null) {
+            shared.set(slot, subexpression.accept(this));
+        }
+        return new BitNode.Slot(variableCount + slot);
+    }
+}
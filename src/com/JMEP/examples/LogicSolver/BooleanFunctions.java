@@ -0,0 +1,139 @@
+package com.JMEP.examples.LogicSolver;
+
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.Function;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds and recognizes the truth tables of boolean functions, so that any function can be converted into another
+ * form, such as clauses or bitwise operations. A row of a truth table is a set of parameter values, where bit i of the
+ * row is the value of parameter i.
+ */
+final class BooleanFunctions {
+    //the most parameters a function can have, since its truth table has a row for every set of parameter values
+    static final int maximumParameters = 16;
+    //the truth tables that have been found, by function and then by number of parameters
+    private final Map<Function<Boolean>, Map<Integer, boolean[]>> truthTables = new HashMap<>();
+
+    /**
+     * Gives the truth table of a function, finding it the first time. Since visitors cannot throw an
+     * EvaluationException, an error is carried out in an EvaluationFailure.
+     *
+     * @param function       The function
+     * @param parameterCount The number of parameters
+     * @return The result of each row
+     */
+    boolean[] getTruthTable(Function<Boolean> function, int parameterCount) {
+        Map<Integer, boolean[]> byCount = truthTables.computeIfAbsent(function, key -> new HashMap<>());
+        boolean[] results = byCount.get(parameterCount);
+        if (results == null) {
+            try {
+                results = truthTable(function, parameterCount);
+            } catch (EvaluationException e) {
+                throw new EvaluationFailure(e);
+            }
+            byCount.put(parameterCount, results);
+        }
+        return results;
+    }
+
+    /**
+     * Gives the truth table to convert a call with, which for a folded call is the truth table of two parameters.
+     *
+     * @param function       The function
+     * @param parameterCount The number of parameters of the call
+     * @return The result of each row
+     */
+    boolean[] getCallTable(Function<Boolean> function, int parameterCount) {
+        return getTruthTable(function, isFolded(function, parameterCount) ? 2 : parameterCount);
+    }
+
+    /**
+     * Checks if a call is converted as its function of two parameters applied from left to right, as in f(f(a,b),c).
+     * This is done for calls to associative functions with more than two parameters, so that a long chain like
+     * a^b^c^d does not need a truth table with a row for every set of parameter values.
+     *
+     * @param function       The function
+     * @param parameterCount The number of parameters of the call
+     * @return Whether the call is folded
+     */
+    static boolean isFolded(Function<Boolean> function, int parameterCount) {
+        return function.isAssociative() && parameterCount > 2;
+    }
+
+    /**
+     * Evaluates a function on every set of parameter values.
+     *
+     * @param function       The function
+     * @param parameterCount The number of parameters
+     * @return The result of each row
+     * @throws EvaluationException If the function cannot be evaluated or has too many parameters
+     */
+    static boolean[] truthTable(Function<Boolean> function, int parameterCount) throws EvaluationException {
+        if (parameterCount > maximumParameters) {
+            throw new EvaluationException();
+        }
+        boolean[] results = new boolean[1 << parameterCount];
+        List<Boolean> parameters = new ArrayList<>(parameterCount);
+        for (int row = 0; row < results.length; row++) {
+            parameters.clear();
+            for (int index = 0; index < parameterCount; index++) {
+                parameters.add((row >> index & 1) == 1);
+            }
+            results[row] = function.evaluate(parameters);
+        }
+        return results;
+    }
+
+    /**
+     * Checks if a truth table is true only when every parameter is.
+     *
+     * @param results The truth table
+     * @return Whether the truth table is a conjunction
+     */
+    static boolean isConjunction(boolean[] results) {
+        for (int row = 0; row < results.length; row++) {
+            if (results[row] != (row == results.length - 1)) {
+                return false;
+            }
+        }
+        return results.length > 1;
+    }
+
+    /**
+     * Checks if a truth table is false only when every parameter is.
+     *
+     * @param results The truth table
+     * @return Whether the truth table is a disjunction
+     */
+    static boolean isDisjunction(boolean[] results) {
+        for (int row = 0; row < results.length; row++) {
+            if (results[row] != (row != 0)) {
+                return false;
+            }
+        }
+        return results.length > 1;
+    }
+
+    /**
+     * Carries an EvaluationException out of a visitor, whose methods cannot throw it.
+     */
+    static final class EvaluationFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        //the exception being carried
+        final EvaluationException carried;
+
+        /**
+         * Creates an EvaluationFailure with the following:
+         *
+         * @param evaluationException The exception being carried
+         */
+        EvaluationFailure(EvaluationException evaluationException) {
+            carried = evaluationException;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.JMEP.examples.LogicSolver;
+
+import com.JMEP.solver.CompiledExpression;
+import com.JMEP.solver.Evaluable;
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.ExpressionVisitor;
+import com.JMEP.solver.Function;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a parsed expression into clauses for a SatSolver with the Tseitin encoding: each function call gets a new
+ * variable, and clauses make that variable equal to the result of the call. The clauses of a call are found from the
+ * truth table of its function, so any function can be encoded, not only the ones LogicSolver has. The variables of
+ * the expression are the first variables of the clauses, in slot order.
+ * <p>
+ * Since the whole expression must be true, conjunctions at the top of it are split into their parameters, and
+ * disjunctions that must be true become clauses of their parameters, so expressions that are already in conjunctive
+ * normal form need no new variables.
+ */
+class CnfEncoder implements ExpressionVisitor<Boolean, Integer> {
+    //the clauses found so far
+    private final List<int[]> clauses = new ArrayList<>();
+    //the literals of the shared subexpressions that have been encoded, by their position
+    private final Map<Integer, Integer> sharedLiterals = new HashMap<>();
+    //the truth tables of the functions in the expression
+    private final BooleanFunctions functions = new BooleanFunctions();
+    //the number of variables used so far
+    private int variableCount;
+    //the literal that is always true, or -1 if it has not been needed yet
+    private int trueLiteral = -1;
+
+    /**
+     * Creates a CnfEncoder with the following:
+     *
+     * @param expressionVariables The number of variables in the expression
+     */
+    CnfEncoder(int expressionVariables) {
+        variableCount = expressionVariables;
+    }
+
+    /**
+     * Encodes an expression and gives a solver for the clauses that make it true.
+     *
+     * @param expression The expression
+     * @return The solver
+     * @throws EvaluationException If a function cannot be evaluated or has too many parameters
+     */
+    SatSolver encode(CompiledExpression<Boolean> expression) throws EvaluationException {
+        try {
+            expression.accept(new Requirement());
+        } catch (BooleanFunctions.EvaluationFailure e) {
+            throw e.carried;
+        }
+        SatSolver solver = new SatSolver(variableCount);
+        for (int[] clause : clauses) {
+            solver.addClause(clause);
+        }
+        return solver;
+    }
+
+    @Override
+    public Integer visitValue(Boolean value) {
+        if (trueLiteral == -1) {
+            trueLiteral = newVariable();
+            clauses.add(new int[]{trueLiteral});
+        }
+        return value ? trueLiteral : trueLiteral ^ 1;
+    }
+
+    @Override
+    public Integer visitVariable(int index) {
+        return index * 2;
+    }
+
+    @Override
+    public Integer visitFunction(Function<Boolean> function, List<Evaluable<Boolean>> parameters) {
+        int[] inputs = new int[parameters.size()];
+        for (int index = 0; index < inputs.length; index++) {
+            inputs[index] = parameters.get(index).accept(this);
+        }
+        boolean[] results = functions.getCallTable(function, inputs.length);
+        if (BooleanFunctions.isFolded(function, inputs.length)) {
+            int output = inputs[0];
+            for (int index = 1; index < inputs.length; index++) {
+                output = encodeCall(results, new int[]{output, inputs[index]});
+            }
+            return output;
+        }
+        return encodeCall(results, inputs);
+    }
+
+    /**
+     * Adds the clauses that make a new variable equal to the result of a call.
+     *
+     * @param results The truth table of the function
+     * @param inputs  The literals of the parameters
+     * @return The literal of the result
+     */
+    private int encodeCall(boolean[] results, int[] inputs) {
+        //a function of one parameter that gives it back or negates it needs no new variable
+        if (inputs.length == 1 && results[0] != results[1]) {
+            return results[1] ? inputs[0] : inputs[0] ^ 1;
+        }
+        int output = newVariable();
+        for (int row = 0; row < results.length; row++) {
+            //if the inputs match this row then the output is the result of the row
+            int[] clause = new int[inputs.length + 1];
+            for (int index = 0; index < inputs.length; index++) {
+                clause[index] = (row >> index & 1) == 1 ? inputs[index] ^ 1 : inputs[index];
+            }
+            clause[inputs.length] = results[row] ? output : output ^ 1;
+            clauses.add(clause);
+        }
+        return output;
+    }
+
+    @Override
+    public Integer visitShared(int slot, Evaluable<Boolean> subexpression) {
+        Integer literal = sharedLiterals.get(slot);
+        if (literal == null) {
+            literal = subexpression.accept(this);
+            sharedLiterals.put(slot, literal);
+        }
+        return literal;
+    }
+
+    /**
+     * Gives the literal of a new variable.
+     *
+     * @return The literal
+     */
+    private int newVariable() {
+        return variableCount++ * 2;
+    }
+
+    /**
+     * Adds clauses that make the part of the expression it visits true.
+     */
+    private final class Requirement implements ExpressionVisitor<Boolean, Void> {
+
+        @Override
+        public Void visitValue(Boolean value) {
+            clauses.add(new int[]{CnfEncoder.this.visitValue(value)});
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(int index) {
+            clauses.add(new int[]{CnfEncoder.this.visitVariable(index)});
+            return null;
+        }
+
+        @Override
+        public Void visitFunction(Function<Boolean> function, List<Evaluable<Boolean>> parameters) {
+            boolean[] results = functions.getCallTable(function, parameters.size());
+            if (BooleanFunctions.isConjunction(results)) {
+                for (Evaluable<Boolean> parameter : parameters) {
+                    parameter.accept(this);
+                }
+            } else if (BooleanFunctions.isDisjunction(results)) {
+                Disjuncts disjuncts = new Disjuncts();
+                for (Evaluable<Boolean> parameter : parameters) {
+                    parameter.accept(disjuncts);
+                }
+                clauses.add(disjuncts.toClause());
+            } else {
+                clauses.add(new int[]{CnfEncoder.this.visitFunction(function, parameters)});
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitShared(int slot, Evaluable<Boolean> subexpression) {
+            clauses.add(new int[]{CnfEncoder.this.visitShared(slot, subexpression)});
+            return null;
+        }
+    }
+
+    /**
+     * Collects the literals of a disjunction, looking through disjunctions inside it.
+     */
+    private final class Disjuncts implements ExpressionVisitor<Boolean, Void> {
+        //the literals found so far
+        private final List<Integer> literals = new ArrayList<>();
+
+        /**
+         * Gives the clause of the literals that were found.
+         *
+         * @return The clause
+         */
+        int[] toClause() {
+            int[] clause = new int[literals.size()];
+            for (int index = 0; index < clause.length; index++) {
+                clause[index] = literals.get(index);
+            }
+            return clause;
+        }
+
+        @Override
+        public Void visitValue(Boolean value) {
+            literals.add(CnfEncoder.this.visitValue(value));
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(int index) {
+            literals.add(CnfEncoder.this.visitVariable(index));
+            return null;
+        }
+
+        @Override
+        public Void visitFunction(Function<Boolean> function, List<Evaluable<Boolean>> parameters) {
+            if (BooleanFunctions.isDisjunction(functions.getCallTable(function, parameters.size()))) {
+                for (Evaluable<Boolean> parameter : parameters) {
+                    parameter.accept(this);
+                }
+            } else {
+                literals.add(CnfEncoder.this.visitFunction(function, parameters));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitShared(int slot, Evaluable<Boolean> subexpression) {
+            literals.add(CnfEncoder.this.visitShared(slot, subexpression));
+            return null;
+        }
+    }
+}
@@ -2,15 +2,25 @@ package com.JMEP.examples.LogicSolver;
 
 import com.JMEP.solver.*;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
  * An example of the solver class that uses Booleans
  */
 public class LogicSolver extends Solver<Boolean> {
+    //the most variables a truth table can have, which is a table of 2^30 rows
+    private static final int maximumTruthTableVariables = 30;
+    //the most nodes the decision diagrams of an equivalence or tautology test can have
+    private static final int maximumBddNodes = 1 << 22;
+    //the values of the first six variables in the 64 rows of a word of a truth table
+    private static final long[] variableBits = {0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+            0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L};
 
     public LogicSolver() {
-        addFunction(new Function<Boolean>("not") {
+        addFunction(new Function<Boolean>("not", true) {
             @Override
             public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
                 if (parameters.size() != 1) {
@@ -19,38 +29,48 @@ public class LogicSolver extends Solver<Boolean> {
                 return !parameters.get(0);
             }
         });
-        addOperator('~', "not", OperatorType.ParameterAfterOperator);
-        addFunction(new Function<Boolean>("and") {
+        addOperator('~', "not", OperatorType.ParameterAfterOperator, 5, Associativity.Right);
+        addFunction(new LazyFunction<Boolean>("and", true, true) {
             @Override
-            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
-                if (parameters.size() != 2) {
+            public Boolean evaluate(LazyParameters<Boolean> parameters) throws EvaluationException {
+                if (parameters.size() < 2) {
                     throw new EvaluationException();
                 }
-                return parameters.get(0) && parameters.get(1);
+                for (int index = 0; index < parameters.size(); index++) {
+                    if (!parameters.get(index)) {
+                        return false;
+                    }
+                }
+                return true;
             }
         });
-        addOperator('^', "and", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Boolean>("or") {
+        addOperator('^', "and", OperatorType.ParametersBeforeAndAfterOperator, 4, Associativity.Left);
+        addFunction(new LazyFunction<Boolean>("or", true, true) {
             @Override
-            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
-                if (parameters.size() != 2) {
+            public Boolean evaluate(LazyParameters<Boolean> parameters) throws EvaluationException {
+                if (parameters.size() < 2) {
                     throw new EvaluationException();
                 }
-                return parameters.get(0) || parameters.get(1);
+                for (int index = 0; index < parameters.size(); index++) {
+                    if (parameters.get(index)) {
+                        return true;
+                    }
+                }
+                return false;
             }
         });
-        addOperator('∨', "or", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Boolean>("implies") {
+        addOperator('∨', "or", OperatorType.ParametersBeforeAndAfterOperator, 3, Associativity.Left);
+        addFunction(new LazyFunction<Boolean>("implies", true) {
             @Override
-            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
+            public Boolean evaluate(LazyParameters<Boolean> parameters) throws EvaluationException {
                 if (parameters.size() != 2) {
                     throw new EvaluationException();
                 }
                 return !parameters.get(0) || parameters.get(1);
             }
         });
-        addOperator('⇒', "implies", OperatorType.ParametersBeforeAndAfterOperator);
-        addFunction(new Function<Boolean>("biconditional") {
+        addOperator('⇒', "implies", OperatorType.ParametersBeforeAndAfterOperator, 2, Associativity.Right);
+        addFunction(new Function<Boolean>("biconditional", true) {
             @Override
             public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
                 if (parameters.size() != 2) {
@@ -59,71 +79,176 @@ public class LogicSolver extends Solver<Boolean> {
                 return parameters.get(0).equals(parameters.get(1));
             }
         });
-        addOperator('⇔', "biconditional", OperatorType.ParametersBeforeAndAfterOperator);
+        addOperator('⇔', "biconditional", OperatorType.ParametersBeforeAndAfterOperator, 1, Associativity.Left);
+        addFunction(new LazyFunction<Boolean>("if", true) {
+            @Override
+            public Boolean evaluate(LazyParameters<Boolean> parameters) throws EvaluationException {
+                if (parameters.size() != 3) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) ? parameters.get(1) : parameters.get(2);
+            }
+        });
     }
 
     /**
-     * Gives all possible True and False values for a set of variables for use in constructing a truth table.
+     * Tests if an expression is satisfiable ie: there are a set of values that the variables in the
+     * expression could be set to in order to make the expression true.
      *
-     * @param variables The set of variables to use.
-     * @return A list of maps from variables to the values they should hold in that table entry.
+     * @param test The expression to test.
+     * @return True if such a set exists, false otherwise.
+     * @throws EvaluationException If there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
      */
-    private static List<Map<String, String>> getTruthTableInputs(Set<String> variables) {
-        //base case, one true statement one false one
-        if (variables.size() == 1) {
-            List<Map<String, String>> out = new ArrayList<>();
-            Map<String, String> truth = new HashMap<>();
-            truth.put(variables.iterator().next(), "True");
-            Map<String, String> unTruth = new HashMap<>();
-            unTruth.put(variables.iterator().next(), "False");
-            out.add(truth);
-            out.add(unTruth);
-            return out;
+    public boolean isSatisifiable(String test) throws ParsingException, EvaluationException {
+        return getSatisfyingAssignment(test) != null;
+    }
+
+    /**
+     * Finds values that the variables in an expression could be set to in order to make the expression true. The
+     * expression is converted into clauses and solved by a SAT solver, so expressions with hundreds of variables can
+     * be tested. Functions are encoded from their truth tables, so they must always give the same result for the same
+     * parameters and take at most 16 parameters.
+     *
+     * @param test The expression to test.
+     * @return A map from each variable to a value that makes the expression true, or null if there is no such set
+     * of values.
+     * @throws EvaluationException If there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
+     */
+    public Map<String, Boolean> getSatisfyingAssignment(String test) throws ParsingException, EvaluationException {
+        CompiledExpression<Boolean> expression = compile(test);
+        List<String> variables = expression.getVariableNames();
+        boolean[] model = new CnfEncoder(variables.size()).encode(expression).solve();
+        if (model == null) {
+            return null;
         }
-        //add the first variable to the map
-        String firstVar = variables.iterator().next();
-        variables.remove(firstVar);
-        List<Map<String, String>> out = new ArrayList<>();
-        List<Map<String, String>> previous = getTruthTableInputs(variables);
-        //each map now needs to have a true and a false copy
-        for (Map<String, String> oldMap : previous) {
-            Map<String, String> truth = new HashMap<>();
-            truth.put(firstVar, "True");
-            truth.putAll(oldMap);
-            Map<String, String> unTruth = new HashMap<>();
-            unTruth.put(firstVar, "False");
-            unTruth.putAll(oldMap);
-            out.add(truth);
-            out.add(unTruth);
+        Map<String, Boolean> assignment = new LinkedHashMap<>();
+        for (int index = 0; index < variables.size(); index++) {
+            assignment.put(variables.get(index), model[index]);
         }
-        return out;
+        return assignment;
     }
 
     /**
-     * Tests if an expression is satisfiable ie: there are a set of values that the variables in the
-     * expression could be set to in order to make the expression true.
+     * Tests if two expressions have the same value for every set of values of their variables. Both expressions are
+     * converted into reduced ordered binary decision diagrams, which are the same exactly when the expressions are
+     * equivalent. Functions are converted from their truth tables, so they must always give the same result for the
+     * same parameters and take at most 16 parameters.
+     *
+     * @param first  The first expression.
+     * @param second The second expression.
+     * @return True if the expressions are equivalent, false otherwise.
+     * @throws EvaluationException If the diagrams need too many nodes or there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
+     */
+    public boolean isEquivalent(String first, String second) throws ParsingException, EvaluationException {
+        CompiledExpression<Boolean> firstExpression = compile(first);
+        CompiledExpression<Boolean> secondExpression = compile(second);
+        Map<String, Integer> order = new HashMap<>();
+        Bdd bdd = new Bdd(maximumBddNodes);
+        BooleanFunctions functions = new BooleanFunctions();
+        int firstNode = bdd.protect(buildBdd(bdd, functions, firstExpression, order));
+        return buildBdd(bdd, functions, secondExpression, order) == firstNode;
+    }
+
+    /**
+     * Tests if an expression is true for every set of values of its variables.
      *
      * @param test The expression to test.
-     * @return True if such a set exists, false otherwise.
-     * @throws EvaluationException If there is an error in evaluation
+     * @return True if the expression is a tautology, false otherwise.
+     * @throws EvaluationException If the diagram needs too many nodes or there is an error in evaluation
      * @throws ParsingException    If there is an error in parsing
      */
-    public boolean isSatisifiable(String test) throws ParsingException, EvaluationException {
-        Set<String> variables = getUndefinedVariables(test);
-        //iterate over all possible inputs
-        for (Map<String, String> entry : getTruthTableInputs(variables)) {
-            //use those inputs
-            for (Map.Entry<String, String> mapVal : entry.entrySet()) {
-                addVariable(mapVal.getKey(), mapVal.getValue());
+    public boolean isTautology(String test) throws ParsingException, EvaluationException {
+        Bdd bdd = new Bdd(maximumBddNodes);
+        return buildBdd(bdd, new BooleanFunctions(), compile(test), new HashMap<>()) == Bdd.trueNode;
+    }
+
+    /**
+     * Builds the node of an expression in a Bdd. Variables are tested in the order they are first seen, across every
+     * expression built with the same order.
+     *
+     * @param bdd        The Bdd to build in
+     * @param functions  The truth tables of the functions in the expression
+     * @param expression The expression
+     * @param order      The Bdd variable of each variable name, which new variables are added to
+     * @return The node of the expression
+     * @throws EvaluationException If the diagram needs too many nodes or there is an error in evaluation
+     */
+    private static int buildBdd(Bdd bdd, BooleanFunctions functions, CompiledExpression<Boolean> expression,
+                                Map<String, Integer> order) throws EvaluationException {
+        List<String> names = expression.getVariableNames();
+        int[] bddVariables = new int[names.size()];
+        for (int index = 0; index < bddVariables.length; index++) {
+            Integer variable = order.get(names.get(index));
+            if (variable == null) {
+                variable = order.size();
+                order.put(names.get(index), variable);
             }
-            //check if the statement is true
-            if (solve(test)) {
-                clearVariables();
-                return true;
+            bddVariables[index] = variable;
+        }
+        BddBuilder builder = new BddBuilder(bdd, functions, bddVariables);
+        try {
+            return expression.accept(builder);
+        } catch (BooleanFunctions.EvaluationFailure e) {
+            throw e.carried;
+        } finally {
+            builder.releaseShared();
+        }
+    }
+
+    /**
+     * Gives the value of an expression for every set of values of its variables. The expression is evaluated on 64
+     * sets of values at once, so that its functions become bitwise operations.
+     *
+     * @param test The expression.
+     * @return The truth table of the expression.
+     * @throws EvaluationException If the expression has more than 30 variables or there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
+     */
+    public TruthTable getTruthTable(String test) throws ParsingException, EvaluationException {
+        CompiledExpression<Boolean> expression = compile(test);
+        int variableCount = expression.getVariableNames().size();
+        if (variableCount > maximumTruthTableVariables) {
+            throw new EvaluationException();
+        }
+        BitNodeCompiler compiler = new BitNodeCompiler(variableCount);
+        BitNode root;
+        try {
+            root = expression.accept(compiler);
+        } catch (BooleanFunctions.EvaluationFailure e) {
+            throw e.carried;
+        }
+        BitNode[] shared = compiler.getSharedNodes();
+        long[] words = new long[variableCount < 6 ? 1 : 1 << (variableCount - 6)];
+        long[] slots = new long[variableCount + shared.length];
+        for (int word = 0; word < words.length; word++) {
+            for (int index = 0; index < variableCount; index++) {
+                //the first six variables change within a word, and the rest are the same for the whole word
+                slots[index] = index < 6 ? variableBits[index] : (word >> (index - 6) & 1) == 1 ? -1L : 0L;
             }
-            clearVariables();
+            for (int index = 0; index < shared.length; index++) {
+                slots[variableCount + index] = shared[index].evaluate(slots);
+            }
+            words[word] = root.evaluate(slots);
+        }
+        if (variableCount < 6) {
+            words[0] &= (1L << (1 << variableCount)) - 1;
         }
-        return false;
+        return new TruthTable(expression.getVariableNames(), words);
+    }
+
+    /**
+     * Counts the sets of values of the variables in an expression that make the expression true.
+     *
+     * @param test The expression.
+     * @return The number of satisfying assignments.
+     * @throws EvaluationException If the expression has more than 30 variables or there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
+     */
+    public long countSatisfyingAssignments(String test) throws ParsingException, EvaluationException {
+        return getTruthTable(test).countSatisfyingAssignments();
     }
 
     @Override
@@ -131,6 +256,16 @@ public class LogicSolver extends Solver<Boolean> {
         return new HashMap<>();
     }
 
+    @Override
+    protected void writeValue(Boolean value, DataOutput out) throws IOException {
+        out.writeBoolean(value);
+    }
+
+    @Override
+    protected Boolean readValue(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
     @Override
     public Boolean toValue(String value) throws ParsingException {
         if (value.equalsIgnoreCase("True")) {
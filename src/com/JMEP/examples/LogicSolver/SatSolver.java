@@ -0,0 +1,466 @@
+package com.JMEP.examples.LogicSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A SatSolver finds values for a set of boolean variables that make every one of a set of clauses true, where a
+ * clause is true if any of its literals are. It is a conflict driven clause learning solver: each clause is watched
+ * by two of its literals so that only clauses that may have become unit are looked at, and every conflict teaches the
+ * solver a new clause that stops it from making the same mistake again.
+ * <p>
+ * The literal of variable v is 2v, and its negation is 2v+1.
+ */
+final class SatSolver {
+    //the values of variables and literals
+    private static final byte unassigned = 0;
+    private static final byte isTrue = 1;
+    private static final byte isFalse = -1;
+    //the number of conflicts before the first restart, and how much longer each restart waits than the last
+    private static final int firstRestart = 100;
+    private static final double restartGrowth = 1.5;
+    //how quickly the activity of variables that have not been in conflicts recently fades
+    private static final double activityDecay = 0.95;
+    //the number of learnt clauses kept before the less useful ones are removed, and how much that grows each time
+    private static final int firstLearntLimit = 2000;
+    private static final double learntLimitGrowth = 1.1;
+    //the number of variables
+    private final int variableCount;
+    //the clauses, followed by the clauses that have been learnt, where each clause is watched by its first two literals
+    //and clauses that have been removed are null
+    private final List<int[]> clauses = new ArrayList<>();
+    //the indexes of the learnt clauses that have not been removed, and the number of decision levels in each
+    private final List<Integer> learntClauses = new ArrayList<>();
+    private final List<Integer> learntQualities = new ArrayList<>();
+    //the clauses watched by each literal, which must be looked at when the literal becomes false
+    private final int[][] watches;
+    private final int[] watchCounts;
+    //the value of each variable
+    private final byte[] values;
+    //the decision level at which each variable was given its value
+    private final int[] levels;
+    //the clause that forced the value of each variable, or -1 if it was decided or given at level 0
+    private final int[] reasons;
+    //the literals that have been made true, in the order they were made true
+    private final int[] trail;
+    private int trailSize = 0;
+    //the position in the trail where each decision level starts
+    private final int[] levelStarts;
+    private int decisionLevel = 0;
+    //the number of literals in the trail whose consequences have been found
+    private int propagated = 0;
+    //how often each variable has been involved in recent conflicts, used to choose which variable to decide next
+    private final double[] activity;
+    private double activityIncrement = 1;
+    //the last value of each variable, which is used again when it is next decided
+    private final boolean[] savedPhases;
+    //marks variables while a conflict is being analysed
+    private final boolean[] seen;
+    //whether a clause that can never be true has been added
+    private boolean unsatisfiable = false;
+
+    /**
+     * Creates a SatSolver with no clauses and the following:
+     *
+     * @param variables The number of variables
+     */
+    SatSolver(int variables) {
+        variableCount = variables;
+        watches = new int[variables * 2][];
+        watchCounts = new int[variables * 2];
+        for (int literal = 0; literal < watches.length; literal++) {
+            watches[literal] = new int[4];
+        }
+        values = new byte[variables];
+        levels = new int[variables];
+        reasons = new int[variables];
+        trail = new int[variables];
+        levelStarts = new int[variables + 1];
+        activity = new double[variables];
+        savedPhases = new boolean[variables];
+        seen = new boolean[variables];
+    }
+
+    /**
+     * Adds a clause that must be true. Clauses can only be added before solving.
+     *
+     * @param literals The literals of the clause
+     */
+    void addClause(int... literals) {
+        if (unsatisfiable) {
+            return;
+        }
+        int[] sorted = literals.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int index = 0; index < sorted.length; index++) {
+            int literal = sorted[index];
+            //a clause with a literal and its negation, or a literal that is already true, is always true
+            if (valueOf(literal) == isTrue || (index > 0 && sorted[index - 1] == (literal ^ 1))) {
+                return;
+            }
+            //repeated literals and literals that are already false are left out
+            if (valueOf(literal) == isFalse || (size > 0 && sorted[size - 1] == literal)) {
+                continue;
+            }
+            sorted[size++] = literal;
+        }
+        if (size == 0) {
+            unsatisfiable = true;
+        } else if (size == 1) {
+            assign(sorted[0], -1);
+        } else {
+            attach(Arrays.copyOf(sorted, size));
+        }
+    }
+
+    /**
+     * Finds values for the variables that make every clause true.
+     *
+     * @return The value of each variable, or null if no values make every clause true
+     */
+    boolean[] solve() {
+        if (unsatisfiable || propagate() != -1) {
+            return null;
+        }
+        int conflicts = 0;
+        double restartLimit = firstRestart;
+        double learntLimit = firstLearntLimit;
+        while (true) {
+            int conflict = propagate();
+            if (conflict != -1) {
+                if (decisionLevel == 0) {
+                    return null;
+                }
+                conflicts++;
+                learn(conflict);
+                continue;
+            }
+            if (conflicts >= restartLimit) {
+                conflicts = 0;
+                restartLimit *= restartGrowth;
+                backtrack(0);
+                if (learntClauses.size() > learntLimit) {
+                    removeLearntClauses();
+                    learntLimit *= learntLimitGrowth;
+                }
+                continue;
+            }
+            int variable = chooseVariable();
+            if (variable == -1) {
+                boolean[] model = new boolean[variableCount];
+                for (int index = 0; index < variableCount; index++) {
+                    model[index] = values[index] == isTrue;
+                }
+                return model;
+            }
+            levelStarts[decisionLevel++] = trailSize;
+            assign(savedPhases[variable] ? variable * 2 : variable * 2 + 1, -1);
+        }
+    }
+
+    /**
+     * Gives the value of a literal.
+     *
+     * @param literal The literal
+     * @return isTrue, isFalse, or unassigned
+     */
+    private byte valueOf(int literal) {
+        byte value = values[literal >> 1];
+        return (literal & 1) == 0 ? value : (byte) -value;
+    }
+
+    /**
+     * Makes a literal true.
+     *
+     * @param literal The literal
+     * @param reason  The clause that forced the literal, or -1 if it was decided
+     */
+    private void assign(int literal, int reason) {
+        int variable = literal >> 1;
+        if (values[variable] != unassigned) {
+            if (valueOf(literal) == isFalse) {
+                unsatisfiable = true;
+            }
+            return;
+        }
+        values[variable] = (literal & 1) == 0 ? isTrue : isFalse;
+        levels[variable] = decisionLevel;
+        reasons[variable] = reason;
+        trail[trailSize++] = literal;
+    }
+
+    /**
+     * Adds a clause with at least two literals and watches its first two.
+     *
+     * @param clause The clause
+     * @return The index of the clause
+     */
+    private int attach(int[] clause) {
+        clauses.add(clause);
+        int index = clauses.size() - 1;
+        watch(clause[0], index);
+        watch(clause[1], index);
+        return index;
+    }
+
+    /**
+     * Adds a clause to the clauses watched by a literal.
+     *
+     * @param literal The literal
+     * @param clause  The index of the clause
+     */
+    private void watch(int literal, int clause) {
+        if (watchCounts[literal] == watches[literal].length) {
+            watches[literal] = Arrays.copyOf(watches[literal], watches[literal].length * 2);
+        }
+        watches[literal][watchCounts[literal]++] = clause;
+    }
+
+    /**
+     * Makes every literal true that is forced by the literals that have been made true.
+     *
+     * @return The index of a clause that has become false, or -1 if there is none
+     */
+    private int propagate() {
+        while (propagated < trailSize) {
+            int falseLiteral = trail[propagated++] ^ 1;
+            int[] watched = watches[falseLiteral];
+            int count = watchCounts[falseLiteral];
+            int kept = 0;
+            int index = 0;
+            while (index < count) {
+                int clauseIndex = watched[index++];
+                int[] clause = clauses.get(clauseIndex);
+                //removed clauses are dropped from the watches when they are next found
+                if (clause == null) {
+                    continue;
+                }
+                //keep the false literal second, so that the first is the one that may be forced
+                if (clause[0] == falseLiteral) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLiteral;
+                }
+                if (valueOf(clause[0]) == isTrue) {
+                    watched[kept++] = clauseIndex;
+                    continue;
+                }
+                boolean moved = false;
+                for (int other = 2; other < clause.length; other++) {
+                    if (valueOf(clause[other]) != isFalse) {
+                        clause[1] = clause[other];
+                        clause[other] = falseLiteral;
+                        watch(clause[1], clauseIndex);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                watched[kept++] = clauseIndex;
+                if (valueOf(clause[0]) == isFalse) {
+                    while (index < count) {
+                        watched[kept++] = watched[index++];
+                    }
+                    watchCounts[falseLiteral] = kept;
+                    return clauseIndex;
+                }
+                assign(clause[0], clauseIndex);
+            }
+            watchCounts[falseLiteral] = kept;
+        }
+        return -1;
+    }
+
+    /**
+     * Learns a clause from a conflict, which has only one literal from the current decision level, then goes back to
+     * the level where that literal is forced.
+     *
+     * @param conflict The index of the clause that has become false
+     */
+    private void learn(int conflict) {
+        List<Integer> learnt = new ArrayList<>();
+        //the first literal is filled in with the negation of the last literal from this level
+        learnt.add(-1);
+        int remaining = 0;
+        int literal = -1;
+        int trailIndex = trailSize - 1;
+        int clauseIndex = conflict;
+        do {
+            int[] clause = clauses.get(clauseIndex);
+            //the first literal of a reason is the literal it forced, which is already being resolved
+            for (int index = literal == -1 ? 0 : 1; index < clause.length; index++) {
+                int variable = clause[index] >> 1;
+                if (!seen[variable] && levels[variable] > 0) {
+                    seen[variable] = true;
+                    bumpActivity(variable);
+                    if (levels[variable] == decisionLevel) {
+                        remaining++;
+                    } else {
+                        learnt.add(clause[index]);
+                    }
+                }
+            }
+            while (!seen[trail[trailIndex] >> 1]) {
+                trailIndex--;
+            }
+            literal = trail[trailIndex--];
+            clauseIndex = reasons[literal >> 1];
+            seen[literal >> 1] = false;
+            remaining--;
+        } while (remaining > 0);
+        learnt.set(0, literal ^ 1);
+        //leave out literals that are implied by the other literals of the clause
+        List<Integer> minimized = new ArrayList<>();
+        minimized.add(learnt.get(0));
+        for (int index = 1; index < learnt.size(); index++) {
+            if (!isImplied(learnt.get(index))) {
+                minimized.add(learnt.get(index));
+            }
+        }
+        for (int index = 1; index < learnt.size(); index++) {
+            seen[learnt.get(index) >> 1] = false;
+        }
+        int backtrackLevel = 0;
+        int[] clause = new int[minimized.size()];
+        for (int index = 0; index < clause.length; index++) {
+            clause[index] = minimized.get(index);
+            //watch the literal from the highest level after the first, so the clause is watched correctly after
+            //going back to that level
+            if (index > 0 && levels[clause[index] >> 1] > backtrackLevel) {
+                backtrackLevel = levels[clause[index] >> 1];
+                clause[index] = clause[1];
+                clause[1] = minimized.get(index);
+            }
+        }
+        activityIncrement /= activityDecay;
+        int quality = countLevels(clause);
+        backtrack(backtrackLevel);
+        if (clause.length == 1) {
+            assign(clause[0], -1);
+        } else {
+            int index = attach(clause);
+            learntClauses.add(index);
+            learntQualities.add(quality);
+            assign(clause[0], index);
+        }
+    }
+
+    /**
+     * Checks if a literal of a clause being learnt is false whenever the other literals of the clause are, because
+     * every other literal of the clause that forced it is in the clause or was given at level 0.
+     *
+     * @param literal The literal
+     * @return Whether the literal can be left out of the clause
+     */
+    private boolean isImplied(int literal) {
+        int reason = reasons[literal >> 1];
+        if (reason == -1) {
+            return false;
+        }
+        int[] clause = clauses.get(reason);
+        for (int index = 1; index < clause.length; index++) {
+            int variable = clause[index] >> 1;
+            if (!seen[variable] && levels[variable] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the different decision levels of the literals of a clause. Learnt clauses with fewer levels are more
+     * useful, since they link fewer decisions.
+     *
+     * @param clause The clause
+     * @return The number of decision levels
+     */
+    private int countLevels(int[] clause) {
+        Set<Integer> clauseLevels = new HashSet<>();
+        for (int literal : clause) {
+            clauseLevels.add(levels[literal >> 1]);
+        }
+        return clauseLevels.size();
+    }
+
+    /**
+     * Removes the less useful half of the learnt clauses, keeping those that link only two decision levels. This must
+     * only be done at level 0, where no learnt clause is needed as the reason for a value.
+     */
+    private void removeLearntClauses() {
+        Integer[] order = new Integer[learntClauses.size()];
+        for (int index = 0; index < order.length; index++) {
+            order[index] = index;
+        }
+        Arrays.sort(order, (first, second) -> learntQualities.get(second) - learntQualities.get(first));
+        boolean[] removed = new boolean[order.length];
+        for (int index = 0; index < order.length / 2; index++) {
+            if (learntQualities.get(order[index]) > 2) {
+                clauses.set(learntClauses.get(order[index]), null);
+                removed[order[index]] = true;
+            }
+        }
+        int kept = 0;
+        for (int index = 0; index < order.length; index++) {
+            if (!removed[index]) {
+                learntClauses.set(kept, learntClauses.get(index));
+                learntQualities.set(kept++, learntQualities.get(index));
+            }
+        }
+        learntClauses.subList(kept, order.length).clear();
+        learntQualities.subList(kept, order.length).clear();
+    }
+
+    /**
+     * Undoes every value given after a decision level.
+     *
+     * @param level The decision level to go back to
+     */
+    private void backtrack(int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        for (int index = trailSize - 1; index >= levelStarts[level]; index--) {
+            int variable = trail[index] >> 1;
+            savedPhases[variable] = values[variable] == isTrue;
+            values[variable] = unassigned;
+        }
+        trailSize = levelStarts[level];
+        propagated = trailSize;
+        decisionLevel = level;
+    }
+
+    /**
+     * Makes a variable more likely to be chosen next, since it has been involved in a conflict.
+     *
+     * @param variable The variable
+     */
+    private void bumpActivity(int variable) {
+        activity[variable] += activityIncrement;
+        if (activity[variable] > 1e100) {
+            for (int index = 0; index < variableCount; index++) {
+                activity[index] *= 1e-100;
+            }
+            activityIncrement *= 1e-100;
+        }
+    }
+
+    /**
+     * Chooses the most active variable that has no value.
+     *
+     * @return The variable, or -1 if every variable has a value
+     */
+    private int chooseVariable() {
+        int best = -1;
+        for (int variable = 0; variable < variableCount; variable++) {
+            if (values[variable] == unassigned && (best == -1 || activity[variable] > activity[best])) {
+                best = variable;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,127 @@
+package com.JMEP.examples.LogicSolver;
+
+import com.JMEP.solver.EvaluationException;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A TruthTable holds the value of an expression for every set of values of its variables. Each set of values is a
+ * row, where bit i of the row is the value of variable i. The values are packed 64 rows to a long, like a BitSet.
+ */
+public final class TruthTable {
+    //the names of the variables, in the order of their bits in a row
+    private final List<String> variableNames;
+    //the value of each row, 64 rows to a long
+    private final long[] words;
+
+    /**
+     * Creates a TruthTable with the following:
+     *
+     * @param variables The names of the variables, in the order of their bits in a row
+     * @param rowWords  The value of each row, 64 rows to a long, with no bits set after the last row
+     */
+    TruthTable(List<String> variables, long[] rowWords) {
+        variableNames = variables;
+        words = rowWords;
+    }
+
+    /**
+     * A getter for the names of the variables in the table.
+     *
+     * @return The names of the variables, in the order of their bits in a row
+     */
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * Gives the number of rows in the table, which is 2 to the power of the number of variables.
+     *
+     * @return The number of rows
+     */
+    public long getRowCount() {
+        return 1L << variableNames.size();
+    }
+
+    /**
+     * Gives the value of the expression for a row.
+     *
+     * @param row The row, where bit i is the value of variable i
+     * @return The value of the expression
+     */
+    public boolean get(long row) {
+        if (row < 0 || row >= getRowCount()) {
+            throw new IndexOutOfBoundsException();
+        }
+        return (words[(int) (row >>> 6)] & 1L << row) != 0;
+    }
+
+    /**
+     * Gives the value of the expression for the following variable values:
+     *
+     * @param variableValues A map from variable names to their values
+     * @return The value of the expression
+     * @throws EvaluationException If a variable has no value
+     */
+    public boolean get(Map<String, Boolean> variableValues) throws EvaluationException {
+        long row = 0;
+        for (int index = 0; index < variableNames.size(); index++) {
+            Boolean value = variableValues.get(variableNames.get(index));
+            if (value == null) {
+                throw new EvaluationException();
+            }
+            if (value) {
+                row |= 1L << index;
+            }
+        }
+        return get(row);
+    }
+
+    /**
+     * Counts the rows for which the expression is true.
+     *
+     * @return The number of satisfying assignments
+     */
+    public long countSatisfyingAssignments() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first row at or after a row for which the expression is true.
+     *
+     * @param fromRow The row to start from
+     * @return The row, or -1 if there is none
+     */
+    public long nextSatisfyingRow(long fromRow) {
+        if (fromRow < 0) {
+            fromRow = 0;
+        }
+        int wordIndex = (int) (fromRow >>> 6);
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = words[wordIndex] & -1L << fromRow;
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+        return (long) wordIndex * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Gives the rows for which the expression is true as a BitSet.
+     *
+     * @return A BitSet with the bits of the satisfying rows set
+     */
+    public BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+}
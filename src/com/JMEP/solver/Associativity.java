@@ -0,0 +1,11 @@
+package com.JMEP.solver;
+
+/**
+ * The way an operator groups with other operators of the same precedence
+ */
+public enum Associativity {
+    //group from the left ie: a-b-c is (a-b)-c
+    Left,
+    //group from the right ie: a^b^c is a^(b^c)
+    Right
+}
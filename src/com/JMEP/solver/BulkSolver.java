@@ -0,0 +1,224 @@
+package com.JMEP.solver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A BulkSolver solves a stream of expressions, one per line, and writes the solution of each line on a line of its
+ * own in the same order. The input is read in large buffers and split into chunks of whole lines, which are parsed and
+ * solved on a pool of threads. Only a few chunks are ever waiting to be written, so reading waits for writing when the
+ * output is slower than the input, and memory use does not depend on the size of the input.
+ * <p>
+ * A line that cannot be parsed or evaluated gives a line of its own starting with "error: " and the name of the
+ * exception, and the lines after it are solved as usual.
+ *
+ * @param <ValueType> The Type of the number that will result from the evaluation.
+ */
+public final class BulkSolver<ValueType> {
+    //the number of bytes read from the input at once, which also starts as the longest line that fits
+    private static final int bufferSize = 1 << 20;
+    //the number of bytes of lines in each chunk that is solved by a thread
+    private static final int chunkSize = 1 << 16;
+    //the number of chunks per thread that can be waiting to be written
+    private static final int chunksPerThread = 4;
+    //the start of the line given for a line that cannot be solved
+    private static final String errorPrefix = "error: ";
+
+    //the solver to solve each line with, which is used by every thread at once
+    private final ImmutableSolver<ValueType> solver;
+    //the number of threads to solve with
+    private final int threadCount;
+    //converts each solution into the text of its line
+    private final java.util.function.Function<? super ValueType, String> formatter;
+
+    /**
+     * Creates a BulkSolver that writes each solution with String.valueOf and the following:
+     *
+     * @param immutableSolver The solver to solve each line with
+     * @param threads         The number of threads to solve with
+     */
+    public BulkSolver(ImmutableSolver<ValueType> immutableSolver, int threads) {
+        this(immutableSolver, threads, String::valueOf);
+    }
+
+    /**
+     * Creates a BulkSolver with the following:
+     *
+     * @param immutableSolver The solver to solve each line with
+     * @param threads         The number of threads to solve with
+     * @param format          Converts each solution into the text of its line
+     */
+    public BulkSolver(ImmutableSolver<ValueType> immutableSolver, int threads,
+                      java.util.function.Function<? super ValueType, String> format) {
+        if (threads < 1) {
+            throw new IllegalArgumentException();
+        }
+        solver = immutableSolver;
+        threadCount = threads;
+        formatter = format;
+    }
+
+    /**
+     * Solves every line of a file and writes the solutions into another file, which is replaced if it exists.
+     *
+     * @param input  The file of expressions, in UTF-8
+     * @param output The file to write the solutions into
+     * @throws IOException If the files cannot be read or written
+     */
+    public void solve(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            solve(in, out);
+        }
+    }
+
+    /**
+     * Solves every line of a channel and writes the solutions into another channel. Neither channel is closed.
+     *
+     * @param input  The channel of expressions, in UTF-8
+     * @param output The channel to write the solutions into
+     * @throws IOException If the channels cannot be read or written
+     */
+    public void solve(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, task -> {
+            Thread thread = new Thread(task, "BulkSolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            //the chunks that are being solved or are waiting to be written, in input order
+            ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            boolean ended = false;
+            while (!ended) {
+                ended = input.read(buffer) == -1;
+                buffer.flip();
+                int end = ended ? buffer.limit() : lastLineEnd(buffer);
+                if (end == -1) {
+                    //no line has ended yet, so read more of it, with a bigger buffer if this one is full
+                    if (buffer.limit() == buffer.capacity()) {
+                        buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer);
+                    } else {
+                        buffer.compact();
+                    }
+                    continue;
+                }
+                while (buffer.position() < end) {
+                    byte[] chunk = new byte[chunkEnd(buffer, end) - buffer.position()];
+                    buffer.get(chunk);
+                    pending.add(executor.submit(() -> solveChunk(chunk)));
+                    while (pending.size() >= threadCount * chunksPerThread) {
+                        write(pending.remove(), output);
+                    }
+                }
+                buffer.compact();
+            }
+            while (!pending.isEmpty()) {
+                write(pending.remove(), output);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds where the last whole line in a buffer ends.
+     *
+     * @param buffer The buffer, from its position to its limit
+     * @return The index just after the last line break, or -1 if there is none
+     */
+    private static int lastLineEnd(ByteBuffer buffer) {
+        for (int index = buffer.limit() - 1; index >= buffer.position(); index--) {
+            if (buffer.get(index) == '\n') {
+                return index + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds where the next chunk ends, which is the end of the first line that ends at least chunkSize bytes after the
+     * position of the buffer.
+     *
+     * @param buffer The buffer, which has whole lines from its position
+     * @param end    The index just after the last whole line
+     * @return The index just after the last line of the chunk
+     */
+    private static int chunkEnd(ByteBuffer buffer, int end) {
+        int index = buffer.position() + chunkSize - 1;
+        while (index < end - 1 && buffer.get(index) != '\n') {
+            index++;
+        }
+        return Math.min(index + 1, end);
+    }
+
+    /**
+     * Solves every line of a chunk.
+     *
+     * @param chunk The lines, in UTF-8, where the last line may or may not end with a line break
+     * @return The solutions of the lines, in UTF-8, each ending with a line break
+     */
+    private ByteBuffer solveChunk(byte[] chunk) {
+        String text = new String(chunk, StandardCharsets.UTF_8);
+        StringBuilder solutions = new StringBuilder(chunk.length);
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end == -1) {
+                end = text.length();
+            }
+            //lines may also end with a carriage return
+            int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            try {
+                solutions.append(formatter.apply(solver.solve(text.substring(start, lineEnd))));
+            } catch (ParsingException | EvaluationException e) {
+                solutions.append(errorPrefix).append(e.getClass().getSimpleName());
+            }
+            solutions.append('\n');
+            start = end + 1;
+        }
+        return ByteBuffer.wrap(solutions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Waits for a chunk to be solved and writes its solutions.
+     *
+     * @param solved The solutions of the chunk
+     * @param output The channel to write them into
+     * @throws IOException If the channel cannot be written
+     */
+    private static void write(Future<ByteBuffer> solved, WritableByteChannel output) throws IOException {
+        ByteBuffer solutions;
+        try {
+            solutions = solved.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            //a function that fails with something other than an EvaluationException is not a problem with a line
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        while (solutions.hasRemaining()) {
+            output.write(solutions);
+        }
+    }
+}
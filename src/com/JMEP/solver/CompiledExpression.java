@@ -0,0 +1,183 @@
+package com.JMEP.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A CompiledExpression is an expression that has been parsed once and can be evaluated any number of times.
+ * Any part of the expression that could not be converted into a value is a named variable slot that is given a
+ * value on each evaluation.
+ *
+ * @param <ValueType> The Type of the number that will result from the evaluation.
+ */
+public final class CompiledExpression<ValueType> {
+    //the parsed expression
+    private final Evaluable<ValueType> expression;
+    //the names of the variable slots, in slot order
+    private final List<String> variableNames;
+    //the number of subexpressions that are shared, which are only evaluated once per evaluation
+    private final int sharedCount;
+    //the listener to tell about evaluations, or null if they are not timed
+    private final MetricsListener metricsListener;
+
+    /**
+     * Creates a CompiledExpression with the following:
+     *
+     * @param parsedExpression The parsed expression
+     * @param variables        The names of the variable slots, in slot order
+     * @param shared           The number of shared subexpressions in the expression
+     */
+    CompiledExpression(Evaluable<ValueType> parsedExpression, List<String> variables, int shared) {
+        this(parsedExpression, Collections.unmodifiableList(new ArrayList<>(variables)), shared, null);
+    }
+
+    /**
+     * Creates a CompiledExpression with the following:
+     *
+     * @param parsedExpression The parsed expression
+     * @param variables        The names of the variable slots, in slot order, which must not change
+     * @param shared           The number of shared subexpressions in the expression
+     * @param listener         The listener to tell about evaluations, or null if they are not timed
+     */
+    private CompiledExpression(Evaluable<ValueType> parsedExpression, List<String> variables, int shared,
+                               MetricsListener listener) {
+        expression = parsedExpression;
+        variableNames = variables;
+        sharedCount = shared;
+        metricsListener = listener;
+    }
+
+    /**
+     * Gives a copy of this expression that tells a listener about its evaluations and function calls.
+     *
+     * @param listener The listener to tell
+     * @return The copy
+     */
+    CompiledExpression<ValueType> withMetricsListener(MetricsListener listener) {
+        return new CompiledExpression<>(expression, variableNames, sharedCount, listener);
+    }
+
+    /**
+     * A getter for the names of the variables in this expression.
+     *
+     * @return The names of the variables, in slot order
+     */
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * Gives the slot of a variable.
+     *
+     * @param variableName The name of the variable
+     * @return The slot of the variable, or -1 if this expression has no such variable
+     */
+    public int getVariableIndex(String variableName) {
+        return variableNames.indexOf(variableName);
+    }
+
+    /**
+     * Gives the number of subexpressions that appear more than once in this expression and are only evaluated once
+     * per evaluation.
+     *
+     * @return The number of shared subexpressions
+     */
+    public int getSharedCount() {
+        return sharedCount;
+    }
+
+    /**
+     * Gives the parsed expression to the visitor.
+     *
+     * @param visitor      The visitor to give the expression to
+     * @param <ResultType> The Type of the result of visiting the expression
+     * @return The result of visiting the expression
+     */
+    public <ResultType> ResultType accept(ExpressionVisitor<ValueType, ResultType> visitor) {
+        return expression.accept(visitor);
+    }
+
+    /**
+     * Gives a copy of this expression that keeps the value of each of its parts, so that after a variable is set only
+     * the parts that depend on it are evaluated again.
+     *
+     * @return The incremental expression, with no variable values yet
+     */
+    public IncrementalExpression<ValueType> toIncremental() {
+        return new IncrementalExpression<>(this);
+    }
+
+    /**
+     * Evaluates this expression with the following variable values:
+     *
+     * @param variableValues A map from variable names to their values
+     * @return The value this expression evaluates to
+     * @throws EvaluationException If a variable has no value or there is an error in evaluation
+     */
+    public ValueType evaluate(Map<String, ValueType> variableValues) throws EvaluationException {
+        long start = metricsListener == null ? 0 : System.nanoTime();
+        List<ValueType> slots = new ArrayList<>(variableNames.size());
+        for (String name : variableNames) {
+            ValueType value = variableValues.get(name);
+            if (value == null) {
+                evaluationFailed(start);
+                throw new EvaluationException();
+            }
+            slots.add(value);
+        }
+        return evaluateSlots(slots, start);
+    }
+
+    /**
+     * Evaluates this expression with the following variable values:
+     *
+     * @param variableValues The values of the variables, in slot order
+     * @return The value this expression evaluates to
+     * @throws EvaluationException If the number of values does not match the number of variables or there is an
+     *                             error in evaluation
+     */
+    public ValueType evaluate(List<ValueType> variableValues) throws EvaluationException {
+        long start = metricsListener == null ? 0 : System.nanoTime();
+        if (variableValues.size() != variableNames.size()) {
+            evaluationFailed(start);
+            throw new EvaluationException();
+        }
+        return evaluateSlots(variableValues, start);
+    }
+
+    /**
+     * Tells the listener, if there is one, that an evaluation failed before the expression was evaluated, such as
+     * when a variable has no value.
+     *
+     * @param start The time the evaluation started, from System.nanoTime
+     */
+    private void evaluationFailed(long start) {
+        if (metricsListener != null) {
+            metricsListener.evaluationFailed(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Evaluates this expression once the values of the variable slots are known, timing it if there is a listener.
+     *
+     * @param slots The values of the variables, in slot order
+     * @param start The time the evaluation started, from System.nanoTime, which is only used if there is a listener
+     * @return The value this expression evaluates to
+     * @throws EvaluationException If there is an error in evaluation
+     */
+    private ValueType evaluateSlots(List<ValueType> slots, long start) throws EvaluationException {
+        if (metricsListener == null) {
+            return expression.evaluate(new Evaluator<>(slots, sharedCount));
+        }
+        try {
+            ValueType value = expression.evaluate(new Evaluator<>(slots, sharedCount, metricsListener));
+            metricsListener.evaluated(System.nanoTime() - start);
+            return value;
+        } catch (EvaluationException | RuntimeException e) {
+            metricsListener.evaluationFailed(System.nanoTime() - start);
+            throw e;
+        }
+    }
+}
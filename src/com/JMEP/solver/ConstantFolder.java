@@ -0,0 +1,78 @@
+package com.JMEP.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A ConstantFolder rebuilds a parsed expression with every call to a pure function whose parameters are all values
+ * replaced by the value it results in, so that the call is only evaluated once.
+ *
+ * @param <ValueType> The Type of the number that the expression uses.
+ */
+class ConstantFolder<ValueType> implements ExpressionVisitor<ValueType, Evaluable<ValueType>> {
+    //the evaluator used to evaluate the calls being folded, which have no variables
+    private final Evaluator<ValueType> evaluator = new Evaluator<>(Collections.<ValueType>emptyList());
+
+    @Override
+    public Evaluable<ValueType> visitValue(ValueType value) {
+        return new EvaluableNum<>(value);
+    }
+
+    @Override
+    public Evaluable<ValueType> visitVariable(int index) {
+        return new EvaluableVariable<>(index);
+    }
+
+    @Override
+    public Evaluable<ValueType> visitFunction(Function<ValueType> function, List<Evaluable<ValueType>> parameters) {
+        List<Evaluable<ValueType>> folded = new ArrayList<>(parameters.size());
+        boolean constant = function.isPure();
+        for (Evaluable<ValueType> parameter : parameters) {
+            Evaluable<ValueType> foldedParameter = parameter.accept(this);
+            constant &= foldedParameter instanceof EvaluableNum;
+            folded.add(foldedParameter);
+        }
+        if (!constant && function.isAssociative()) {
+            folded = foldLeadingConstants(function, folded);
+        }
+        EvaluableFunction<ValueType> call = new EvaluableFunction<>(function, folded);
+        if (constant) {
+            try {
+                return new EvaluableNum<>(call.evaluate(evaluator));
+            } catch (EvaluationException | RuntimeException e) {
+                //the error is left to be thrown when the expression is evaluated
+            }
+        }
+        return call;
+    }
+
+    /**
+     * Evaluates the constants at the start of a call to an associative function, so that 1+2+x becomes sum(3,x) as
+     * it would if each operator were its own call.
+     *
+     * @param function   The associative function
+     * @param parameters The folded parameters of the call
+     * @return The parameters with the constants at the start replaced by their result
+     */
+    private List<Evaluable<ValueType>> foldLeadingConstants(Function<ValueType> function,
+                                                            List<Evaluable<ValueType>> parameters) {
+        int constants = 0;
+        while (constants < parameters.size() && parameters.get(constants) instanceof EvaluableNum) {
+            constants++;
+        }
+        if (constants < 2) {
+            return parameters;
+        }
+        List<Evaluable<ValueType>> result = new ArrayList<>(parameters.size() - constants + 1);
+        try {
+            result.add(new EvaluableNum<>(
+                    new EvaluableFunction<>(function, parameters.subList(0, constants)).evaluate(evaluator)));
+        } catch (EvaluationException | RuntimeException e) {
+            //the error is left to be thrown when the expression is evaluated
+            return parameters;
+        }
+        result.addAll(parameters.subList(constants, parameters.size()));
+        return result;
+    }
+}
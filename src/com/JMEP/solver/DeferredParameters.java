@@ -0,0 +1,43 @@
+package com.JMEP.solver;
+
+import java.util.List;
+
+/**
+ * The parameters of a call to a LazyFunction, which are evaluated by an evaluator the first time they are asked for.
+ *
+ * @param <ValueType> The Type of the number that the parameters evaluate to.
+ */
+class DeferredParameters<ValueType> implements LazyParameters<ValueType> {
+    //the evaluator to evaluate the parameters with
+    private final Evaluator<ValueType> evaluator;
+    //the parameters to evaluate
+    private final List<Evaluable<ValueType>> parameters;
+    //the values of the parameters that have been evaluated, or null for those that have not
+    private final Object[] values;
+
+    /**
+     * Creates DeferredParameters with the following:
+     *
+     * @param parameterEvaluator The evaluator to evaluate the parameters with
+     * @param evaluables         The parameters to evaluate
+     */
+    DeferredParameters(Evaluator<ValueType> parameterEvaluator, List<Evaluable<ValueType>> evaluables) {
+        evaluator = parameterEvaluator;
+        parameters = evaluables;
+        values = new Object[evaluables.size()];
+    }
+
+    @Override
+    public int size() {
+        return parameters.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType get(int index) throws EvaluationException {
+        if (values[index] == null) {
+            values[index] = parameters.get(index).evaluate(evaluator);
+        }
+        return (ValueType) values[index];
+    }
+}
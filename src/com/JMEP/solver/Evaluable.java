@@ -14,4 +14,22 @@ public abstract class Evaluable<ValueType> {
      * @throws EvaluationException If there is an error in the evaluation.
      */
     public abstract ValueType evaluate(Evaluator<ValueType> evaluator) throws EvaluationException;
+
+    /**
+     * Gives this evaluable to the visitor.
+     *
+     * @param visitor      The visitor to give this to.
+     * @param <ResultType> The Type of the result of visiting this.
+     * @return The result of visiting this.
+     */
+    public abstract <ResultType> ResultType accept(ExpressionVisitor<ValueType, ResultType> visitor);
+
+    /**
+     * Gives the number of levels of this evaluable, which is 1 for a number.
+     *
+     * @return The depth of this evaluable.
+     */
+    int getDepth() {
+        return 1;
+    }
 }
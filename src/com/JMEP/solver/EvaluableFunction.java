@@ -1,5 +1,6 @@
 package com.JMEP.solver;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -8,24 +9,41 @@ import java.util.List;
  * @param <ValueType> The Type of the number that will result from the evaluation.
  */
 class EvaluableFunction<ValueType> extends Evaluable<ValueType> {
-    //the name of the function to use
-    private final String name;
+    //the function to use, found when the expression was parsed
+    private final Function<ValueType> function;
     //the list of parameters to be placed into the function
     private final List<Evaluable<ValueType>> parameters;
+    //the number of levels of this function and its parameters
+    private final int depth;
 
     /**
      * Creates an EvaluableFunction based on the following:
      *
-     * @param functionName        The name of the function to use in evaluation
+     * @param functionToUse       The function to use in evaluation
      * @param evaluableParameters The parameters to place into the function
      */
-    public EvaluableFunction(String functionName, List<Evaluable<ValueType>> evaluableParameters) {
-        name = functionName;
+    public EvaluableFunction(Function<ValueType> functionToUse, List<Evaluable<ValueType>> evaluableParameters) {
+        function = functionToUse;
         parameters = evaluableParameters;
+        int deepest = 0;
+        for (Evaluable<ValueType> parameter : parameters) {
+            deepest = Math.max(deepest, parameter.getDepth());
+        }
+        depth = deepest + 1;
     }
 
     @Override
     public ValueType evaluate(Evaluator<ValueType> evaluator) throws EvaluationException {
-        return evaluator.evaluate(name, parameters);
+        return evaluator.evaluate(function, parameters);
     }
-}
\ No newline at end of file
+
+    @Override
+    public <ResultType> ResultType accept(ExpressionVisitor<ValueType, ResultType> visitor) {
+        return visitor.visitFunction(function, Collections.unmodifiableList(parameters));
+    }
+
+    @Override
+    int getDepth() {
+        return depth;
+    }
+}
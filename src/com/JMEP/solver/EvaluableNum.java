@@ -22,4 +22,9 @@ class EvaluableNum<ValueType> extends Evaluable<ValueType> {
     public ValueType evaluate(Evaluator<ValueType> evaluator) {
         return value;
     }
+
+    @Override
+    public <ResultType> ResultType accept(ExpressionVisitor<ValueType, ResultType> visitor) {
+        return visitor.visitValue(value);
+    }
 }
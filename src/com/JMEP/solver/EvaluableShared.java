@@ -0,0 +1,40 @@
+package com.JMEP.solver;
+
+/**
+ * An EvaluableShared is a subexpression that appears more than once in an expression. It is only evaluated once per
+ * evaluation, and every other use of it reuses that value.
+ *
+ * @param <ValueType> The Type of the number that will result from the evaluation.
+ */
+class EvaluableShared<ValueType> extends Evaluable<ValueType> {
+    //the position of this subexpression's value in the shared values kept by the evaluator
+    private final int slot;
+    //the subexpression that is shared
+    private final Evaluable<ValueType> subexpression;
+
+    /**
+     * Creates an EvaluableShared with the following:
+     *
+     * @param sharedSlot      The position of this subexpression's value in the shared values kept by the evaluator
+     * @param sharedEvaluable The subexpression that is shared
+     */
+    EvaluableShared(int sharedSlot, Evaluable<ValueType> sharedEvaluable) {
+        slot = sharedSlot;
+        subexpression = sharedEvaluable;
+    }
+
+    @Override
+    public ValueType evaluate(Evaluator<ValueType> evaluator) throws EvaluationException {
+        return evaluator.evaluateShared(slot, subexpression);
+    }
+
+    @Override
+    public <ResultType> ResultType accept(ExpressionVisitor<ValueType, ResultType> visitor) {
+        return visitor.visitShared(slot, subexpression);
+    }
+
+    @Override
+    int getDepth() {
+        return subexpression.getDepth();
+    }
+}
@@ -0,0 +1,30 @@
+package com.JMEP.solver;
+
+/**
+ * An EvaluableVariable is a named slot whose value is supplied each time an expression is evaluated.
+ *
+ * @param <ValueType> The Type of the number that will result from the evaluation.
+ */
+class EvaluableVariable<ValueType> extends Evaluable<ValueType> {
+    //the position of this variable's value in the values given to the evaluator
+    private final int index;
+
+    /**
+     * Creates an EvaluableVariable with the following:
+     *
+     * @param slot The position of this variable's value in the values given to the evaluator.
+     */
+    EvaluableVariable(int slot) {
+        index = slot;
+    }
+
+    @Override
+    public ValueType evaluate(Evaluator<ValueType> evaluator) throws EvaluationException {
+        return evaluator.getVariable(index);
+    }
+
+    @Override
+    public <ResultType> ResultType accept(ExpressionVisitor<ValueType, ResultType> visitor) {
+        return visitor.visitVariable(index);
+    }
+}
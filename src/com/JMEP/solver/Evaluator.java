@@ -1,51 +1,117 @@
 package com.JMEP.solver;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
- * An evaluator stores Functions and evaluates EvaluableFunctions.
+ * An evaluator holds the variable values for one evaluation and evaluates EvaluableFunctions.
  *
  * @param <ValueType> The Type of the number that will result from the evaluation.
  */
 class Evaluator<ValueType> {
-    //the functions this Evaluator can use
-    private final Map<String, Function<ValueType>> functions = new HashMap<>();
+    //the values of the variable slots, in slot order
+    private final List<ValueType> variables;
+    //the values of the shared subexpressions that have been evaluated, or null for those that have not
+    private final Object[] sharedValues;
+    //the listener to tell about function calls, or null if they are not timed
+    private final MetricsListener metricsListener;
 
     /**
-     * Adds the function into this Evaluator.
+     * Creates an Evaluator for an expression with no shared subexpressions with the following:
      *
-     * @param function The function to add.
+     * @param variableValues The values of the variable slots, in slot order
      */
-    public void addFunction(Function<ValueType> function) {
-        functions.put(function.getName(), function);
+    public Evaluator(List<ValueType> variableValues) {
+        this(variableValues, 0);
     }
 
     /**
-     * Evaluates the following function:
+     * Creates an Evaluator with the following:
      *
-     * @param functionName The name of the function.
-     * @param parameters   The parameters to place into the function.
+     * @param variableValues The values of the variable slots, in slot order
+     * @param sharedCount    The number of shared subexpressions in the expression
+     */
+    public Evaluator(List<ValueType> variableValues, int sharedCount) {
+        this(variableValues, sharedCount, null);
+    }
+
+    /**
+     * Creates an Evaluator that times each function call with the following:
+     *
+     * @param variableValues The values of the variable slots, in slot order
+     * @param sharedCount    The number of shared subexpressions in the expression
+     * @param listener       The listener to tell about function calls, or null if they are not timed
+     */
+    Evaluator(List<ValueType> variableValues, int sharedCount, MetricsListener listener) {
+        variables = variableValues;
+        sharedValues = new Object[sharedCount];
+        metricsListener = listener;
+    }
+
+    /**
+     * Gives the value of a variable slot.
+     *
+     * @param index The slot of the variable
+     * @return The value of the variable
+     * @throws EvaluationException If the variable has no value
+     */
+    public ValueType getVariable(int index) throws EvaluationException {
+        if (index >= variables.size() || variables.get(index) == null) {
+            throw new EvaluationException();
+        }
+        return variables.get(index);
+    }
+
+    /**
+     * Evaluates the following function. A LazyFunction is given its parameters unevaluated, and every other function
+     * is given all of them evaluated.
+     *
+     * @param function   The function.
+     * @param parameters The parameters to place into the function.
      * @return The number resulting from the function.
      * @throws EvaluationException If the function cannot be evaluated.
      */
-    public ValueType evaluate(String functionName, List<Evaluable<ValueType>> parameters) throws EvaluationException {
-        List<ValueType> parameterValues = new ArrayList<>();
+    public ValueType evaluate(Function<ValueType> function, List<Evaluable<ValueType>> parameters) throws EvaluationException {
+        if (function instanceof LazyFunction) {
+            DeferredParameters<ValueType> deferred = new DeferredParameters<>(this, parameters);
+            if (metricsListener == null) {
+                return ((LazyFunction<ValueType>) function).evaluate(deferred);
+            }
+            long start = System.nanoTime();
+            try {
+                return ((LazyFunction<ValueType>) function).evaluate(deferred);
+            } finally {
+                metricsListener.functionCalled(function.getName(), System.nanoTime() - start);
+            }
+        }
+        List<ValueType> parameterValues = new ArrayList<>(parameters.size());
         for (Evaluable<ValueType> evaluableParam : parameters) {
             parameterValues.add(evaluableParam.evaluate(this));
         }
-        //for parentheses that are alone (ex: (3) should evaluate as 3)
-        if (functionName.isEmpty()) {
-            return parameterValues.get(0);
+        if (metricsListener == null) {
+            return function.evaluate(parameterValues);
         }
-        Function<ValueType> func = functions.get(functionName);
-        //if we did not find a function
-        if (func == null) {
-            //we cannot evaluate this expression
-            throw new EvaluationException();
+        long start = System.nanoTime();
+        try {
+            return function.evaluate(parameterValues);
+        } finally {
+            metricsListener.functionCalled(function.getName(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gives the value of a shared subexpression, evaluating it only the first time.
+     *
+     * @param slot          The position of the subexpression among the shared subexpressions
+     * @param subexpression The subexpression
+     * @return The value of the subexpression
+     * @throws EvaluationException If the subexpression cannot be evaluated.
+     */
+    @SuppressWarnings("unchecked")
+    public ValueType evaluateShared(int slot, Evaluable<ValueType> subexpression) throws EvaluationException {
+        if (sharedValues[slot] == null) {
+            sharedValues[slot] = subexpression.evaluate(this);
         }
-        return func.evaluate(parameterValues);
+        return (ValueType) sharedValues[slot];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,412 @@
+package com.JMEP.solver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts compiled expressions to and from a compact binary form, so that they can be loaded without parsing them
+ * again. The header is big-endian, and every other number is a count, which is written in as few bytes as it needs:
+ * seven bits at a time from the lowest, with the high bit of each byte set when more bytes follow. Every string is
+ * its length in bytes as a count followed by its UTF-8 bytes:
+ * <pre>
+ *     int     magic, which is "JMEP" in ASCII
+ *     short   version
+ *     int     the length of everything after this
+ *     count   the number of variables, then the name of each variable in slot order
+ *     count   the number of functions, then the name of each function
+ *     count   the number of constants, then each constant as the solver writes it
+ *     count   the number of shared subexpressions
+ *     node    the expression
+ * </pre>
+ * A node is a byte giving its kind followed by its operands, which are counts: a constant is its index in the constants, a variable is
+ * its slot, a function is its index in the functions and its number of parameters followed by the parameters, and a
+ * shared subexpression is its slot followed by the subexpression the first time it appears and by nothing after that.
+ * <p>
+ * Expressions can be written one after another into a file, and read back one at a time from a memory-mapped buffer
+ * of the file. Functions are found again by name in the solver that reads the expression.
+ */
+final class ExpressionFormat {
+    //the first four bytes of every expression
+    static final int magic = 0x4A4D4550;
+    //the version of the format, which changes whenever the format does
+    static final short version = 1;
+    //the kinds of node
+    private static final byte constantNode = 0;
+    private static final byte variableNode = 1;
+    private static final byte functionNode = 2;
+    private static final byte sharedNode = 3;
+    private static final byte sharedReferenceNode = 4;
+
+    private ExpressionFormat() {
+    }
+
+    /**
+     * Converts an expression into bytes.
+     *
+     * @param expression  The expression to convert
+     * @param solver      The solver that writes the constants
+     * @param <ValueType> The Type of the values of the expression
+     * @return The bytes of the expression
+     */
+    static <ValueType> byte[] write(CompiledExpression<ValueType> expression, Solver<ValueType> solver) {
+        Writer<ValueType> writer = new Writer<>();
+        expression.accept(writer);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeStrings(expression.getVariableNames(), out);
+            writeStrings(new ArrayList<>(writer.functions.keySet()), out);
+            writeCount(writer.constants.size(), out);
+            for (ValueType constant : writer.constants.keySet()) {
+                solver.writeValue(constant, out);
+            }
+            writeCount(expression.getSharedCount(), out);
+            writer.nodes.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            //writing into an array never fails
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer result = ByteBuffer.allocate(10 + bytes.size());
+        result.putInt(magic).putShort(version).putInt(bytes.size()).put(bytes.toByteArray());
+        return result.array();
+    }
+
+    /**
+     * Reads an expression from the position of a buffer, which is moved to the end of the expression. The buffer is
+     * read as big-endian whatever its order is.
+     *
+     * @param in          The buffer to read from
+     * @param functions   A map from function names to the functions to use
+     * @param solver      The solver that reads the constants
+     * @param <ValueType> The Type of the values of the expression
+     * @return The expression
+     * @throws ParsingException If the bytes are not an expression of this version, or use a function that is not in
+     *                          the map
+     */
+    static <ValueType> CompiledExpression<ValueType> read(ByteBuffer in, Map<String, Function<ValueType>> functions,
+                                                         Solver<ValueType> solver) throws ParsingException {
+        ByteOrder order = in.order();
+        in.order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (in.getInt() != magic || in.getShort() != version) {
+                throw new ParsingException();
+            }
+            int length = in.getInt();
+            int end = in.position() + length;
+            if (length < 0 || end > in.limit()) {
+                throw new ParsingException();
+            }
+            List<String> variableNames = Arrays.asList(readStrings(in));
+            String[] functionNames = readStrings(in);
+            List<Function<ValueType>> boundFunctions = new ArrayList<>(functionNames.length);
+            for (String name : functionNames) {
+                Function<ValueType> function = functions.get(name);
+                if (function == null) {
+                    throw new ParsingException();
+                }
+                boundFunctions.add(function);
+            }
+            List<ValueType> constants = new ArrayList<>();
+            for (int count = readLength(in); constants.size() < count; ) {
+                constants.add(solver.readValue(in));
+            }
+            int sharedCount = readLength(in);
+            Reader<ValueType> reader = new Reader<>(in, variableNames.size(), boundFunctions, constants, sharedCount);
+            Evaluable<ValueType> root = reader.readNode(1);
+            if (in.position() != end) {
+                throw new ParsingException();
+            }
+            return new CompiledExpression<>(root, variableNames, sharedCount);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new ParsingException();
+        } finally {
+            in.order(order);
+        }
+    }
+
+    /**
+     * Writes a list of strings, starting with their number.
+     *
+     * @param strings The strings to write
+     * @param out     The output to write them into
+     * @throws IOException If they cannot be written
+     */
+    private static void writeStrings(List<String> strings, DataOutputStream out) throws IOException {
+        writeCount(strings.size(), out);
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeCount(bytes.length, out);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a list of strings written by writeStrings.
+     *
+     * @param in The buffer to read from
+     * @return The strings
+     * @throws ParsingException If the number of strings or the length of a string is not possible
+     */
+    private static String[] readStrings(ByteBuffer in) throws ParsingException {
+        String[] strings = new String[readLength(in)];
+        for (int index = 0; index < strings.length; index++) {
+            byte[] bytes = new byte[readLength(in)];
+            in.get(bytes);
+            strings[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * Writes a count in as few bytes as it needs.
+     *
+     * @param count The count, which is not negative
+     * @param out   The output to write it into
+     * @throws IOException If it cannot be written
+     */
+    private static void writeCount(int count, DataOutputStream out) throws IOException {
+        while ((count & ~0x7F) != 0) {
+            out.writeByte(count & 0x7F | 0x80);
+            count >>>= 7;
+        }
+        out.writeByte(count);
+    }
+
+    /**
+     * Reads a count written by writeCount.
+     *
+     * @param in The buffer to read from
+     * @return The count
+     * @throws ParsingException If the count is more than the largest int
+     */
+    private static int readCount(ByteBuffer in) throws ParsingException {
+        int count = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            byte next = in.get();
+            count |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return count;
+            }
+        }
+        //the last byte only has the top bits of an int left
+        byte last = in.get();
+        if ((last & 0xF8) != 0) {
+            throw new ParsingException();
+        }
+        return count | last << 28;
+    }
+
+    /**
+     * Reads a count of things that follow it, which cannot be more than the number of bytes left.
+     *
+     * @param in The buffer to read from
+     * @return The count
+     * @throws ParsingException If the count is not possible
+     */
+    private static int readLength(ByteBuffer in) throws ParsingException {
+        int count = readCount(in);
+        if (count > in.remaining()) {
+            throw new ParsingException();
+        }
+        return count;
+    }
+
+    /**
+     * Writes the nodes of an expression while collecting its functions and constants.
+     */
+    private static final class Writer<ValueType> implements ExpressionVisitor<ValueType, Void> {
+        //the functions found so far, by name, with their indices
+        private final Map<String, Integer> functions = new LinkedHashMap<>();
+        //the constants found so far, with their indices
+        private final Map<ValueType, Integer> constants = new LinkedHashMap<>();
+        //the shared subexpressions that have been written, by their slots
+        private final Map<Integer, Boolean> writtenShared = new HashMap<>();
+        //the bytes of the nodes
+        private final ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(nodes);
+
+        @Override
+        public Void visitValue(ValueType value) {
+            Integer index = constants.get(value);
+            if (index == null) {
+                index = constants.size();
+                constants.put(value, index);
+            }
+            writeNode(constantNode, index);
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(int index) {
+            writeNode(variableNode, index);
+            return null;
+        }
+
+        @Override
+        public Void visitFunction(Function<ValueType> function, List<Evaluable<ValueType>> parameters) {
+            Integer index = functions.get(function.getName());
+            if (index == null) {
+                index = functions.size();
+                functions.put(function.getName(), index);
+            }
+            writeNode(functionNode, index);
+            writeCount(parameters.size());
+            for (Evaluable<ValueType> parameter : parameters) {
+                parameter.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitShared(int slot, Evaluable<ValueType> subexpression) {
+            if (writtenShared.containsKey(slot)) {
+                writeNode(sharedReferenceNode, slot);
+            } else {
+                writtenShared.put(slot, true);
+                writeNode(sharedNode, slot);
+                subexpression.accept(this);
+            }
+            return null;
+        }
+
+        /**
+         * Writes the kind of a node and its first operand.
+         *
+         * @param kind    The kind of the node
+         * @param operand The first operand
+         */
+        private void writeNode(byte kind, int operand) {
+            try {
+                out.writeByte(kind);
+                ExpressionFormat.writeCount(operand, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes another operand of a node.
+         *
+         * @param operand The operand
+         */
+        private void writeCount(int operand) {
+            try {
+                ExpressionFormat.writeCount(operand, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the nodes of an expression.
+     */
+    private static final class Reader<ValueType> {
+        //the buffer to read from
+        private final ByteBuffer in;
+        //the number of variable slots
+        private final int variableCount;
+        //the functions, by their indices
+        private final List<Function<ValueType>> functions;
+        //the constants, by their indices
+        private final List<ValueType> constants;
+        //the shared subexpressions that have been read, by their slots
+        private final EvaluableShared<ValueType>[] shared;
+
+        /**
+         * Creates a Reader with the following:
+         *
+         * @param buffer       The buffer to read from
+         * @param variables    The number of variable slots
+         * @param functionList The functions, by their indices
+         * @param constantList The constants, by their indices
+         * @param sharedCount  The number of shared subexpressions
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Reader(ByteBuffer buffer, int variables, List<Function<ValueType>> functionList, List<ValueType> constantList,
+               int sharedCount) {
+            in = buffer;
+            variableCount = variables;
+            functions = functionList;
+            constants = constantList;
+            shared = new EvaluableShared[sharedCount];
+        }
+
+        /**
+         * Reads a node and the nodes below it.
+         *
+         * @param depth The level of the node, which is 1 for the whole expression
+         * @return The node
+         * @throws ParsingException If the node is not possible, or it has more levels than an expression can have
+         */
+        Evaluable<ValueType> readNode(int depth) throws ParsingException {
+            if (depth > Parser.maximumDepth) {
+                throw new ParsingException();
+            }
+            byte kind = in.get();
+            int operand = readCount(in);
+            switch (kind) {
+                case constantNode:
+                    checkIndex(operand, constants.size());
+                    return new EvaluableNum<>(constants.get(operand));
+                case variableNode:
+                    checkIndex(operand, variableCount);
+                    return new EvaluableVariable<>(operand);
+                case functionNode: {
+                    checkIndex(operand, functions.size());
+                    List<Evaluable<ValueType>> parameters = new ArrayList<>();
+                    for (int count = readLength(in); parameters.size() < count; ) {
+                        parameters.add(readNode(depth + 1));
+                    }
+                    EvaluableFunction<ValueType> function = new EvaluableFunction<>(functions.get(operand), parameters);
+                    //a shared subexpression used below where it was read can make a node deeper than its level
+                    if (depth - 1 + function.getDepth() > Parser.maximumDepth) {
+                        throw new ParsingException();
+                    }
+                    return function;
+                }
+                case sharedNode:
+                    checkIndex(operand, shared.length);
+                    if (shared[operand] != null) {
+                        throw new ParsingException();
+                    }
+                    shared[operand] = new EvaluableShared<>(operand, readNode(depth));
+                    return shared[operand];
+                case sharedReferenceNode:
+                    checkIndex(operand, shared.length);
+                    if (shared[operand] == null) {
+                        throw new ParsingException();
+                    }
+                    return shared[operand];
+                default:
+                    throw new ParsingException();
+            }
+        }
+
+        /**
+         * Checks that an index is in range.
+         *
+         * @param index The index
+         * @param size  The number of things it can be the index of
+         * @throws ParsingException If it is not in range
+         */
+        private static void checkIndex(int index, int size) throws ParsingException {
+            if (index < 0 || index >= size) {
+                throw new ParsingException();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.JMEP.solver;
+
+import java.util.List;
+
+/**
+ * An ExpressionVisitor walks a parsed expression, for example to convert it into another form. Each method is given
+ * one part of the expression, and the visitor decides whether and how to visit the parameters of functions.
+ *
+ * @param <ValueType>  The Type of the number that the expression uses.
+ * @param <ResultType> The Type of the result of visiting the expression.
+ */
+public interface ExpressionVisitor<ValueType, ResultType> {
+    /**
+     * Visits a value.
+     *
+     * @param value The value
+     * @return The result of visiting the value
+     */
+    ResultType visitValue(ValueType value);
+
+    /**
+     * Visits a variable.
+     *
+     * @param index The slot of the variable
+     * @return The result of visiting the variable
+     */
+    ResultType visitVariable(int index);
+
+    /**
+     * Visits a function and its parameters. The parameters can be visited by calling their accept method.
+     *
+     * @param function   The function
+     * @param parameters The parameters placed into the function
+     * @return The result of visiting the function
+     */
+    ResultType visitFunction(Function<ValueType> function, List<Evaluable<ValueType>> parameters);
+
+    /**
+     * Visits a subexpression that appears more than once in the expression and is only evaluated once per
+     * evaluation. By default, the subexpression is visited as if it were not shared.
+     *
+     * @param slot          The position of the subexpression among the shared subexpressions of the expression, where
+     *                      a shared subexpression only uses shared subexpressions with lower positions
+     * @param subexpression The subexpression
+     * @return The result of visiting the subexpression
+     */
+    default ResultType visitShared(int slot, Evaluable<ValueType> subexpression) {
+        return subexpression.accept(this);
+    }
+}
@@ -10,14 +10,46 @@ import java.util.List;
 public abstract class Function<ValueType> {
     //the name of the function
     private final String name;
+    //whether the function always gives the same result for the same parameters and has no side effects
+    private final boolean pure;
+    //whether a chain of calls to the function can be merged into a single call with all of their parameters
+    private final boolean associative;
 
     /**
-     * Creates a function with the following:
+     * Creates a function that is not pure with the following:
      *
      * @param functionName The name of the function.
      */
     public Function(String functionName) {
+        this(functionName, false);
+    }
+
+    /**
+     * Creates a function with the following:
+     *
+     * @param functionName The name of the function.
+     * @param isPure       Whether the function always gives the same result for the same parameters and has no side
+     *                     effects. Calls to pure functions whose parameters are all constants are evaluated once, when
+     *                     the expression is compiled.
+     */
+    public Function(String functionName, boolean isPure) {
+        this(functionName, isPure, false);
+    }
+
+    /**
+     * Creates a function with the following:
+     *
+     * @param functionName  The name of the function.
+     * @param isPure        Whether the function always gives the same result for the same parameters and has no side
+     *                      effects.
+     * @param isAssociative Whether f(f(a,b),c) and f(a,b,c) always give the same result, for any number of
+     *                      parameters. A chain of an operator for a pure associative function, like 1+2+3, is parsed
+     *                      into a single call, so it can be any length. Functions that are not pure are never merged.
+     */
+    public Function(String functionName, boolean isPure, boolean isAssociative) {
         name = functionName;
+        pure = isPure;
+        associative = isPure && isAssociative;
     }
 
     /**
@@ -29,6 +61,25 @@ public abstract class Function<ValueType> {
         return name;
     }
 
+    /**
+     * Checks whether the function always gives the same result for the same parameters and has no side effects.
+     *
+     * @return Whether the function is pure.
+     */
+    public boolean isPure() {
+        return pure;
+    }
+
+    /**
+     * Checks whether a chain of calls to the function can be merged into a single call with all of their parameters,
+     * which is only true for pure functions.
+     *
+     * @return Whether the function is associative.
+     */
+    public boolean isAssociative() {
+        return associative;
+    }
+
     /**
      * Evaluates the following:
      *
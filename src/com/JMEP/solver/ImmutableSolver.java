@@ -0,0 +1,129 @@
+package com.JMEP.solver;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An ImmutableSolver solves mathematical expressions with a fixed set of synonyms, operators and functions. Nothing
+ * about it changes after it is created, so one ImmutableSolver can be used by any number of threads at once. Instead
+ * of adding variables, their values are given each time an expression is solved.
+ *
+ * @param <ValueType> The Type of the number that will result from the evaluation.
+ */
+public final class ImmutableSolver<ValueType> {
+    //the parser to use in solving, which is never changed
+    private final Parser<ValueType> parser;
+    //the cache of parsed expressions, or null if parsed expressions are not cached
+    private final ParseCache<ValueType> parseCache;
+    //the listener to tell how long parsing and evaluation take, or null if they are not timed
+    private final MetricsListener metricsListener;
+
+    /**
+     * Creates an ImmutableSolver with the following:
+     *
+     * @param snapshot  The parser to use in solving, which must not be changed
+     * @param cacheSize The largest number of parsed expressions to cache, or 0 to not cache them
+     * @param listener  The listener to tell how long parsing and evaluation take, or null if they are not timed
+     */
+    ImmutableSolver(Parser<ValueType> snapshot, int cacheSize, MetricsListener listener) {
+        parser = snapshot;
+        parseCache = cacheSize > 0 ? new ParseCache<>(cacheSize) : null;
+        metricsListener = listener;
+    }
+
+    /**
+     * Solves a mathematical expression that has no variables
+     *
+     * @param problem The expression to solve
+     * @return A number representing the solution
+     * @throws EvaluationException If there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing, or the expression has variables
+     */
+    public ValueType solve(String problem) throws EvaluationException, ParsingException {
+        CompiledExpression<ValueType> parsedProblem = compile(problem);
+        if (!parsedProblem.getVariableNames().isEmpty()) {
+            throw new ParsingException();
+        }
+        return parsedProblem.evaluate(Collections.<ValueType>emptyList());
+    }
+
+    /**
+     * Solves a mathematical expression with the following variable values:
+     *
+     * @param problem        The expression to solve
+     * @param variableValues A map from variable names to their values
+     * @return A number representing the solution
+     * @throws EvaluationException If a variable has no value or there is an error in evaluation
+     * @throws ParsingException    If there is an error in parsing
+     */
+    public ValueType solve(String problem, Map<String, ValueType> variableValues)
+            throws EvaluationException, ParsingException {
+        return compile(problem).evaluate(variableValues);
+    }
+
+    /**
+     * Parses a mathematical expression once so that it can be evaluated many times. Anything in the expression that
+     * cannot be converted into a value becomes a variable that is given a value on each evaluation.
+     *
+     * @param problem The expression to compile
+     * @return The compiled expression
+     * @throws ParsingException If there is an error in parsing
+     */
+    public CompiledExpression<ValueType> compile(String problem) throws ParsingException {
+        CompiledExpression<ValueType> compiled = parseCache == null ? null : parseCache.get(problem, 0);
+        if (compiled == null) {
+            compiled = parser.compile(problem, metricsListener);
+            if (parseCache != null) {
+                parseCache.put(problem, 0, compiled);
+            }
+        }
+        return metricsListener == null ? compiled : compiled.withMetricsListener(metricsListener);
+    }
+
+    /**
+     * Converts a compiled expression into the compact binary form that deserialize reads.
+     *
+     * @param expression The expression to convert
+     * @return The bytes of the expression
+     */
+    public byte[] serialize(CompiledExpression<ValueType> expression) {
+        return parser.write(expression);
+    }
+
+    /**
+     * Reads an expression that serialize wrote, starting at the position of a buffer and moving the position to the
+     * end of the expression. Functions are found by name in this solver.
+     *
+     * @param buffer The buffer to read from
+     * @return The compiled expression
+     * @throws ParsingException If the bytes are not an expression of this version, or it uses a function that this
+     *                          solver does not have
+     */
+    public CompiledExpression<ValueType> deserialize(ByteBuffer buffer) throws ParsingException {
+        CompiledExpression<ValueType> expression = parser.read(buffer);
+        return metricsListener == null ? expression : expression.withMetricsListener(metricsListener);
+    }
+
+    /**
+     * Checks what variables must be given values in order to solve a mathematical expression
+     *
+     * @param problem The expression to check
+     * @return A Set of variables to give values
+     * @throws ParsingException If there is an error in parsing
+     */
+    public Set<String> getUndefinedVariables(String problem) throws ParsingException {
+        return new HashSet<>(compile(problem).getVariableNames());
+    }
+
+    /**
+     * Gives the counts kept by the parse cache
+     *
+     * @return The statistics of the parse cache, or null if parsed expressions are not cached
+     */
+    public ParseCacheStatistics getParseCacheStatistics() {
+        return parseCache == null ? null : parseCache.getStatistics();
+    }
+}
@@ -0,0 +1,302 @@
+package com.JMEP.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An IncrementalExpression keeps the value of every part of a compiled expression between evaluations. Each part knows
+ * which variables it depends on, so setting a variable only marks the parts that depend on it as out of date, and
+ * evaluating again only recomputes those parts, from the variable up to the whole expression. Parts that call a
+ * function that is not pure are recomputed on every evaluation, and a LazyFunction still only asks for the parameters
+ * it needs.
+ * <p>
+ * An IncrementalExpression is not safe to use from several threads at once.
+ *
+ * @param <ValueType> The Type of the number that will result from the evaluation.
+ */
+public final class IncrementalExpression<ValueType> {
+    //the names of the variable slots, in slot order
+    private final List<String> variableNames;
+    //the function of each part, or null for a value or a variable
+    private final Function<ValueType>[] functions;
+    //the parts placed into the function of each part
+    private final int[][] parameters;
+    //the part that is each variable slot
+    private final int[] variableParts;
+    //the parts that depend on each variable slot, including the part that is the variable
+    private final int[][] dependents;
+    //whether the value of each part can be kept, which is false for parts that call a function that is not pure
+    private final boolean[] cacheable;
+    //the last value of each part
+    private final Object[] values;
+    //whether the last value of each part is up to date
+    private final boolean[] upToDate;
+    //the part that is the whole expression
+    private final int root;
+
+    /**
+     * Creates an IncrementalExpression with no variable values and the following:
+     *
+     * @param expression The expression to evaluate
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    IncrementalExpression(CompiledExpression<ValueType> expression) {
+        variableNames = expression.getVariableNames();
+        Flattener flattener = new Flattener(variableNames.size());
+        root = expression.accept(flattener);
+        //every variable slot gets a part, even one that no longer appears in the expression
+        for (int slot = 0; slot < variableNames.size(); slot++) {
+            flattener.visitVariable(slot);
+        }
+        int partCount = flattener.functions.size();
+        functions = flattener.functions.toArray(new Function[0]);
+        parameters = flattener.parameters.toArray(new int[0][]);
+        variableParts = flattener.variableParts;
+        values = flattener.values.toArray();
+        upToDate = new boolean[partCount];
+        cacheable = new boolean[partCount];
+        int[] partSlots = new int[partCount];
+        Arrays.fill(partSlots, -1);
+        for (int slot = 0; slot < variableParts.length; slot++) {
+            partSlots[variableParts[slot]] = slot;
+        }
+        //the variables each part depends on, found from its parameters, which always come before it
+        BitSet[] variables = new BitSet[partCount];
+        List<List<Integer>> dependentLists = new ArrayList<>();
+        for (int slot = 0; slot < variableParts.length; slot++) {
+            dependentLists.add(new ArrayList<>());
+        }
+        for (int part = 0; part < partCount; part++) {
+            variables[part] = new BitSet();
+            if (functions[part] == null) {
+                if (partSlots[part] >= 0) {
+                    variables[part].set(partSlots[part]);
+                }
+                //a value is always up to date, and a variable is once it is given a value
+                upToDate[part] = partSlots[part] < 0;
+                cacheable[part] = true;
+            } else {
+                cacheable[part] = functions[part].isPure();
+                for (int parameter : parameters[part]) {
+                    variables[part].or(variables[parameter]);
+                    cacheable[part] &= cacheable[parameter];
+                }
+            }
+            for (int slot = variables[part].nextSetBit(0); slot >= 0; slot = variables[part].nextSetBit(slot + 1)) {
+                dependentLists.get(slot).add(part);
+            }
+        }
+        dependents = new int[variableParts.length][];
+        for (int slot = 0; slot < dependents.length; slot++) {
+            List<Integer> list = dependentLists.get(slot);
+            dependents[slot] = new int[list.size()];
+            for (int index = 0; index < dependents[slot].length; index++) {
+                dependents[slot][index] = list.get(index);
+            }
+        }
+    }
+
+    /**
+     * A getter for the names of the variables in this expression.
+     *
+     * @return The names of the variables, in slot order
+     */
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * Sets the value of a variable, marking the parts of the expression that depend on it as out of date if the value
+     * has changed. Variables that are not in this expression are ignored, so the same variable can be set on many
+     * expressions.
+     *
+     * @param variableName The name of the variable
+     * @param value        The value of the variable
+     * @return Whether this expression has the variable
+     */
+    public boolean set(String variableName, ValueType value) {
+        int slot = variableNames.indexOf(variableName);
+        if (slot == -1) {
+            return false;
+        }
+        set(slot, value);
+        return true;
+    }
+
+    /**
+     * Sets the value of a variable slot, marking the parts of the expression that depend on it as out of date if the
+     * value has changed.
+     *
+     * @param slot  The slot of the variable
+     * @param value The value of the variable
+     */
+    public void set(int slot, ValueType value) {
+        int part = variableParts[slot];
+        if (upToDate[part] && Objects.equals(values[part], value)) {
+            return;
+        }
+        for (int dependent : dependents[slot]) {
+            upToDate[dependent] = false;
+        }
+        values[part] = value;
+        upToDate[part] = value != null;
+    }
+
+    /**
+     * Evaluates this expression with the values that have been set, recomputing only the parts that are out of date.
+     *
+     * @return The value this expression evaluates to
+     * @throws EvaluationException If a variable has no value or there is an error in evaluation
+     */
+    public ValueType evaluate() throws EvaluationException {
+        return valueOf(root);
+    }
+
+    /**
+     * Gives the value of a part, recomputing it if it is out of date.
+     *
+     * @param part The part
+     * @return The value of the part
+     * @throws EvaluationException If a variable has no value or there is an error in evaluation
+     */
+    @SuppressWarnings("unchecked")
+    private ValueType valueOf(int part) throws EvaluationException {
+        if (upToDate[part]) {
+            return (ValueType) values[part];
+        }
+        Function<ValueType> function = functions[part];
+        if (function == null) {
+            //a variable that has not been given a value
+            throw new EvaluationException();
+        }
+        ValueType value;
+        if (function instanceof LazyFunction) {
+            value = ((LazyFunction<ValueType>) function).evaluate(new PartParameters(parameters[part]));
+        } else {
+            //a function may keep the list it is given, so each call gets a list of its own
+            List<ValueType> parameterValues = new ArrayList<>(parameters[part].length);
+            for (int parameter : parameters[part]) {
+                parameterValues.add(valueOf(parameter));
+            }
+            value = function.evaluate(parameterValues);
+        }
+        if (cacheable[part]) {
+            values[part] = value;
+            upToDate[part] = true;
+        }
+        return value;
+    }
+
+    /**
+     * The parameters of a LazyFunction, which are only found when they are asked for.
+     */
+    private final class PartParameters implements LazyParameters<ValueType> {
+        //the parts of the parameters
+        private final int[] parts;
+        //the values of the parameters that have been asked for, or null for those that have not
+        private final Object[] found;
+
+        /**
+         * Creates PartParameters with the following:
+         *
+         * @param parameterParts The parts of the parameters
+         */
+        PartParameters(int[] parameterParts) {
+            parts = parameterParts;
+            found = new Object[parameterParts.length];
+        }
+
+        @Override
+        public int size() {
+            return parts.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueType get(int index) throws EvaluationException {
+            if (found[index] == null) {
+                found[index] = valueOf(parts[index]);
+            }
+            return (ValueType) found[index];
+        }
+    }
+
+    /**
+     * Numbers the parts of an expression so that the parameters of a part always come before it. A shared
+     * subexpression and each variable slot are one part however many times they appear.
+     */
+    private final class Flattener implements ExpressionVisitor<ValueType, Integer> {
+        //the function of each part, or null for a value or a variable
+        private final List<Function<ValueType>> functions = new ArrayList<>();
+        //the parts placed into the function of each part
+        private final List<int[]> parameters = new ArrayList<>();
+        //the value of each part that is a value, or null
+        private final List<ValueType> values = new ArrayList<>();
+        //the part of each shared subexpression that has been numbered, by its slot
+        private final Map<Integer, Integer> sharedParts = new HashMap<>();
+        //the part of each variable slot, or -1 if it has not appeared yet
+        private final int[] variableParts;
+
+        /**
+         * Creates a Flattener with the following:
+         *
+         * @param variableCount The number of variable slots
+         */
+        Flattener(int variableCount) {
+            variableParts = new int[variableCount];
+            Arrays.fill(variableParts, -1);
+        }
+
+        /**
+         * Adds a part.
+         *
+         * @param function       The function of the part, or null for a value or a variable
+         * @param parameterParts The parts placed into the function
+         * @param value          The value of the part if it is a value, or null
+         * @return The part
+         */
+        private int addPart(Function<ValueType> function, int[] parameterParts, ValueType value) {
+            functions.add(function);
+            parameters.add(parameterParts);
+            values.add(value);
+            return functions.size() - 1;
+        }
+
+        @Override
+        public Integer visitValue(ValueType value) {
+            return addPart(null, new int[0], value);
+        }
+
+        @Override
+        public Integer visitVariable(int index) {
+            if (variableParts[index] == -1) {
+                variableParts[index] = addPart(null, new int[0], null);
+            }
+            return variableParts[index];
+        }
+
+        @Override
+        public Integer visitFunction(Function<ValueType> function, List<Evaluable<ValueType>> functionParameters) {
+            int[] parameterParts = new int[functionParameters.size()];
+            for (int index = 0; index < parameterParts.length; index++) {
+                parameterParts[index] = functionParameters.get(index).accept(this);
+            }
+            return addPart(function, parameterParts, null);
+        }
+
+        @Override
+        public Integer visitShared(int slot, Evaluable<ValueType> subexpression) {
+            Integer part = sharedParts.get(slot);
+            if (part == null) {
+                part = subexpression.accept(this);
+                sharedParts.put(slot, part);
+            }
+            return part;
+        }
+    }
+}
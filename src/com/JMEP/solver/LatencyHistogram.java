@@ -0,0 +1,94 @@
+package com.JMEP.solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LatencyHistogram counts durations in buckets whose bounds are powers of 2 nanoseconds, so that any duration is
+ * recorded in constant time and space while keeping percentiles within a factor of 2. Durations can be recorded from
+ * several threads at once.
+ */
+public final class LatencyHistogram {
+    //the number of buckets, one for each bit of a duration
+    private static final int bucketCount = 64;
+    //the number of durations in each bucket, where bucket i holds durations below 2^i nanoseconds
+    private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+    //the number of durations recorded
+    private final LongAdder count = new LongAdder();
+    //the sum of the durations recorded
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        buckets.incrementAndGet(Math.min(bucketCount - 1, 64 - Long.numberOfLeadingZeros(nanos)));
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * Gives the number of durations recorded.
+     *
+     * @return The number of durations
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gives the sum of the durations recorded.
+     *
+     * @return The total in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Gives the number of durations in each bucket. Bucket 0 holds durations of 0, and bucket i holds durations of at
+     * least 2^(i-1) and below 2^i nanoseconds.
+     *
+     * @return The count of each bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[bucketCount];
+        for (int index = 0; index < bucketCount; index++) {
+            counts[index] = buckets.get(index);
+        }
+        return counts;
+    }
+
+    /**
+     * Gives an upper bound of a percentile of the durations recorded, which is at most twice the true percentile.
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The upper bound in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucket : counts) {
+            total += bucket;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int index = 0; index < bucketCount; index++) {
+            seen += counts[index];
+            if (seen >= rank && seen > 0) {
+                return index == 0 ? 0 : index == bucketCount - 1 ? Long.MAX_VALUE : (1L << index) - 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        long recorded = getCount();
+        return "count=" + recorded + " mean=" + (recorded == 0 ? 0 : getTotalNanos() / recorded) + "ns p50<="
+                + getPercentile(50) + "ns p99<=" + getPercentile(99) + "ns max<=" + getPercentile(100) + "ns";
+    }
+}
@@ -0,0 +1,69 @@
+package com.JMEP.solver;
+
+import java.util.List;
+
+/**
+ * A LazyFunction decides which of its parameters to evaluate, instead of being given all of them already evaluated.
+ * This lets a function such as a short-circuit and, or a conditional, skip parameters that cannot change its result.
+ *
+ * @param <ValueType> The Type of the number that the function will take in and will result from the evaluation.
+ */
+public abstract class LazyFunction<ValueType> extends Function<ValueType> {
+
+    /**
+     * Creates a LazyFunction that is not pure with the following:
+     *
+     * @param functionName The name of the function.
+     */
+    public LazyFunction(String functionName) {
+        super(functionName);
+    }
+
+    /**
+     * Creates a LazyFunction with the following:
+     *
+     * @param functionName The name of the function.
+     * @param isPure       Whether the function always gives the same result for the same parameters and has no side
+     *                     effects.
+     */
+    public LazyFunction(String functionName, boolean isPure) {
+        super(functionName, isPure);
+    }
+
+    /**
+     * Creates a LazyFunction with the following:
+     *
+     * @param functionName  The name of the function.
+     * @param isPure        Whether the function always gives the same result for the same parameters and has no side
+     *                      effects.
+     * @param isAssociative Whether f(f(a,b),c) and f(a,b,c) always give the same result, for any number of
+     *                      parameters.
+     */
+    public LazyFunction(String functionName, boolean isPure, boolean isAssociative) {
+        super(functionName, isPure, isAssociative);
+    }
+
+    /**
+     * Evaluates the following, evaluating only the parameters that are asked for:
+     *
+     * @param parameters The parameters to use in the evaluation.
+     * @return The result of those parameters when placed in the function.
+     * @throws EvaluationException If there is an error in the evaluation
+     */
+    public abstract ValueType evaluate(LazyParameters<ValueType> parameters) throws EvaluationException;
+
+    @Override
+    public final ValueType evaluate(final List<ValueType> parameters) throws EvaluationException {
+        return evaluate(new LazyParameters<ValueType>() {
+            @Override
+            public int size() {
+                return parameters.size();
+            }
+
+            @Override
+            public ValueType get(int index) {
+                return parameters.get(index);
+            }
+        });
+    }
+}
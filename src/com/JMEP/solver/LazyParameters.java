@@ -0,0 +1,26 @@
+package com.JMEP.solver;
+
+/**
+ * The parameters of a LazyFunction. A parameter is only evaluated the first time it is asked for, so a function can
+ * skip the parameters it does not need.
+ *
+ * @param <ValueType> The Type of the number that the parameters evaluate to.
+ */
+public interface LazyParameters<ValueType> {
+
+    /**
+     * Gives the number of parameters.
+     *
+     * @return The number of parameters
+     */
+    int size();
+
+    /**
+     * Gives the value of a parameter, evaluating it if it has not been evaluated yet.
+     *
+     * @param index The position of the parameter
+     * @return The value of the parameter
+     * @throws EvaluationException If the parameter cannot be evaluated
+     */
+    ValueType get(int index) throws EvaluationException;
+}
@@ -0,0 +1,140 @@
+package com.JMEP.solver;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Lexer splits an expression into tokens in a single pass over its characters.
+ */
+class Lexer {
+    //the characters that are operators
+    private final BitSet operators = new BitSet();
+    //the characters that end a word
+    private final BitSet wordBreaks = new BitSet();
+    //a map from opening number wrappers to closing number wrappers
+    private final Map<Character, Character> numberWrappers;
+    //the names of the functions that can be called
+    private final List<String> functions;
+
+    /**
+     * Creates a Lexer with the following:
+     *
+     * @param operatorNames The characters that are operators
+     * @param wrappers      A map from opening number wrappers to closing number wrappers
+     * @param functionNames The names of the functions that can be called
+     */
+    Lexer(Collection<Character> operatorNames, Map<Character, Character> wrappers, Collection<String> functionNames) {
+        numberWrappers = new HashMap<>(wrappers);
+        functions = new ArrayList<>(functionNames);
+        for (char operator : operatorNames) {
+            operators.set(operator);
+            wordBreaks.set(operator);
+        }
+        for (Map.Entry<Character, Character> entry : numberWrappers.entrySet()) {
+            wordBreaks.set(entry.getKey());
+            wordBreaks.set(entry.getValue());
+        }
+        wordBreaks.set(Parser.openingParentheses);
+        wordBreaks.set(Parser.closedParentheses);
+        wordBreaks.set(Parser.comma);
+    }
+
+    /**
+     * Splits an expression into tokens.
+     *
+     * @param input The expression to split
+     * @return The tokens of the expression, in order
+     */
+    TokenStream tokenize(String input) {
+        List<Token> tokens = new ArrayList<>();
+        int index = 0;
+        while (index < input.length()) {
+            char test = input.charAt(index);
+            if (test == Parser.openingParentheses) {
+                tokens.add(new Token(TokenType.OpeningParenthesis, input, index, index + 1));
+                index++;
+            } else if (test == Parser.closedParentheses) {
+                tokens.add(new Token(TokenType.ClosingParenthesis, input, index, index + 1));
+                index++;
+            } else if (test == Parser.comma) {
+                tokens.add(new Token(TokenType.Comma, input, index, index + 1));
+                index++;
+            } else if (operators.get(test)) {
+                tokens.add(new Token(TokenType.Operator, input, index, index + 1));
+                index++;
+            } else if (numberWrappers.containsKey(test)) {
+                int end = getIndexAfterCloser(input, index);
+                tokens.add(new Token(TokenType.WrappedValue, input, index, end));
+                index = end;
+            } else {
+                index = addWord(input, index, tokens);
+            }
+        }
+        return new TokenStream(tokens);
+    }
+
+    /**
+     * Gives the index after the number wrapper that closes the one at the given index
+     *
+     * @param input        The expression to search
+     * @param openingIndex The index of the opening number wrapper
+     * @return The index after the closing number wrapper, or the length of the expression if it is never closed
+     */
+    private int getIndexAfterCloser(String input, int openingIndex) {
+        char opener = input.charAt(openingIndex);
+        char closer = numberWrappers.get(opener);
+        int unclosedOpeners = 1;
+        int index = openingIndex + 1;
+        while (index < input.length() && unclosedOpeners != 0) {
+            char test = input.charAt(index);
+            if (test == closer) {
+                unclosedOpeners--;
+            } else if (test == opener) {
+                unclosedOpeners++;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Adds the word starting at the given index. A word that is directly followed by parentheses and ends with the
+     * name of a function is split into the part before the function (if there is one) and the function's name.
+     *
+     * @param input  The expression to search
+     * @param start  The index of the first character of the word
+     * @param tokens The list to add the tokens of the word to
+     * @return The index after the word
+     */
+    private int addWord(String input, int start, List<Token> tokens) {
+        int end = start + 1;
+        while (end < input.length() && !wordBreaks.get(input.charAt(end))) {
+            end++;
+        }
+        if (end < input.length() && input.charAt(end) == Parser.openingParentheses) {
+            //get the longest function this could represent
+            int functionStart = end;
+            for (String potentialName : functions) {
+                int potentialStart = end - potentialName.length();
+                if (!potentialName.isEmpty() && potentialStart >= start && potentialStart < functionStart
+                        && input.regionMatches(potentialStart, potentialName, 0, potentialName.length())) {
+                    functionStart = potentialStart;
+                }
+            }
+            if (functionStart != end) {
+                if (functionStart != start) {
+                    //implicit multiplication is going on as in 3f(X)
+                    tokens.add(new Token(TokenType.Word, input, start, functionStart));
+                }
+                tokens.add(new Token(TokenType.FunctionName, input, functionStart, end));
+                return end;
+            }
+        }
+        tokens.add(new Token(TokenType.Word, input, start, end));
+        return end;
+    }
+}
@@ -0,0 +1,54 @@
+package com.JMEP.solver;
+
+/**
+ * A MetricsListener is told how long a Solver spends parsing and evaluating expressions, and how long each function
+ * call takes. It can be given to a Solver with setMetricsListener, and is not called at all when no listener is set.
+ * Every method does nothing unless it is overridden, so a listener only needs the ones it uses, for example to record
+ * them in a metrics registry. Calls may come from several threads at once.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called when an expression has been parsed into a compiled expression.
+     *
+     * @param cleaningNanos   The time spent replacing synonyms and variables in the input
+     * @param parsingNanos    The time spent splitting the input into tokens and parsing them
+     * @param optimizingNanos The time spent folding constants and sharing repeated subexpressions
+     */
+    default void parsed(long cleaningNanos, long parsingNanos, long optimizingNanos) {
+    }
+
+    /**
+     * Called when an expression could not be parsed.
+     *
+     * @param nanos The time spent before parsing failed
+     */
+    default void parseFailed(long nanos) {
+    }
+
+    /**
+     * Called when a compiled expression has been evaluated.
+     *
+     * @param nanos The time spent evaluating it
+     */
+    default void evaluated(long nanos) {
+    }
+
+    /**
+     * Called when a compiled expression could not be evaluated.
+     *
+     * @param nanos The time spent before evaluation failed
+     */
+    default void evaluationFailed(long nanos) {
+    }
+
+    /**
+     * Called after each call to a function while an expression is evaluated, whether or not the call succeeded.
+     *
+     * @param functionName The name of the function
+     * @param nanos        The time spent in the function, not counting its parameters unless it is a LazyFunction,
+     *                     which evaluates its own parameters
+     */
+    default void functionCalled(String functionName, long nanos) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.JMEP.solver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A ParseCache holds a bounded number of compiled expressions keyed by their text, removing the least recently used
+ * one when it is full. Each entry remembers the grammar version it was parsed with, so that entries parsed before
+ * the grammar changed are never used. It is safe to use from multiple threads.
+ *
+ * @param <ValueType> The Type of the number that will result from the evaluation.
+ */
+class ParseCache<ValueType> {
+    //the largest number of expressions the cache will hold
+    private final int maximumSize;
+    //a map from expression text to its entry, in order of least to most recent use
+    private final Map<String, CacheEntry<ValueType>> entries;
+    //the number of lookups that found an expression
+    private final LongAdder hits = new LongAdder();
+    //the number of lookups that did not find an expression
+    private final LongAdder misses = new LongAdder();
+    //the number of expressions removed to make room for others
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a ParseCache with the following:
+     *
+     * @param maximum The largest number of expressions the cache will hold
+     */
+    ParseCache(int maximum) {
+        maximumSize = maximum;
+        entries = new LinkedHashMap<String, CacheEntry<ValueType>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<ValueType>> eldest) {
+                if (size() > maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gives the compiled expression for the following:
+     *
+     * @param problem        The text of the expression
+     * @param grammarVersion The version of the grammar the expression must have been parsed with
+     * @return The compiled expression, or null if there is none for that version of the grammar
+     */
+    CompiledExpression<ValueType> get(String problem, int grammarVersion) {
+        CacheEntry<ValueType> entry;
+        synchronized (entries) {
+            entry = entries.get(problem);
+        }
+        if (entry == null || entry.grammarVersion != grammarVersion) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.expression;
+    }
+
+    /**
+     * Adds a compiled expression to the cache.
+     *
+     * @param problem        The text of the expression
+     * @param grammarVersion The version of the grammar the expression was parsed with
+     * @param expression     The compiled expression
+     */
+    void put(String problem, int grammarVersion, CompiledExpression<ValueType> expression) {
+        synchronized (entries) {
+            entries.put(problem, new CacheEntry<>(grammarVersion, expression));
+        }
+    }
+
+    /**
+     * Removes every expression from the cache.
+     */
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gives the counts kept by this cache.
+     *
+     * @return The statistics of this cache
+     */
+    ParseCacheStatistics getStatistics() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new ParseCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size, maximumSize);
+    }
+
+    /**
+     * A CacheEntry is a compiled expression and the grammar version it was parsed with.
+     *
+     * @param <ValueType> The Type of the number that will result from the evaluation.
+     */
+    private static class CacheEntry<ValueType> {
+        //the version of the grammar the expression was parsed with
+        private final int grammarVersion;
+        //the compiled expression
+        private final CompiledExpression<ValueType> expression;
+
+        /**
+         * Creates a CacheEntry with the following:
+         *
+         * @param version  The version of the grammar the expression was parsed with
+         * @param compiled The compiled expression
+         */
+        CacheEntry(int version, CompiledExpression<ValueType> compiled) {
+            grammarVersion = version;
+            expression = compiled;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.JMEP.solver;
+
+/**
+ * ParseCacheStatistics are the counts kept by a Solver's parse cache at a moment in time.
+ */
+public final class ParseCacheStatistics {
+    //the number of lookups that found a parsed expression
+    private final long hits;
+    //the number of lookups that had to parse the expression
+    private final long misses;
+    //the number of parsed expressions removed to make room for others
+    private final long evictions;
+    //the number of parsed expressions in the cache
+    private final int size;
+    //the largest number of parsed expressions the cache will hold
+    private final int maximumSize;
+
+    /**
+     * Creates ParseCacheStatistics with the following:
+     *
+     * @param hitCount      The number of lookups that found a parsed expression
+     * @param missCount     The number of lookups that had to parse the expression
+     * @param evictionCount The number of parsed expressions removed to make room for others
+     * @param currentSize   The number of parsed expressions in the cache
+     * @param maximum       The largest number of parsed expressions the cache will hold
+     */
+    ParseCacheStatistics(long hitCount, long missCount, long evictionCount, int currentSize, int maximum) {
+        hits = hitCount;
+        misses = missCount;
+        evictions = evictionCount;
+        size = currentSize;
+        maximumSize = maximum;
+    }
+
+    /**
+     * A getter for the number of lookups that found a parsed expression.
+     *
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * A getter for the number of lookups that had to parse the expression.
+     *
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * A getter for the number of parsed expressions removed to make room for others.
+     *
+     * @return The number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * A getter for the number of parsed expressions in the cache.
+     *
+     * @return The size of the cache
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * A getter for the largest number of parsed expressions the cache will hold.
+     *
+     * @return The maximum size of the cache
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gives the fraction of lookups that found a parsed expression.
+     *
+     * @return The hit rate, or 0 if there have been no lookups
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCacheStatistics{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size="
+                + size + ", maximumSize=" + maximumSize + "}";
+    }
+}
@@ -1,7 +1,7 @@
 package com.JMEP.solver;
 
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Parses a String input into a mathematical expression
@@ -13,18 +13,26 @@ class Parser<ValueType> {
     public static final char openingParentheses = '(';
     public static final char closedParentheses = ')';
     public static final char comma = ',';
+    //the precedence of implicit multiplication ie: 3(4), which binds more loosely than any operator
+    private static final int implicitMultiplicationPrecedence = Integer.MIN_VALUE + 1;
+    //the most levels an expression can have, so that compiling and evaluating it cannot run out of stack
+    static final int maximumDepth = 1000;
     //a list of the synonyms to be used in parsing ie replacing all instances of "sum" to "add"
     private final Map<String, String> synonyms = new HashMap<>();
     //a list of the variables to be used in parsing ie replacing all instances of "x" to "3"
     private final Map<String, String> variables = new HashMap<>();
-    //a list of the operators this parser needs to account for
-    private final List<Operator> operators = new ArrayList<>();
-    //a list of the function names in this parser
-    private final List<String> functions = new ArrayList<>();
+    //a map from operator characters to the operators this parser needs to account for
+    private final Map<Character, Operator> operators = new HashMap<>();
+    //a map from function names to the functions in this parser
+    private final Map<String, Function<ValueType>> functions = new HashMap<>();
     //the solver that is using this parser
     private final Solver<ValueType> solver;
     //the name of the function to be used in implicit multiplication ie: 3(4)
     private final String implicitMultFuncName;
+    //the precedence given to an operator added without one, so that it binds more loosely than those added before it
+    private int nextOperatorPrecedence = 0;
+    //the lexer for the current operators and functions, or null if it must be rebuilt
+    private Lexer lexer;
 
     /**
      * Creates a parser with the following:
@@ -37,6 +45,24 @@ class Parser<ValueType> {
         implicitMultFuncName = implicitMultiplicationFunctionName;
     }
 
+    /**
+     * Creates a parser with the same synonyms, variables, operators and functions as another parser. The new parser
+     * does not change when the other parser does, and is safe to use from several threads at once.
+     *
+     * @param other The parser to copy
+     */
+    Parser(Parser<ValueType> other) {
+        solver = other.solver;
+        implicitMultFuncName = other.implicitMultFuncName;
+        synonyms.putAll(other.synonyms);
+        variables.putAll(other.variables);
+        operators.putAll(other.operators);
+        functions.putAll(other.functions);
+        nextOperatorPrecedence = other.nextOperatorPrecedence;
+        //built now so that parsing never changes this parser
+        lexer = getLexer();
+    }
+
     /**
      * Adds a synonym to this parser
      *
@@ -68,10 +94,11 @@ class Parser<ValueType> {
     /**
      * Adds a function to this parser
      *
-     * @param functionName The name of the function
+     * @param function The function to add
      */
-    public void addFunction(String functionName) {
-        functions.add(functionName);
+    public void addFunction(Function<ValueType> function) {
+        functions.put(function.getName(), function);
+        lexer = null;
     }
 
     /**
@@ -82,379 +109,470 @@ class Parser<ValueType> {
      * @param operatorType The type of operator the operator is
      */
     public void addOperator(char opName, String funcName, OperatorType operatorType) {
-        operators.add(new Operator(opName, funcName, this, operatorType));
+        addOperator(opName, funcName, operatorType, nextOperatorPrecedence, Associativity.Left);
     }
 
     /**
-     * Gives a set of characters that can separate values
+     * Adds a operator to this parser
      *
-     * @return A set of such characters
+     * @param opName        The name of the operator
+     * @param funcName      The name of the function the operator represents
+     * @param operatorType  The type of operator the operator is
+     * @param precedence    How tightly the operator binds its parameters, higher binds more tightly
+     * @param associativity The way the operator groups with other operators of the same precedence
      */
-    public Set<Character> getSeperators() {
-        Set<Character> seperators = new HashSet<>();
-        seperators.addAll(getClosers());
-        seperators.addAll(getOpeners());
-        seperators.add(comma);
-        return seperators;
+    public void addOperator(char opName, String funcName, OperatorType operatorType, int precedence,
+                            Associativity associativity) {
+        operators.put(opName, new Operator(opName, funcName, operatorType, precedence, associativity));
+        nextOperatorPrecedence = Math.min(nextOperatorPrecedence, precedence - 1);
+        lexer = null;
     }
 
     /**
-     * Gives a set of operators that can be used in parsing
+     * Gives the function to be used in implicit multiplication
      *
-     * @return A set of such characters
+     * @return the name of the function
      */
-    public Set<Character> getOperators() {
-        return operators.stream().map(Operator::getOperatorName).collect(Collectors.toSet());
+    public String implicitMultiplicationFunctionName() {
+        return implicitMultFuncName;
     }
 
     /**
-     * Gives a map from openers to closer in number wrappers
+     * Gives the lexer for the current operators and functions
      *
-     * @return A map of such wrappers.
+     * @return The lexer
      */
-    private Map<Character, Character> getWrappers() {
-        Map<Character, Character> out = solver.getNumberWrappers();
-        out.put(openingParentheses, closedParentheses);
-        return out;
+    private Lexer getLexer() {
+        if (lexer == null) {
+            lexer = new Lexer(operators.keySet(), solver.getNumberWrappers(), functions.keySet());
+        }
+        return lexer;
     }
 
     /**
-     * Gives a set of closing wrappers that can be used in parsing
+     * Parses an input and optimizes it into a compiled expression, treating anything that cannot be converted into a
+     * value as a variable
      *
-     * @return A set of such characters
+     * @param input The input to be compiled
+     * @return The compiled expression
+     * @throws ParsingException If the input cannot be parsed
      */
-    public Set<Character> getClosers() {
-        Set<Character> out = new HashSet<>();
-        out.addAll(getWrappers().values());
-        return out;
+    public CompiledExpression<ValueType> compile(String input) throws ParsingException {
+        List<String> variableNames = new ArrayList<>();
+        Evaluable<ValueType> problem = parse(input, variableNames).accept(new ConstantFolder<>());
+        return SubexpressionEliminator.eliminate(problem, variableNames);
     }
 
     /**
-     * Gives a set of opening wrappers that can be used in parsing
+     * Parses an input and optimizes it into a compiled expression like compile, telling a listener how long each part
+     * took. The compiled expression does not tell the listener about its evaluations, so that it can be cached
+     * whatever the listener is, and withMetricsListener gives a copy that does.
      *
-     * @return A set of such characters
+     * @param input    The input to be compiled
+     * @param listener The listener to tell, or null to compile without timing
+     * @return The compiled expression
+     * @throws ParsingException If the input cannot be parsed
      */
-    public Set<Character> getOpeners() {
-        Set<Character> out = new HashSet<>();
-        out.addAll(getWrappers().keySet());
-        return out;
+    public CompiledExpression<ValueType> compile(String input, MetricsListener listener) throws ParsingException {
+        if (listener == null) {
+            return compile(input);
+        }
+        long start = System.nanoTime();
+        try {
+            String cleaned = clean(input);
+            long cleanedTime = System.nanoTime();
+            List<String> variableNames = new ArrayList<>();
+            Evaluable<ValueType> problem = parseCleaned(cleaned, variableNames);
+            long parsedTime = System.nanoTime();
+            CompiledExpression<ValueType> compiled = SubexpressionEliminator.eliminate(
+                    problem.accept(new ConstantFolder<>()), variableNames);
+            listener.parsed(cleanedTime - start, parsedTime - cleanedTime, System.nanoTime() - parsedTime);
+            return compiled;
+        } catch (ParsingException e) {
+            listener.parseFailed(System.nanoTime() - start);
+            throw e;
+        }
     }
 
     /**
-     * Gives the function to be used in implicit multiplication
+     * Reads an expression written by ExpressionFormat from the position of a buffer, finding its functions by name
+     * in this parser.
      *
-     * @return the name of the function
+     * @param buffer The buffer to read from, whose position is moved to the end of the expression
+     * @return The compiled expression
+     * @throws ParsingException If the bytes are not an expression, or it uses a function this parser does not have
      */
-    public String implicitMultiplicationFunctionName() {
-        return implicitMultFuncName;
+    CompiledExpression<ValueType> read(ByteBuffer buffer) throws ParsingException {
+        return ExpressionFormat.read(buffer, functions, solver);
     }
 
     /**
-     * Gives a set of indices corresponding to commas that are not inside of wrappers
+     * Converts an expression into the bytes ExpressionFormat reads.
      *
-     * @param problem      The string to search
-     * @param openWrapper  The character representing the opening wrapper
-     * @param closeWrapper The character representing the closing wrapper
-     * @return The set of indices
+     * @param expression The expression to convert
+     * @return The bytes of the expression
      */
-    private SortedSet<Integer> getCommasOutsideOfWrappers(String problem, char openWrapper, char closeWrapper) {
-        SortedSet<Integer> output = new TreeSet<>();
-        int index = 0;
-        int unclosedOpeners = 0;
-        while (index < problem.length()) {
-            char test = problem.charAt(index);
-            if (test == openWrapper) {
-                unclosedOpeners++;
-            }
-            if (test == closeWrapper) {
-                unclosedOpeners--;
-            }
-            if (test == comma && unclosedOpeners == 0) {
-                output.add(index);
-            }
-            index++;
-        }
-        return output;
+    byte[] write(CompiledExpression<ValueType> expression) {
+        return ExpressionFormat.write(expression, solver);
+    }
+
+    /**
+     * Parses an input into an Evaluable, treating anything that cannot be converted into a value as a variable
+     *
+     * @param input         The input to be parsed
+     * @param variableNames The list to add the names of new variables to, in slot order
+     * @return The Evaluable the input represents
+     * @throws ParsingException If the input cannot be parsed
+     */
+    public Evaluable<ValueType> parse(String input, List<String> variableNames) throws ParsingException {
+        return parseCleaned(clean(input), variableNames);
     }
 
     /**
-     * Gives a set of indices corresponding to commas that are not inside of wrappers
+     * Parses an input whose synonyms and variables have already been replaced
      *
-     * @param problem  The string to search
-     * @param wrappers A map of opening wrappers to closing wrappers
-     * @return The set of indices
+     * @param input         The cleaned input to be parsed
+     * @param variableNames The list to add the names of new variables to, in slot order
+     * @return The Evaluable the input represents
+     * @throws ParsingException If the input cannot be parsed
      */
-    private SortedSet<Integer> getCommasOutsideOfWrappers(String problem, Map<Character, Character> wrappers) {
-        //get the corresponding set for each wrapper pair
-        Set<SortedSet<Integer>> commas = wrappers.entrySet().stream().map(entry -> getCommasOutsideOfWrappers(problem, entry.getKey(), entry.getValue())).collect(Collectors.toSet());
-        SortedSet<Integer> output = null;
-        //perform intersection on the sets
-        for (SortedSet<Integer> set : commas) {
-            if (output == null) {
-                output = set;
-            }
-            output.retainAll(set);
+    private Evaluable<ValueType> parseCleaned(String input, List<String> variableNames) throws ParsingException {
+        TokenStream tokens = getLexer().tokenize(input);
+        Evaluable<ValueType> problem = parseTokens(tokens, variableNames, Integer.MIN_VALUE, 0);
+        //everything should have been used, a leftover token is a closer or comma with nothing to belong to
+        if (tokens.hasNext()) {
+            throw new ParsingException();
         }
-        if (output == null) {
-            output = new TreeSet<>();
+        return problem;
+    }
+
+    /**
+     * Cleans the input into a format in which it can be parsed, failing if a synonym or variable is not a valid
+     * pattern
+     *
+     * @param rawInput The input to be cleaned
+     * @return The input with all synonyms and variables replaced
+     * @throws ParsingException If the input cannot be cleaned
+     */
+    private String clean(String rawInput) throws ParsingException {
+        try {
+            return cleanInput(rawInput);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            //a synonym or variable that is not a valid pattern, or a replacement that refers to a missing group
+            throw new ParsingException(e);
         }
-        return output;
     }
 
     /**
-     * Gives a set of indices corresponding to commas that are not inside of wrappers
+     * Cleans the input into a format in which it can be parsed
      *
-     * @param problem The string to search
-     * @return The set of indices
+     * @param rawInput The input to be cleaned
+     * @return The input with all synonyms and variables replaced
      */
-    public SortedSet<Integer> getCommasOutsideOfWrappers(String problem) {
-        return getCommasOutsideOfWrappers(problem, getWrappers());
+    private String cleanInput(String rawInput) {
+        for (Map.Entry<String, String> entry : synonyms.entrySet()) {
+            rawInput = rawInput.replaceAll(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : variables.entrySet()) {
+            rawInput = rawInput.replaceAll(entry.getKey(), entry.getValue());
+        }
+        return rawInput;
     }
 
     /**
-     * Returns the index of the corresponding closer
+     * Parses tokens into an Evaluable by precedence climbing, using operators that bind at least as tightly as the
+     * given precedence
      *
-     * @param openingIndex  The index with the opener
-     * @param stringToCheck The String to examine
-     * @return The index of the closer
+     * @param tokens            The tokens to parse
+     * @param variableNames     The list to add the names of new variables to
+     * @param minimumPrecedence The precedence an operator must have to be used
+     * @param depth             The number of parameters and parentheses the tokens are inside
+     * @return An evaluable created by parsing the tokens
+     * @throws ParsingException If the tokens cannot be parsed, or are nested too deeply
      */
-    public int getIndexOfCloser(int openingIndex, String stringToCheck) {
-        int numberOfOpeners = 1;
-        int numberOfClosers = 0;
-        int currentIndex = openingIndex + 1;
-        char opener = stringToCheck.charAt(openingIndex);
-        char closer = getWrappers().get(opener);
-        //iterate until we reach the closer or end of string
-        while ((currentIndex < stringToCheck.length()) && (numberOfClosers != numberOfOpeners)) {
-            if (stringToCheck.charAt(currentIndex) == opener) {
-                numberOfOpeners++;
-            }
-            if (stringToCheck.charAt(currentIndex) == closer) {
-                numberOfClosers++;
-            }
-            currentIndex++;
+    private Evaluable<ValueType> parseTokens(TokenStream tokens, List<String> variableNames, int minimumPrecedence,
+                                             int depth) throws ParsingException {
+        if (depth > maximumDepth) {
+            throw new ParsingException();
         }
-        if (numberOfClosers != numberOfOpeners)
-            return currentIndex;
-        //the algorithm overcounted by one
-        return currentIndex - 1;
+        return parseOperators(parseOperand(tokens, variableNames, depth), tokens, variableNames, minimumPrecedence,
+                depth);
     }
 
     /**
-     * Returns the index of the corresponding opener
+     * Parses the operators after the first parameter, using operators that bind at least as tightly as the given
+     * precedence. A chain of operators for the same associative function, like 1+2+3, becomes a single call with all
+     * of their parameters, so it can be any length. This is kept out of parseTokens, so that the stack each set of
+     * parentheses uses is as small as possible.
      *
-     * @param closingIndex  The index with the closer
-     * @param stringToCheck The String to examine
-     * @return The index of the opener
+     * @param problem           The first parameter
+     * @param tokens            The tokens to parse, starting after the first parameter
+     * @param variableNames     The list to add the names of new variables to
+     * @param minimumPrecedence The precedence an operator must have to be used
+     * @param depth             The number of parameters and parentheses the tokens are inside
+     * @return An evaluable created by parsing the tokens
+     * @throws ParsingException If the tokens cannot be parsed, or are nested too deeply
      */
-    public int getIndexOfOpener(int closingIndex, String stringToCheck) {
-        int numberOfOpeners = 0;
-        int numberOfClosers = 1;
-        int currentIndex = closingIndex - 1;
-        char closer = stringToCheck.charAt(closingIndex);
-        char opener = ' ';
-        //find the corresponding opening char
-        for (Map.Entry<Character, Character> entry : getWrappers().entrySet()) {
-            if (entry.getValue() == closer) {
-                opener = entry.getKey();
+    private Evaluable<ValueType> parseOperators(Evaluable<ValueType> problem, TokenStream tokens,
+                                                List<String> variableNames, int minimumPrecedence, int depth)
+            throws ParsingException {
+        //the parameters of the chain of an associative function that has been read so far, or null if there is none
+        Function<ValueType> chainFunction = null;
+        List<Evaluable<ValueType>> chain = null;
+        while (tokens.hasNext()) {
+            Token token = tokens.peek();
+            if (token.getType() == TokenType.Comma || token.getType() == TokenType.ClosingParenthesis) {
+                break;
             }
-        }
-        //iterate until we reach the opener or beginning of string
-        while ((currentIndex > 0) && (numberOfClosers != numberOfOpeners)) {
-            if (stringToCheck.charAt(currentIndex) == opener) {
-                numberOfOpeners++;
+            Operator op = token.getType() == TokenType.Operator ? operators.get(token.getCharacter()) : null;
+            Function<ValueType> function;
+            Evaluable<ValueType> after;
+            if (op == null || op.getType() == OperatorType.ParameterAfterOperator) {
+                //something directly follows a parameter, so implicit multiplication is going on as in 3(4)
+                if (implicitMultiplicationPrecedence < minimumPrecedence) {
+                    break;
+                }
+                if (implicitMultFuncName.isEmpty()) {
+                    throw new ParsingException();
+                }
+                function = findFunction(implicitMultFuncName);
+                after = parseTokens(tokens, variableNames, implicitMultiplicationPrecedence + 1, depth + 1);
+            } else {
+                if (op.getPrecedence() < minimumPrecedence) {
+                    break;
+                }
+                tokens.next();
+                if (op.getType() == OperatorType.ParameterBeforeOperator) {
+                    problem = toFunction(op.getFunctionName(), endChain(problem, chainFunction, chain));
+                    chain = null;
+                    continue;
+                }
+                function = findFunction(op.getFunctionName());
+                after = parseTokens(tokens, variableNames, op.getParameterPrecedence(), depth + 1);
+            }
+            if (chain != null && function == chainFunction) {
+                chain.add(after);
+                continue;
             }
-            if (stringToCheck.charAt(currentIndex) == closer) {
-                numberOfClosers++;
+            problem = endChain(problem, chainFunction, chain);
+            if (function.isAssociative()) {
+                chainFunction = function;
+                chain = new ArrayList<>();
+                chain.add(problem);
+                chain.add(after);
+            } else {
+                chain = null;
+                problem = toFunction(function, problem, after);
             }
-            currentIndex--;
         }
-        if (numberOfClosers != numberOfOpeners)
-            return currentIndex;
-        //the algorithm undercounted by one
-        return currentIndex + 1;
+        return endChain(problem, chainFunction, chain);
     }
 
     /**
-     * Splits the String into sections based on parentheses
+     * Gives the Evaluable of what has been parsed so far, merging the chain of an associative function if there is
+     * one into a single call.
      *
-     * @param unsplit The String to split
-     * @return A list of sections
+     * @param problem       What has been parsed so far if there is no chain
+     * @param chainFunction The function of the chain
+     * @param chain         The parameters of the chain, or null if there is no chain
+     * @return The Evaluable of what has been parsed so far
+     * @throws ParsingException If the call has too many levels
      */
-    public List<String> splitParenthesesSections(String unsplit) {
-        List<String> split = new ArrayList<>();
-        //iterate until we hit the end of the string
-        for (int looper = 0; looper < unsplit.length(); looper++) {
-            char test = unsplit.charAt(looper);
-            if (getOpeners().contains(test)) {
-                int closingIndex = getIndexOfCloser(looper, unsplit);
-                if (closingIndex != unsplit.length()) {
-                    split.add(unsplit.substring(0, closingIndex + 1));
-                    unsplit = unsplit.substring(closingIndex + 1);
-                    //reset the count
-                    looper = -1;
-                } else {
-                    //we have a closer at the end
-                    split.add(unsplit.substring(0, closingIndex));
-                    unsplit = "";
-                }
-            }
+    private Evaluable<ValueType> endChain(Evaluable<ValueType> problem, Function<ValueType> chainFunction,
+                                          List<Evaluable<ValueType>> chain) throws ParsingException {
+        return chain == null ? problem : toFunction(chainFunction, chain);
+    }
+
+    /**
+     * Parses the next parameter of an operator or function into an Evaluable. A missing parameter is the value
+     * represented by an empty String, so that -X represents difference("",X)
+     *
+     * @param tokens        The tokens to parse
+     * @param variableNames The list to add the names of new variables to
+     * @param depth         The number of parameters and parentheses the parameter is inside
+     * @return An evaluable created by parsing the parameter
+     * @throws ParsingException If the tokens cannot be parsed, or are nested too deeply
+     */
+    private Evaluable<ValueType> parseOperand(TokenStream tokens, List<String> variableNames, int depth)
+            throws ParsingException {
+        Token token = tokens.peek();
+        if (token == null) {
+            return toEvaluable("", variableNames);
         }
-        //if we have no parentheses, there is only one section
-        if (!unsplit.isEmpty()) {
-            split.add(unsplit);
+        switch (token.getType()) {
+            case Word:
+            case WrappedValue:
+                tokens.next();
+                return toEvaluable(token.getText(), variableNames);
+            case FunctionName:
+                tokens.next();
+                return parseCall(functions.get(token.getText()), tokens, variableNames, depth);
+            case OpeningParenthesis:
+                tokens.next();
+                Evaluable<ValueType> inside = parseTokens(tokens, variableNames, Integer.MIN_VALUE, depth + 1);
+                closeParentheses(tokens);
+                return inside;
+            case Operator:
+                tokens.next();
+                return parseOperator(operators.get(token.getCharacter()), tokens, variableNames, depth);
+            default:
+                //a comma or closer directly follows, so the parameter is empty
+                return toEvaluable("", variableNames);
         }
-        return split;
     }
 
     /**
-     * Check if the String could represents a function with or without something before it like 3f(x) or f(x)
+     * Parses the parameters of a function after its name into a call. These are kept out of parseOperand, so that
+     * the stack each set of parentheses uses is as small as possible.
      *
-     * @param functArea The String to check
-     * @return True if the string represents a function and false otherwise
+     * @param function      The function
+     * @param tokens        The tokens to parse, starting with the opening parentheses of the parameters
+     * @param variableNames The list to add the names of new variables to
+     * @param depth         The number of parameters and parentheses the call is inside
+     * @return An evaluable of the call
+     * @throws ParsingException If the tokens cannot be parsed, or are nested too deeply
      */
-    public boolean hasFunction(String functArea) {
-        for (String potentialName : functions) {
-            if (functArea.endsWith(potentialName)) {
-                return true;
-            }
+    private Evaluable<ValueType> parseCall(Function<ValueType> function, TokenStream tokens,
+                                           List<String> variableNames, int depth) throws ParsingException {
+        //pass over the opening parentheses
+        tokens.next();
+        List<Evaluable<ValueType>> evaluableParameters = new ArrayList<>();
+        evaluableParameters.add(parseTokens(tokens, variableNames, Integer.MIN_VALUE, depth + 1));
+        while (tokens.hasNext() && tokens.peek().getType() == TokenType.Comma) {
+            tokens.next();
+            evaluableParameters.add(parseTokens(tokens, variableNames, Integer.MIN_VALUE, depth + 1));
         }
-        return false;
+        closeParentheses(tokens);
+        return toFunction(function, evaluableParameters);
     }
 
     /**
-     * Parses an input into an Evaluable
+     * Parses an operator with nothing before it, and the parameter after it if it takes one.
      *
-     * @param input The input to be parsed
-     * @return The Evaluable the input represents
-     * @throws ParsingException If the input cannot be parsed
+     * @param op            The operator
+     * @param tokens        The tokens to parse, starting after the operator
+     * @param variableNames The list to add the names of new variables to
+     * @param depth         The number of parameters and parentheses the operator is inside
+     * @return An evaluable of the operator
+     * @throws ParsingException If the tokens cannot be parsed, or are nested too deeply
      */
-    public Evaluable<ValueType> parse(String input) throws ParsingException {
-        ProtoFunction cleanedInput = cleanInput(input);
-        return parseCleanedInput(cleanedInput);
+    private Evaluable<ValueType> parseOperator(Operator op, TokenStream tokens, List<String> variableNames, int depth)
+            throws ParsingException {
+        switch (op.getType()) {
+            case ParameterAfterOperator:
+                return toFunction(op.getFunctionName(),
+                        parseTokens(tokens, variableNames, op.getParameterPrecedence(), depth + 1));
+            case ParametersBeforeAndAfterOperator:
+                Evaluable<ValueType> before = toEvaluable("", variableNames);
+                return toFunction(findFunction(op.getFunctionName()), before,
+                        parseTokens(tokens, variableNames, op.getParameterPrecedence(), depth + 1));
+            default:
+                return toFunction(op.getFunctionName(), toEvaluable("", variableNames));
+        }
     }
 
     /**
-     * Cleans the input into a format in which it can be parsed
+     * Reads the closer of a set of parentheses. Parentheses that are still open at the end of the input are closed
+     * there.
      *
-     * @param rawInput The input to be cleaned
-     * @return a ProtoFunction of the input
-     * @throws ParsingException If the input cannot be parsed
+     * @param tokens The tokens to read from
+     * @throws ParsingException If the next token is not a closer
      */
-    private ProtoFunction cleanInput(String rawInput) throws ParsingException {
-        try {
-            rawInput = openingParentheses + rawInput + closedParentheses;
-            for (Map.Entry<String, String> entry : synonyms.entrySet()) {
-                rawInput = rawInput.replaceAll(entry.getKey(), entry.getValue());
-            }
-            for (Map.Entry<String, String> entry : variables.entrySet()) {
-                rawInput = rawInput.replaceAll(entry.getKey(), entry.getValue());
-            }
-            for (Operator op : operators) {
-                rawInput = op.evaluate(rawInput);
-            }
-            return new ProtoFunction(rawInput, this);
-        } catch (Exception e) {
+    private void closeParentheses(TokenStream tokens) throws ParsingException {
+        Token closer = tokens.next();
+        if (closer != null && closer.getType() != TokenType.ClosingParenthesis) {
             throw new ParsingException();
         }
     }
 
     /**
-     * Parses a ProtoFunction into an evaluable
+     * Creates an Evaluable that places a single parameter into a function
      *
-     * @param problem The ProtoFunction the input represents
-     * @return An evaluable created by parsing the ProtoFunction
-     * @throws ParsingException If the input cannot be parsed
+     * @param functionName The name of the function
+     * @param parameter    The parameter to place into the function
+     * @return The Evaluable of the function
+     * @throws ParsingException If there is no function with that name
      */
-    private Evaluable<ValueType> parseCleanedInput(ProtoFunction problem) throws ParsingException {
-        if (problem.isSimple()) {
-            return new EvaluableNum<>(solver.toValue(problem.getData()));
-        }
-        String functName;
-        List<Evaluable<ValueType>> evaluableParameters = new ArrayList<>();
-        String potFunctName = problem.getData();
-        String functionPart = "";
-        //get the longest function this could represent
-        for (String potentialName : functions) {
-            if (potFunctName.endsWith(potentialName)) {
-                functionPart = potentialName;
-            }
-        }
-        //get the part of the potential function that isn't in the function
-        String rest = potFunctName.substring(0, potFunctName.lastIndexOf(functionPart));
-        if (functionPart.isEmpty()) {
-            rest = potFunctName;
-        }
-        if (!rest.isEmpty()) {
-            //implicit multiplication is going on as in 3f(X)
-            functName = implicitMultiplicationFunctionName();
-            evaluableParameters.add(new EvaluableNum<>(solver.toValue(rest)));
-            problem.updateData(functionPart);
-            evaluableParameters.add(parseCleanedInput(problem));
-        } else {
-            //this is just a function that can be converted as is
-            functName = functionPart;
-            for (ProtoFunction param : problem.getParams()) {
-                evaluableParameters.add(parseCleanedInput(param));
-            }
-        }
-        return new EvaluableFunction<>(functName, evaluableParameters);
+    private Evaluable<ValueType> toFunction(String functionName, Evaluable<ValueType> parameter)
+            throws ParsingException {
+        List<Evaluable<ValueType>> parameters = new ArrayList<>(1);
+        parameters.add(parameter);
+        return toFunction(findFunction(functionName), parameters);
     }
 
     /**
-     * Checks what variables must be defined in order to solve a mathematical expression
+     * Creates an Evaluable that places two parameters into a function
      *
-     * @param problem The expression to check
-     * @return A List of variables to define
+     * @param function The function
+     * @param first    The first parameter to place into the function
+     * @param second   The second parameter to place into the function
+     * @return The Evaluable of the function
+     * @throws ParsingException If the function has too many levels
      */
-    public Set<String> getUndefinedVariables(String problem) throws ParsingException {
-        ProtoFunction cleanedInput = cleanInput(problem);
-        return getUndefinedVariables(cleanedInput);
+    private Evaluable<ValueType> toFunction(Function<ValueType> function, Evaluable<ValueType> first,
+                                            Evaluable<ValueType> second) throws ParsingException {
+        List<Evaluable<ValueType>> parameters = new ArrayList<>(2);
+        parameters.add(first);
+        parameters.add(second);
+        return toFunction(function, parameters);
     }
 
     /**
-     * Checks what variables must be defined in order to parse a ProtoFunction
+     * Finds the function with a name
      *
-     * @param problem The expression to check
-     * @return A List of variables to define
+     * @param functionName The name of the function
+     * @return The function
+     * @throws ParsingException If there is no function with that name
      */
-    private Set<String> getUndefinedVariables(ProtoFunction problem) throws ParsingException {
-        if (problem.isSimple()) {
-            Set<String> out = new HashSet<>();
-            try {
-                new EvaluableNum<>(solver.toValue(problem.getData()));
-            } catch (Exception e) {
-                out.add(problem.getData());
-            }
-            return out;
-        }
-        Set<String> variablesToAdd = new HashSet<>();
-        String potFunctName = problem.getData();
-        String functionPart = "";
-        //get the longest function this could represent
-        for (String potentialName : functions) {
-            if (potFunctName.endsWith(potentialName)) {
-                functionPart = potentialName;
-            }
+    private Function<ValueType> findFunction(String functionName) throws ParsingException {
+        Function<ValueType> function = functions.get(functionName);
+        if (function == null) {
+            throw new ParsingException();
         }
-        //get the part of the potential function that isn't in the function
-        String rest = potFunctName.substring(0, potFunctName.lastIndexOf(functionPart));
-        if (functionPart.isEmpty()) {
-            rest = potFunctName;
+        return function;
+    }
+
+    /**
+     * Creates an Evaluable that places the given parameters into a function, failing if it has more levels than an
+     * expression can have. A chain of an operator whose function is not associative, like 1-2-3, is one level deeper
+     * for every operator without being nested.
+     *
+     * @param function   The function
+     * @param parameters The parameters to place into the function
+     * @return The Evaluable of the function
+     * @throws ParsingException If the function has too many levels
+     */
+    private Evaluable<ValueType> toFunction(Function<ValueType> function, List<Evaluable<ValueType>> parameters)
+            throws ParsingException {
+        Evaluable<ValueType> evaluable = new EvaluableFunction<>(function, parameters);
+        if (evaluable.getDepth() > maximumDepth) {
+            throw new ParsingException();
         }
-        if (!rest.isEmpty()) {
-            try {
-                new EvaluableNum<>(solver.toValue(rest));
-            } catch (ParsingException e) {
-                variablesToAdd.add(rest);
-            }
-            problem.updateData(functionPart);
-            variablesToAdd.addAll(getUndefinedVariables(problem));
-        } else {
-            for (ProtoFunction param : problem.getParams()) {
-                variablesToAdd.addAll(getUndefinedVariables(param));
+        return evaluable;
+    }
+
+    /**
+     * Converts a String into a value, or into a variable if it cannot be converted
+     *
+     * @param data          The String to convert
+     * @param variableNames The list to add the name of a new variable to
+     * @return An evaluable representing the String
+     * @throws ParsingException If the String is empty and cannot be converted
+     */
+    private Evaluable<ValueType> toEvaluable(String data, List<String> variableNames) throws ParsingException {
+        try {
+            return new EvaluableNum<>(solver.toValue(data));
+        } catch (ParsingException e) {
+            //an empty parameter is never a variable
+            if (data.isEmpty()) {
+                throw e;
             }
         }
-        return variablesToAdd;
+        int slot = variableNames.indexOf(data);
+        if (slot == -1) {
+            slot = variableNames.size();
+            variableNames.add(data);
+        }
+        return new EvaluableVariable<>(slot);
     }
-}
\ No newline at end of file
+}
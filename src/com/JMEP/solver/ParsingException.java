@@ -4,4 +4,19 @@ package com.JMEP.solver;
  * An ParsingException is an Exception indicating that some error occurred in the parsing process of the Solver.
  */
 public class ParsingException extends Exception {
+
+    /**
+     * Creates a ParsingException with no cause
+     */
+    public ParsingException() {
+    }
+
+    /**
+     * Creates a ParsingException with the following:
+     *
+     * @param cause The failure that stopped parsing
+     */
+    public ParsingException(Throwable cause) {
+        super(cause);
+    }
 }
@@ -1,7 +1,14 @@
 package com.JMEP.solver;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Solves a mathematical expression in String form
@@ -9,10 +16,14 @@ import java.util.Set;
  * @param <ValueType> The Type of the Solver that the function will take in and will result from the evaluation.
  */
 public abstract class Solver<ValueType> {
-    //the evaluator to use in solving
-    private final Evaluator<ValueType> evaluator;
     //the parser to use in solving
     private final Parser<ValueType> parser;
+    //the version of the grammar, which changes whenever something that affects parsing is added
+    private final AtomicInteger grammarVersion = new AtomicInteger();
+    //the cache of parsed expressions, or null if parsed expressions are not cached
+    private volatile ParseCache<ValueType> parseCache;
+    //the listener to tell how long parsing and evaluation take, or null if they are not timed
+    private volatile MetricsListener metricsListener;
 
     /**
      * Constructs a Solver with no operators, no synonyms, and the following function:
@@ -20,7 +31,6 @@ public abstract class Solver<ValueType> {
      * @param implicitMultiplicationFunction The function name to be used in implicit multiplication ie: 3(4)
      */
     protected Solver(Function<ValueType> implicitMultiplicationFunction) {
-        evaluator = new Evaluator<>();
         parser = new Parser<>(this, implicitMultiplicationFunction.getName());
         addFunction(implicitMultiplicationFunction);
     }
@@ -30,7 +40,6 @@ public abstract class Solver<ValueType> {
      *
      */
     protected Solver() {
-        evaluator = new Evaluator<>();
         parser = new Parser<>(this, "");
     }
 
@@ -42,6 +51,7 @@ public abstract class Solver<ValueType> {
      */
     public void addSynonym(String synonym, String result) {
         parser.addSynonym(synonym, result);
+        grammarVersion.incrementAndGet();
     }
 
     /**
@@ -52,6 +62,7 @@ public abstract class Solver<ValueType> {
      */
     public void addVariable(String synonym, String result) {
         parser.addVariable(synonym, result);
+        grammarVersion.incrementAndGet();
     }
 
     /**
@@ -59,11 +70,13 @@ public abstract class Solver<ValueType> {
      */
     public void clearVariables() {
         parser.clearVariables();
+        grammarVersion.incrementAndGet();
     }
 
     /**
      * /**
-     * Adds a operator to this parser
+     * Adds a operator to this parser. The operator binds more loosely than every operator added before it and groups
+     * from the left.
      *
      * @param opName   The name of the operator
      * @param funcName The name of the function the operator represents
@@ -71,16 +84,92 @@ public abstract class Solver<ValueType> {
      */
     public void addOperator(char opName, String funcName, OperatorType type) {
         parser.addOperator(opName, funcName, type);
+        grammarVersion.incrementAndGet();
     }
 
     /**
-     * Adds a function to the solver
+     * Adds a operator to this parser. Every operator binds more tightly than implicit multiplication ie: 3(4)
+     *
+     * @param opName        The name of the operator
+     * @param funcName      The name of the function the operator represents
+     * @param type          The type of operator the operator is
+     * @param precedence    How tightly the operator binds its parameters, higher binds more tightly
+     * @param associativity The way the operator groups with other operators of the same precedence
+     */
+    public void addOperator(char opName, String funcName, OperatorType type, int precedence, Associativity associativity) {
+        parser.addOperator(opName, funcName, type, precedence, associativity);
+        grammarVersion.incrementAndGet();
+    }
+
+    /**
+     * Adds a function to the solver. Expressions that were already compiled keep using the function they were
+     * compiled with.
      *
      * @param func The function to add
      */
     public void addFunction(Function<ValueType> func) {
-        evaluator.addFunction(func);
-        parser.addFunction(func.getName());
+        parser.addFunction(func);
+        grammarVersion.incrementAndGet();
+    }
+
+    /**
+     * Starts caching parsed expressions so that solving or compiling the same expression again does not parse it
+     * again. When the cache is full, the least recently used expression is removed. Adding a function, operator,
+     * synonym or variable makes every cached expression out of date.
+     *
+     * @param maximumSize The largest number of parsed expressions to keep
+     * @throws IllegalArgumentException If the size is not positive
+     */
+    public void enableParseCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        parseCache = new ParseCache<>(maximumSize);
+    }
+
+    /**
+     * Stops caching parsed expressions and removes those that were cached
+     */
+    public void disableParseCache() {
+        ParseCache<ValueType> cache = parseCache;
+        parseCache = null;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gives the counts kept by the parse cache, which can be used to choose its size
+     *
+     * @return The statistics of the parse cache, or null if parsed expressions are not cached
+     */
+    public ParseCacheStatistics getParseCacheStatistics() {
+        ParseCache<ValueType> cache = parseCache;
+        return cache == null ? null : cache.getStatistics();
+    }
+
+    /**
+     * Sets the listener to tell how long parsing, evaluation and each function call take, and when they fail.
+     * Expressions compiled after this tell the listener about their evaluations, including those taken from the parse
+     * cache, which is kept. Nothing is timed when there is no listener.
+     * <p>
+     * Function calls are only timed when a CompiledExpression is evaluated. The primitive paths of the DoubleSolver
+     * report no time for each function: solve and solveDouble only time the whole evaluation, and expressions from
+     * compileDouble, compileDoubleWithMethodHandles and compileDoubleToInstructions are not timed.
+     *
+     * @param listener The listener to tell, or null to stop timing
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        metricsListener = listener;
+    }
+
+    /**
+     * A getter for the listener told how long parsing and evaluation take.
+     *
+     * @return The listener, or null if nothing is timed
+     */
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
     }
 
     /**
@@ -92,8 +181,65 @@ public abstract class Solver<ValueType> {
      * @throws ParsingException    If there is an error in parsing
      */
     public ValueType solve(String problem) throws EvaluationException, ParsingException {
-        Evaluable<ValueType> parsedProblem = parser.parse(problem);
-        return parsedProblem.evaluate(evaluator);
+        CompiledExpression<ValueType> parsedProblem = compile(problem);
+        //anything that could not be converted into a value must be defined before solving
+        if (!parsedProblem.getVariableNames().isEmpty()) {
+            throw new ParsingException();
+        }
+        return parsedProblem.evaluate(Collections.<ValueType>emptyList());
+    }
+
+    /**
+     * Parses a mathematical expression once so that it can be evaluated many times. Anything in the expression that
+     * cannot be converted into a value becomes a variable that is given a value on each evaluation.
+     * Calls to pure functions whose parameters are all constants are evaluated here, once, instead of on every
+     * evaluation, and calls to pure functions that appear more than once are only evaluated once per evaluation.
+     *
+     * @param problem The expression to compile
+     * @return The compiled expression
+     * @throws ParsingException If there is an error in parsing
+     */
+    public CompiledExpression<ValueType> compile(String problem) throws ParsingException {
+        ParseCache<ValueType> cache = parseCache;
+        int version = grammarVersion.get();
+        MetricsListener listener = metricsListener;
+        //cached expressions do not tell a listener, so the listener is attached on the way out
+        CompiledExpression<ValueType> compiled = cache == null ? null : cache.get(problem, version);
+        if (compiled == null) {
+            compiled = parser.compile(problem, listener);
+            if (cache != null) {
+                cache.put(problem, version, compiled);
+            }
+        }
+        return listener == null ? compiled : compiled.withMetricsListener(listener);
+    }
+
+    /**
+     * Converts a compiled expression into a compact binary form that deserialize reads back without parsing it again.
+     * The bytes start with a magic number and a version, and hold the names of the variables and functions, the
+     * constants, and the tree of the expression. Several expressions can be written one after another into a file.
+     *
+     * @param expression The expression to convert
+     * @return The bytes of the expression
+     */
+    public byte[] serialize(CompiledExpression<ValueType> expression) {
+        return parser.write(expression);
+    }
+
+    /**
+     * Reads an expression that serialize wrote, starting at the position of a buffer and moving the position to the
+     * end of the expression, so that a memory-mapped file of many expressions can be read one expression at a time.
+     * Functions are found by name in this solver, so they must have been added before the expression is read.
+     *
+     * @param buffer The buffer to read from
+     * @return The compiled expression
+     * @throws ParsingException If the bytes are not an expression of this version, or it uses a function that this
+     *                          solver does not have
+     */
+    public CompiledExpression<ValueType> deserialize(ByteBuffer buffer) throws ParsingException {
+        CompiledExpression<ValueType> expression = parser.read(buffer);
+        MetricsListener listener = metricsListener;
+        return listener == null ? expression : expression.withMetricsListener(listener);
     }
 
     /**
@@ -103,10 +249,24 @@ public abstract class Solver<ValueType> {
      * @return A Set of variables to define
      */
     public Set<String> getUndefinedVariables(String problem) throws ParsingException {
-        return parser.getUndefinedVariables(problem);
+        return new HashSet<>(compile(problem).getVariableNames());
     }
 
 
+    /**
+     * Gives an immutable copy of this solver, with the synonyms, variables, operators and functions it has now. The
+     * copy can be shared by any number of threads, and variables are given values on each call instead of being
+     * added to it. If parsed expressions are cached, the copy has its own cache of the same size. The copy tells the
+     * same metrics listener, which must then be safe to call from several threads.
+     *
+     * @return The immutable copy
+     */
+    public ImmutableSolver<ValueType> toImmutable() {
+        ParseCache<ValueType> cache = parseCache;
+        int cacheSize = cache == null ? 0 : cache.getStatistics().getMaximumSize();
+        return new ImmutableSolver<>(new Parser<>(parser), cacheSize, metricsListener);
+    }
+
     /**
      * Returns a value from a String representation. Note most implementations will want "" to return some sort of 0 in
      * order to make -X represent subtract(0,X). Likewise, the subtract function should be able to evaluate that to the opposite
@@ -118,6 +278,38 @@ public abstract class Solver<ValueType> {
      */
     public abstract ValueType toValue(String value) throws ParsingException;
 
+    /**
+     * Writes a value for serialize. By default, the value is written as the UTF-8 bytes of String.valueOf, after their
+     * length, so solvers whose values do not convert back with toValue must override this and readValue.
+     *
+     * @param value The value to write
+     * @param out   The output to write it into
+     * @throws IOException If it cannot be written
+     */
+    protected void writeValue(ValueType value, DataOutput out) throws IOException {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a value that writeValue wrote, moving the position of the buffer to the end of the value. The buffer is
+     * big-endian.
+     *
+     * @param in The buffer to read from
+     * @return The value
+     * @throws ParsingException If the bytes are not a value
+     */
+    protected ValueType readValue(ByteBuffer in) throws ParsingException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new ParsingException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return toValue(new String(bytes, StandardCharsets.UTF_8));
+    }
+
     /**
      * Returns the wrappers around a value. For example, in a vector space, < and > can be wrappers
      *
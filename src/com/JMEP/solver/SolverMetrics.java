@@ -0,0 +1,149 @@
+package com.JMEP.solver;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A MetricsListener that keeps a LatencyHistogram for each part of parsing, for evaluation and for each function,
+ * and for the time spent before parsing or evaluation failed. The histograms can be read at any time while
+ * expressions are being solved.
+ */
+public class SolverMetrics implements MetricsListener {
+    //the times spent in each part of parsing
+    private final LatencyHistogram cleaning = new LatencyHistogram();
+    private final LatencyHistogram parsing = new LatencyHistogram();
+    private final LatencyHistogram optimizing = new LatencyHistogram();
+    //the times spent evaluating compiled expressions
+    private final LatencyHistogram evaluation = new LatencyHistogram();
+    //the times spent before parsing failed
+    private final LatencyHistogram parseFailures = new LatencyHistogram();
+    //the times spent before evaluation failed
+    private final LatencyHistogram evaluationFailures = new LatencyHistogram();
+    //the times spent in each function, by function name
+    private final Map<String, LatencyHistogram> functions = new ConcurrentHashMap<>();
+
+    @Override
+    public void parsed(long cleaningNanos, long parsingNanos, long optimizingNanos) {
+        cleaning.record(cleaningNanos);
+        parsing.record(parsingNanos);
+        optimizing.record(optimizingNanos);
+    }
+
+    @Override
+    public void parseFailed(long nanos) {
+        parseFailures.record(nanos);
+    }
+
+    @Override
+    public void evaluated(long nanos) {
+        evaluation.record(nanos);
+    }
+
+    @Override
+    public void evaluationFailed(long nanos) {
+        evaluationFailures.record(nanos);
+    }
+
+    @Override
+    public void functionCalled(String functionName, long nanos) {
+        functions.computeIfAbsent(functionName, name -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * A getter for the times spent replacing synonyms and variables in inputs.
+     *
+     * @return The histogram of the times
+     */
+    public LatencyHistogram getCleaningHistogram() {
+        return cleaning;
+    }
+
+    /**
+     * A getter for the times spent splitting inputs into tokens and parsing them.
+     *
+     * @return The histogram of the times
+     */
+    public LatencyHistogram getParsingHistogram() {
+        return parsing;
+    }
+
+    /**
+     * A getter for the times spent folding constants and sharing repeated subexpressions.
+     *
+     * @return The histogram of the times
+     */
+    public LatencyHistogram getOptimizingHistogram() {
+        return optimizing;
+    }
+
+    /**
+     * A getter for the times spent evaluating compiled expressions.
+     *
+     * @return The histogram of the times
+     */
+    public LatencyHistogram getEvaluationHistogram() {
+        return evaluation;
+    }
+
+    /**
+     * A getter for the times spent before parsing failed.
+     *
+     * @return The histogram of the times
+     */
+    public LatencyHistogram getParseFailureHistogram() {
+        return parseFailures;
+    }
+
+    /**
+     * A getter for the times spent before evaluation failed.
+     *
+     * @return The histogram of the times
+     */
+    public LatencyHistogram getEvaluationFailureHistogram() {
+        return evaluationFailures;
+    }
+
+    /**
+     * Gives the number of expressions that could not be parsed.
+     *
+     * @return The number of parse failures
+     */
+    public long getParseFailures() {
+        return parseFailures.getCount();
+    }
+
+    /**
+     * Gives the number of evaluations that failed.
+     *
+     * @return The number of evaluation failures
+     */
+    public long getEvaluationFailures() {
+        return evaluationFailures.getCount();
+    }
+
+    /**
+     * Gives the times spent in each function that has been called. The count of a histogram is the number of calls.
+     *
+     * @return A map from function names to the histograms of their times, sorted by name
+     */
+    public Map<String, LatencyHistogram> getFunctionHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(functions));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append("cleaning: ").append(cleaning).append('\n');
+        out.append("parsing: ").append(parsing).append('\n');
+        out.append("optimizing: ").append(optimizing).append('\n');
+        out.append("parse failures: ").append(parseFailures).append('\n');
+        out.append("evaluation: ").append(evaluation).append('\n');
+        out.append("evaluation failures: ").append(evaluationFailures).append('\n');
+        for (Map.Entry<String, LatencyHistogram> function : getFunctionHistograms().entrySet()) {
+            out.append("function ").append(function.getKey()).append(": ").append(function.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.JMEP.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SubexpressionEliminator finds the subexpressions of an expression that are the same as each other and rebuilds
+ * the expression so that they are one shared subexpression, which is only evaluated once per evaluation. Only calls
+ * to pure functions are shared, since other functions may give a different result each time they are called.
+ *
+ * @param <ValueType> The Type of the number that the expression uses.
+ */
+class SubexpressionEliminator<ValueType> implements ExpressionVisitor<ValueType, Integer> {
+    //marks the keys of values and variables, so that they are never the same as the key of a function call
+    private static final Object valueKey = new Object();
+    private static final Object variableKey = new Object();
+    //the ids of the subexpressions found so far, by their structure
+    private final Map<List<Object>, Integer> ids = new HashMap<>();
+    //the subexpressions found so far, by id, where a subexpression's parameters always have lower ids than it
+    private final List<Subexpression<ValueType>> subexpressions = new ArrayList<>();
+
+    /**
+     * Shares every repeated call to a pure function in the following expression:
+     *
+     * @param expression    The expression
+     * @param variableNames The names of the variable slots of the expression, in slot order
+     * @param <ValueType>   The Type of the number that the expression uses.
+     * @return The compiled expression
+     */
+    static <ValueType> CompiledExpression<ValueType> eliminate(Evaluable<ValueType> expression,
+                                                               List<String> variableNames) {
+        SubexpressionEliminator<ValueType> eliminator = new SubexpressionEliminator<>();
+        int root = expression.accept(eliminator);
+        eliminator.subexpressions.get(root).uses++;
+        return eliminator.build(root, variableNames);
+    }
+
+    @Override
+    public Integer visitValue(ValueType value) {
+        return find(Arrays.asList(valueKey, value), new Subexpression<>(new EvaluableNum<>(value)));
+    }
+
+    @Override
+    public Integer visitVariable(int index) {
+        return find(Arrays.asList(variableKey, index), new Subexpression<>(new EvaluableVariable<>(index)));
+    }
+
+    @Override
+    public Integer visitFunction(Function<ValueType> function, List<Evaluable<ValueType>> parameters) {
+        int[] parameterIds = new int[parameters.size()];
+        List<Object> key = new ArrayList<>(parameterIds.length + 1);
+        key.add(function);
+        for (int index = 0; index < parameterIds.length; index++) {
+            parameterIds[index] = parameters.get(index).accept(this);
+            key.add(parameterIds[index]);
+        }
+        Subexpression<ValueType> call = new Subexpression<>(function, parameterIds);
+        if (!function.isPure()) {
+            return add(call);
+        }
+        return find(key, call);
+    }
+
+    @Override
+    public Integer visitShared(int slot, Evaluable<ValueType> subexpression) {
+        return subexpression.accept(this);
+    }
+
+    /**
+     * Gives the id of the subexpression with the following structure, adding it if it has not been found before:
+     *
+     * @param key           The structure of the subexpression
+     * @param subexpression The subexpression
+     * @return The id of the subexpression
+     */
+    private int find(List<Object> key, Subexpression<ValueType> subexpression) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = add(subexpression);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Adds a subexpression that has not been found before.
+     *
+     * @param subexpression The subexpression
+     * @return The id of the subexpression
+     */
+    private int add(Subexpression<ValueType> subexpression) {
+        if (subexpression.parameterIds != null) {
+            for (int parameterId : subexpression.parameterIds) {
+                subexpressions.get(parameterId).uses++;
+            }
+        }
+        subexpressions.add(subexpression);
+        return subexpressions.size() - 1;
+    }
+
+    /**
+     * Builds the expression from the subexpressions that were found.
+     *
+     * @param root          The id of the whole expression
+     * @param variableNames The names of the variable slots of the expression, in slot order
+     * @return The compiled expression
+     */
+    private CompiledExpression<ValueType> build(int root, List<String> variableNames) {
+        List<Evaluable<ValueType>> built = new ArrayList<>(subexpressions.size());
+        int sharedCount = 0;
+        for (Subexpression<ValueType> subexpression : subexpressions) {
+            if (subexpression.parameterIds == null) {
+                built.add(subexpression.evaluable);
+                continue;
+            }
+            List<Evaluable<ValueType>> parameters = new ArrayList<>(subexpression.parameterIds.length);
+            for (int parameterId : subexpression.parameterIds) {
+                parameters.add(built.get(parameterId));
+            }
+            Evaluable<ValueType> call = new EvaluableFunction<>(subexpression.function, parameters);
+            if (subexpression.uses > 1) {
+                call = new EvaluableShared<>(sharedCount++, call);
+            }
+            built.add(call);
+        }
+        return new CompiledExpression<>(built.get(root), variableNames, sharedCount);
+    }
+
+    /**
+     * A subexpression that has been found, which is either a value or variable, or a call to a function.
+     *
+     * @param <ValueType> The Type of the number that the subexpression uses.
+     */
+    private static final class Subexpression<ValueType> {
+        //the value or variable, or null for a function call
+        final Evaluable<ValueType> evaluable;
+        //the function to call, or null for a value or variable
+        final Function<ValueType> function;
+        //the ids of the parameters of the function call, or null for a value or variable
+        final int[] parameterIds;
+        //the number of other subexpressions that use this one
+        int uses = 0;
+
+        /**
+         * Creates a Subexpression that is a value or variable.
+         *
+         * @param valueOrVariable The value or variable
+         */
+        Subexpression(Evaluable<ValueType> valueOrVariable) {
+            evaluable = valueOrVariable;
+            function = null;
+            parameterIds = null;
+        }
+
+        /**
+         * Creates a Subexpression that is a function call with the following:
+         *
+         * @param functionToCall The function to call
+         * @param parameters     The ids of the parameters of the function call
+         */
+        Subexpression(Function<ValueType> functionToCall, int[] parameters) {
+            evaluable = null;
+            function = functionToCall;
+            parameterIds = parameters;
+        }
+    }
+}
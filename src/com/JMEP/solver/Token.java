@@ -0,0 +1,75 @@
+package com.JMEP.solver;
+
+/**
+ * A Token is a section of an expression that the Lexer has identified, along with where that section is.
+ */
+class Token {
+    //the type of this token
+    private final TokenType type;
+    //the expression this token is a section of
+    private final String source;
+    //the index of the first character of this token
+    private final int start;
+    //the index after the last character of this token
+    private final int end;
+
+    /**
+     * Creates a Token with the following:
+     *
+     * @param tokenType  The type of the token
+     * @param expression The expression the token is a section of
+     * @param startIndex The index of the first character of the token
+     * @param endIndex   The index after the last character of the token
+     */
+    Token(TokenType tokenType, String expression, int startIndex, int endIndex) {
+        type = tokenType;
+        source = expression;
+        start = startIndex;
+        end = endIndex;
+    }
+
+    /**
+     * A getter for the type of the token.
+     *
+     * @return The type of the token
+     */
+    TokenType getType() {
+        return type;
+    }
+
+    /**
+     * A getter for the index of the first character of the token.
+     *
+     * @return The starting index
+     */
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * A getter for the index after the last character of the token.
+     *
+     * @return The ending index
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gives the first character of the token, which is the whole token for operators, parentheses and commas.
+     *
+     * @return The first character
+     */
+    char getCharacter() {
+        return source.charAt(start);
+    }
+
+    /**
+     * Gives the section of the expression this token represents.
+     *
+     * @return The text of the token
+     */
+    String getText() {
+        return source.substring(start, end);
+    }
+}
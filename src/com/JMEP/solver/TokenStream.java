@@ -0,0 +1,53 @@
+package com.JMEP.solver;
+
+import java.util.List;
+
+/**
+ * A TokenStream is a list of tokens that is read from start to end.
+ */
+class TokenStream {
+    //the tokens in this stream
+    private final List<Token> tokens;
+    //the index of the next token to read
+    private int position = 0;
+
+    /**
+     * Creates a TokenStream with the following:
+     *
+     * @param tokenList The tokens in the stream
+     */
+    TokenStream(List<Token> tokenList) {
+        tokens = tokenList;
+    }
+
+    /**
+     * Checks if there are tokens left to read.
+     *
+     * @return True if there are tokens left, false otherwise
+     */
+    boolean hasNext() {
+        return position < tokens.size();
+    }
+
+    /**
+     * Gives the next token without reading it.
+     *
+     * @return The next token, or null if there are none left
+     */
+    Token peek() {
+        return hasNext() ? tokens.get(position) : null;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return The next token, or null if there are none left
+     */
+    Token next() {
+        Token token = peek();
+        if (token != null) {
+            position++;
+        }
+        return token;
+    }
+}
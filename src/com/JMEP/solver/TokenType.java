@@ -0,0 +1,21 @@
+package com.JMEP.solver;
+
+/**
+ * The type of a token based on the part of an expression it represents
+ */
+enum TokenType {
+    //a run of characters that is a value or a variable ie: 3 or x
+    Word,
+    //the name of a function that is directly followed by its parameters ie: sin in sin(x)
+    FunctionName,
+    //a value inside of number wrappers ie: [1,2]
+    WrappedValue,
+    //a single operator character ie: +
+    Operator,
+    //the character that opens parentheses
+    OpeningParenthesis,
+    //the character that closes parentheses
+    ClosingParenthesis,
+    //the character that separates parameters
+    Comma
+}
@@ -1,5 +1,6 @@
 package com.JMEP.examples.DoubleArraySolver;
 
+import com.JMEP.solver.CompiledExpression;
 import com.JMEP.solver.EvaluationException;
 import com.JMEP.solver.Function;
 import com.JMEP.solver.OperatorType;
@@ -27,6 +28,12 @@ public class DoubleArraySolverTest {
         assertArrayEquals(solver.toValue("[1]"), new Double[]{(double) 1});
         assertArrayEquals(solver.toValue("[1, 2]"), new Double[]{(double) 1, (double) 2});
         assertArrayEquals(solver.toValue("[1,2,1]"), new Double[]{(double) 1, (double) 2, (double) 1});
+        //test that empty elements at the end are dropped and brackets and spaces are ignored wherever they are
+        assertArrayEquals(solver.toValue("[1,2,]"), new Double[]{(double) 1, (double) 2});
+        assertArrayEquals(solver.toValue("[1,2, ,]"), new Double[]{(double) 1, (double) 2});
+        assertArrayEquals(solver.toValue("[1 2]"), new Double[]{(double) 12});
+        assertArrayEquals(solver.toValue("[[1],[2]]"), new Double[]{(double) 1, (double) 2});
+        assertArrayEquals(solver.solve("[1,2,]+[3,4]"), new Double[]{(double) 4, (double) 6});
         exception.expect(ParsingException.class);
         solver.toValue("a");
     }
@@ -158,6 +165,18 @@ public class DoubleArraySolverTest {
         assertArrayEquals(solver.solve("--[1,1,1]"), new Double[]{(double) 1, (double) 1, (double) 1});
     }
 
+    @Test
+    public void compile() throws Exception {
+        DoubleArraySolver solver = new DoubleArraySolver();
+        CompiledExpression<Double[]> expression = solver.compile("[1,1]+A-[2,2]");
+        Map<String, Double[]> values = new HashMap<>();
+        values.put("A", new Double[]{(double) 3, (double) 4});
+        //evaluating more than once should not change the values in the expression
+        assertArrayEquals(expression.evaluate(values), new Double[]{(double) 2, (double) 3});
+        assertArrayEquals(expression.evaluate(values), new Double[]{(double) 2, (double) 3});
+        assertArrayEquals(values.get("A"), new Double[]{(double) 3, (double) 4});
+    }
+
     @Test
     public void getUndefinedVariables() throws Exception {
         DoubleArraySolver solver = new DoubleArraySolver();
@@ -0,0 +1,141 @@
+package com.JMEP.examples.DoubleArraySolver;
+
+import com.JMEP.solver.CompiledExpression;
+import com.JMEP.solver.EvaluationException;
+import com.JMEP.solver.Function;
+import com.JMEP.solver.ParsingException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A series of tests for the PrimitiveDoubleArraySolver.
+ */
+public class PrimitiveDoubleArraySolverTest {
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void toValue() throws Exception {
+        PrimitiveDoubleArraySolver solver = new PrimitiveDoubleArraySolver();
+        assertArrayEquals(solver.toValue(""), new double[]{}, 0);
+        assertArrayEquals(solver.toValue("[1]"), new double[]{1}, 0);
+        assertArrayEquals(solver.toValue("[1, 2]"), new double[]{1, 2}, 0);
+        assertArrayEquals(solver.toValue("[1,2.5,-1e3]"), new double[]{1, 2.5, -1000}, 0);
+        assertArrayEquals(solver.toValue("[1,2,]"), new double[]{1, 2}, 0);
+        assertArrayEquals(solver.toValue("[1 2]"), new double[]{12}, 0);
+        exception.expect(ParsingException.class);
+        solver.toValue("[1,,2]");
+    }
+
+    @Test
+    public void addFunction() throws Exception {
+        PrimitiveDoubleArraySolver solver = new PrimitiveDoubleArraySolver();
+        solver.addFunction(new Function<double[]>("magnitude") {
+            @Override
+            public double[] evaluate(List<double[]> parameters) throws EvaluationException {
+                if (parameters.size() != 1) {
+                    throw new EvaluationException();
+                }
+                double sum = 0;
+                for (double val : parameters.get(0)) {
+                    sum += val * val;
+                }
+                return new double[]{Math.sqrt(sum)};
+            }
+        });
+        solver.addFunction(new DoubleArrayFunction("square") {
+            @Override
+            public int getResultLength(double[][] parameters) throws EvaluationException {
+                if (parameters.length != 1) {
+                    throw new EvaluationException();
+                }
+                return parameters[0].length;
+            }
+
+            @Override
+            public void apply(double[][] parameters, double[] out) {
+                for (int index = 0; index < out.length; index++) {
+                    out[index] = parameters[0][index] * parameters[0][index];
+                }
+            }
+        });
+        assertArrayEquals(solver.solve("magnitude([3,4])"), new double[]{5}, 0);
+        assertArrayEquals(solver.solve("square([3,4])"), new double[]{9, 16}, 0);
+        assertArrayEquals(solver.compileArray("magnitude(square([1,2]))").evaluate(new HashMap<>()),
+                new double[]{Math.sqrt(17)}, 1e-12);
+    }
+
+    @Test
+    public void solve() throws Exception {
+        PrimitiveDoubleArraySolver solver = new PrimitiveDoubleArraySolver();
+        assertArrayEquals(solver.solve("sum([3,4],[4,5],[5,6]"), new double[]{12, 15}, 0);
+        assertArrayEquals(solver.solve("difference([2,3],sum([3,4],[4,5]))"), new double[]{-5, -6}, 0);
+        assertArrayEquals(solver.solve("[3,4]([4,5])[6,7]"), new double[]{72, 140}, 0);
+        assertArrayEquals(solver.solve("[0,0,0]+[1,1,1]*[1,1,1]"), new double[]{1, 1, 1}, 0);
+        assertArrayEquals(solver.solve("--[1,1,1]"), new double[]{1, 1, 1}, 0);
+        exception.expect(EvaluationException.class);
+        solver.solve("[1,2]+[1,2,3]");
+    }
+
+    @Test
+    public void lex() throws Exception {
+        PrimitiveDoubleArraySolver solver = new PrimitiveDoubleArraySolver();
+        //test wrapped values beside operators and each other
+        assertArrayEquals(solver.solve("[1,2]+[3,4]"), new double[]{4, 6}, 0);
+        assertArrayEquals(solver.solve("[1,2][3,4]"), new double[]{3, 8}, 0);
+        //test an unclosed wrapped value at the end
+        assertArrayEquals(solver.solve("[1,2"), new double[]{1, 2}, 0);
+        //test variables beside wrapped values
+        assertEquals(solver.compile("x[1,2]").getVariableNames(), Collections.singletonList("x"));
+        assertEquals(solver.compile("[1,2]x").getVariableNames(), Collections.singletonList("x"));
+        assertEquals(solver.compile("sum([1,2],x,[3,4])").getVariableNames(), Collections.singletonList("x"));
+    }
+
+    @Test
+    public void compileArray() throws Exception {
+        PrimitiveDoubleArraySolver solver = new PrimitiveDoubleArraySolver();
+        CompiledDoubleArrayExpression expression = solver.compileArray("(A+B)*(A+B)-[1,1]*A");
+        assertEquals(expression.getVariableNames(), Arrays.asList("A", "B"));
+        double[] a = {1, 2};
+        double[] b = {3, 4};
+        double[] out = new double[2];
+        //evaluating more than once should give the same result and leave the values unchanged
+        expression.evaluate(new double[][]{a, b}, out);
+        assertArrayEquals(out, new double[]{15, 34}, 0);
+        expression.evaluate(new double[][]{a, b}, out);
+        assertArrayEquals(out, new double[]{15, 34}, 0);
+        assertArrayEquals(a, new double[]{1, 2}, 0);
+        //the arrays can change length between evaluations
+        expression = solver.compileArray("A*B+A");
+        Map<String, double[]> values = new HashMap<>();
+        values.put("A", new double[]{1, 2, 3});
+        values.put("B", new double[]{0, 1, 2});
+        assertArrayEquals(expression.evaluate(values), new double[]{1, 4, 9}, 0);
+        values.put("A", new double[]{2});
+        values.put("B", new double[]{5});
+        assertArrayEquals(expression.evaluate(values), new double[]{12}, 0);
+        //every array must have the same length
+        values.put("B", new double[]{5, 6});
+        exception.expect(EvaluationException.class);
+        expression.evaluate(values);
+    }
+
+    @Test
+    public void serialize() throws Exception {
+        PrimitiveDoubleArraySolver solver = new PrimitiveDoubleArraySolver();
+        byte[] bytes = solver.serialize(solver.compile("A*[2,3]+[0.5,-1]"));
+        CompiledExpression<double[]> loaded = new PrimitiveDoubleArraySolver().deserialize(ByteBuffer.wrap(bytes));
+        assertArrayEquals(loaded.evaluate(Collections.singletonList(new double[]{1, 2})), new double[]{2.5, 5}, 0);
+        //test bytes that are not an expression
+        bytes[0] = 0;
+        exception.expect(ParsingException.class);
+        solver.deserialize(ByteBuffer.wrap(bytes));
+    }
+}
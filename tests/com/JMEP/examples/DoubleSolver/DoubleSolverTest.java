@@ -1,15 +1,37 @@
 package com.JMEP.examples.DoubleSolver;
 
+import com.JMEP.solver.Associativity;
+import com.JMEP.solver.BulkSolver;
+import com.JMEP.solver.CompiledExpression;
 import com.JMEP.solver.EvaluationException;
 import com.JMEP.solver.Function;
+import com.JMEP.solver.ImmutableSolver;
+import com.JMEP.solver.IncrementalExpression;
+import com.JMEP.solver.LazyFunction;
+import com.JMEP.solver.LazyParameters;
 import com.JMEP.solver.OperatorType;
 import com.JMEP.solver.ParsingException;
+import com.JMEP.solver.SolverMetrics;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -49,6 +71,15 @@ public class DoubleSolverTest {
         solver.addSynonym(" ", "");
         assertEquals(solver.solve("what is the product of 3 and 4"), 12, epsilon);
         assertEquals(solver.solve("what is the sum of 3 and 4"), 7, epsilon);
+        //test a synonym that is not a valid pattern, which keeps the reason as the cause
+        solver.addSynonym("(", "");
+        ParsingException failure = null;
+        try {
+            solver.solve("1");
+        } catch (ParsingException e) {
+            failure = e;
+        }
+        assertEquals(failure.getCause() instanceof PatternSyntaxException, true);
     }
 
     @Test
@@ -100,6 +131,23 @@ public class DoubleSolverTest {
         assertEquals(solver.solve("(★2)(★2)"), 36, epsilon);
         assertEquals(solver.solve("★2(★2)"), 36, epsilon);
         assertEquals(solver.solve("(★2)★2"), 36, epsilon);
+        //test an operator with a declared precedence
+        solver.addFunction(new Function<Double>("modulo") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                if (parameters.size() != 2) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) % parameters.get(1);
+            }
+        });
+        solver.addOperator('%', "modulo", OperatorType.ParametersBeforeAndAfterOperator, 2, Associativity.Left);
+        assertEquals(solver.solve("1+7%4*2"), 7, epsilon);
+        assertEquals(solver.solve("7*3%4"), 1, epsilon);
+        //test an operator whose function does not exist
+        solver.addOperator('#', "missing", OperatorType.ParametersBeforeAndAfterOperator);
+        exception.expect(ParsingException.class);
+        solver.compile("1#2");
     }
 
     @Test
@@ -171,9 +219,23 @@ public class DoubleSolverTest {
         //test order of operations
         assertEquals(solver.solve("3+3*3"), 12, epsilon);
         assertEquals(solver.solve("3*3+3"), 12, epsilon);
+        assertEquals(solver.solve("8/2*2"), 8, epsilon);
+        assertEquals(solver.solve("8-2+2"), 8, epsilon);
+        //test associativity, with ^ grouped from the right and operators at the same level grouped from the left
+        assertEquals(solver.solve("2^3^2"), 512, epsilon);
+        assertEquals(solver.solve("(2^3)^2"), 64, epsilon);
+        assertEquals(solver.solve("2-2-2"), -2, epsilon);
+        assertEquals(solver.solve("8/2/2"), 2, epsilon);
+        assertEquals(solver.solve("8/2*2"), 8, epsilon);
+        assertEquals(solver.solve("8*2/4"), 4, epsilon);
+        assertEquals(solver.solve("8-2+1"), 7, epsilon);
+        assertEquals(solver.solve("8+2-1"), 9, epsilon);
         //test negation
         assertEquals(solver.solve("-3"), -3, epsilon);
         assertEquals(solver.solve("--3"), 3, epsilon);
+        assertEquals(solver.solve("-3+4"), 1, epsilon);
+        assertEquals(solver.solve("-3^2"), -9, epsilon);
+        assertEquals(solver.solve("2^-1"), 0.5, epsilon);
         //ensure the other functions work as expected
         assertEquals(solver.solve("3/4"), 0.75, epsilon);
         assertEquals(solver.solve("3^4"), 81, epsilon);
@@ -185,6 +247,740 @@ public class DoubleSolverTest {
         assertEquals(solver.solve("log(10)"), 1, epsilon);
     }
 
+    @Test
+    public void lex() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        //test a synonym that runs into a function name
+        assertEquals(solver.solve("2times3"), 6, epsilon);
+        assertEquals(solver.solve("2timestan(1)"), 2 * Math.tan(1), 0.0001);
+        //test that the longest function name ending a word is used, with the rest multiplied in front of it
+        solver.addFunction(new Function<Double>("in") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                return 100.0;
+            }
+        });
+        assertEquals(solver.solve("sin(0)"), 0, epsilon);
+        assertEquals(solver.solve("3sin(0)"), 0, epsilon);
+        assertEquals(solver.solve("2cos(0)"), 2, epsilon);
+        assertEquals(solver.compile("xin(0)").getVariableNames(), Collections.singletonList("x"));
+        assertEquals(solver.compile("xsin(y)").getVariableNames(), Arrays.asList("x", "y"));
+        //test variables beside operators and parentheses
+        assertEquals(solver.compile("3!-x/y").getVariableNames(), Arrays.asList("x", "y"));
+        assertEquals(solver.compile("(x)(y)").getVariableNames(), Arrays.asList("x", "y"));
+        assertEquals(solver.compile("ab*c+-x!").getVariableNames(), Arrays.asList("ab", "c", "x"));
+        //test that a word is not split into a number and a variable
+        assertEquals(solver.compile("x^2y").getVariableNames(), Arrays.asList("x", "2y"));
+    }
+
+    @Test
+    public void compile() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        CompiledExpression<Double> expression = solver.compile("x^2+sin(y)-x");
+        assertEquals(expression.getVariableNames(), Arrays.asList("x", "y"));
+        assertEquals(expression.getVariableIndex("y"), 1);
+        assertEquals(expression.getVariableIndex("z"), -1);
+        //test evaluating the same expression with different values
+        Map<String, Double> values = new HashMap<>();
+        values.put("x", 3.0);
+        values.put("y", 0.0);
+        assertEquals(expression.evaluate(values), 6, epsilon);
+        values.put("x", 4.0);
+        assertEquals(expression.evaluate(values), 12, epsilon);
+        assertEquals(expression.evaluate(Arrays.asList(2.0, 0.0)), 2, epsilon);
+        //test expressions with no variables
+        assertEquals(solver.compile("3+3*3").evaluate(new HashMap<>()), 12, epsilon);
+        //test a function that keeps the lists it is given
+        List<List<Double>> kept = new ArrayList<>();
+        solver.addFunction(new Function<Double>("keep") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                kept.add(parameters);
+                return parameters.get(0);
+            }
+        });
+        assertEquals(solver.compile("keep(x,2)+keep(keep(3,x),y)").evaluate(Arrays.asList(1.0, 0.0)), 4, epsilon);
+        assertEquals(kept, Arrays.asList(Arrays.asList(1.0, 2.0), Arrays.asList(3.0, 1.0),
+                Arrays.asList(3.0, 0.0)));
+        //test a variable without a value
+        values.remove("y");
+        exception.expect(EvaluationException.class);
+        expression.evaluate(values);
+    }
+
+    @Test
+    public void compileFoldsConstants() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        int[] calls = new int[2];
+        solver.addFunction(new Function<Double>("pure", true) {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                calls[0]++;
+                return parameters.get(0) + 1;
+            }
+        });
+        solver.addFunction(new Function<Double>("impure") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                calls[1]++;
+                return parameters.get(0) + 1;
+            }
+        });
+        CompiledExpression<Double> expression = solver.compile("2*pure(sin(0))+impure(1)+x");
+        assertEquals(calls[0], 1);
+        assertEquals(expression.evaluate(Collections.singletonList(1.0)), 5, epsilon);
+        assertEquals(expression.evaluate(Collections.singletonList(2.0)), 6, epsilon);
+        assertEquals(calls[0], 1);
+        assertEquals(calls[1], 2);
+        //test that pure calls with variables are not folded
+        CompiledExpression<Double> withVariable = solver.compile("pure(x)");
+        assertEquals(withVariable.evaluate(Collections.singletonList(1.0)), 2, epsilon);
+        assertEquals(calls[0], 2);
+        //test that errors while folding are thrown on evaluation instead
+        CompiledExpression<Double> failing = solver.compile("sin(1,2)");
+        exception.expect(EvaluationException.class);
+        failing.evaluate(Collections.<Double>emptyList());
+    }
+
+    @Test
+    public void compileLimitsDepth() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        //test the deepest expressions that can be compiled
+        StringBuilder chain = new StringBuilder("x");
+        StringBuilder nested = new StringBuilder();
+        for (int term = 0; term < 999; term++) {
+            chain.append("+").append(term % 2);
+            nested.append("(");
+        }
+        nested.append("x");
+        CompiledExpression<Double> expression = solver.compile(chain.toString());
+        assertEquals(expression.evaluate(Collections.singletonList(1.0)), 500, epsilon);
+        assertEquals(solver.compileDouble(chain.toString()).evaluate(new double[]{1}), 500, epsilon);
+        assertEquals(solver.deserialize(ByteBuffer.wrap(solver.serialize(expression)))
+                .evaluate(Collections.singletonList(1.0)), 500, epsilon);
+        assertEquals(solver.compile(nested.toString()).evaluate(Collections.singletonList(1.0)), 1, epsilon);
+        //test that a chain of an associative function can be any length, since it is a single call
+        for (int term = 999; term < 5000; term++) {
+            chain.append("+").append(term % 2);
+        }
+        expression = solver.compile(chain.toString());
+        assertEquals(expression.evaluate(Collections.singletonList(1.0)), 2501, epsilon);
+        assertEquals(solver.compileDouble(chain.toString()).evaluate(1), 2501, epsilon);
+        assertEquals(solver.compileDoubleToInstructions(chain.toString()).evaluate(1), 2501, epsilon);
+        assertEquals(solver.compileDoubleWithMethodHandles(chain.toString()).evaluate(1), 2501, epsilon);
+        assertEquals(solver.deserialize(ByteBuffer.wrap(solver.serialize(expression)))
+                .evaluate(Collections.singletonList(1.0)), 2501, epsilon);
+        StringBuilder product = new StringBuilder("2");
+        for (int term = 0; term < 1500; term++) {
+            product.append("*1");
+        }
+        assertEquals(solver.solve(product.toString()), 2, epsilon);
+        //test a chain of an operator that is not associative that is too long, which must not overflow the stack
+        StringBuilder differences = new StringBuilder("x");
+        for (int term = 0; term < 5000; term++) {
+            differences.append("-1");
+        }
+        exception.expect(ParsingException.class);
+        solver.compile(differences.toString());
+    }
+
+    @Test
+    public void compileSharesSubexpressions() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        int[] calls = new int[2];
+        solver.addFunction(new Function<Double>("pure", true) {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                calls[0]++;
+                return parameters.get(0) + 1;
+            }
+        });
+        solver.addFunction(new Function<Double>("impure") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                calls[1]++;
+                return parameters.get(0) + 1;
+            }
+        });
+        String problem = "pure(a+b)^2/pure(a+b)+impure(a)*impure(a)";
+        CompiledExpression<Double> expression = solver.compile(problem);
+        assertEquals(expression.getSharedCount(), 1);
+        assertEquals(expression.evaluate(Arrays.asList(1.0, 2.0)), 8, epsilon);
+        assertEquals(calls[0], 1);
+        assertEquals(calls[1], 2);
+        //test that the primitive and method handle versions share the same subexpressions
+        assertEquals(solver.compileDouble(problem).evaluate(1, 2), 8, epsilon);
+        assertEquals(calls[0], 2);
+        assertEquals(solver.compileDoubleWithMethodHandles(problem).evaluate(1, 2), 8, epsilon);
+        assertEquals(calls[0], 3);
+        assertEquals(solver.compile("(x+1)*(x+1)+(x+1)").getSharedCount(), 1);
+        assertEquals(solver.compile("x*y+y*x").getSharedCount(), 0);
+    }
+
+    @Test
+    public void compileDoubleSharesUnderLazyFunctions() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        int[] calls = new int[1];
+        solver.addFunction(new LazyFunction<Double>("iff", true) {
+            @Override
+            public Double evaluate(LazyParameters<Double> parameters) throws EvaluationException {
+                return parameters.get(0) != 0 ? parameters.get(1) : parameters.get(2);
+            }
+        });
+        solver.addFunction(new Function<Double>("boom", true) {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                calls[0]++;
+                if (parameters.get(0) == 0) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) * 2;
+            }
+        });
+        //a shared subexpression only used where the lazy function skips it is never evaluated
+        String problem = "iff(y,1,boom(y-1)+boom(y-1))";
+        assertEquals(solver.compile(problem).getSharedCount(), 1);
+        List<CompiledDoubleExpression> expressions = Arrays.asList(solver.compileDouble(problem),
+                solver.compileDoubleWithMethodHandles(problem), solver.compileDoubleToInstructions(problem));
+        for (CompiledDoubleExpression expression : expressions) {
+            calls[0] = 0;
+            assertEquals(expression.evaluate(1), 1, epsilon);
+            assertEquals(expression.evaluate(Collections.singletonMap("y", 1.0)), 1, epsilon);
+            assertEquals(calls[0], 0);
+            assertEquals(expression.evaluate(0), -4, epsilon);
+            assertEquals(calls[0], 1);
+            double[] out = new double[3];
+            expression.evaluateBatch(new double[][]{{1, 0, 1}}, out);
+            assertArrayEquals(out, new double[]{1, -4, 1}, epsilon);
+            assertEquals(calls[0], 2);
+        }
+        //one that is also used outside of it is still evaluated once per evaluation
+        problem = "iff(y,1,boom(y+1)+boom(y+1))+boom(y+1)";
+        expressions = Arrays.asList(solver.compileDouble(problem), solver.compileDoubleWithMethodHandles(problem),
+                solver.compileDoubleToInstructions(problem));
+        for (CompiledDoubleExpression expression : expressions) {
+            calls[0] = 0;
+            assertEquals(expression.evaluate(0), 6, epsilon);
+            assertEquals(calls[0], 1);
+            double[] out = new double[3];
+            expression.evaluateBatch(new double[][]{{1, 0, 1}}, out);
+            assertArrayEquals(out, new double[]{5, 6, 5}, epsilon);
+        }
+    }
+
+    @Test
+    public void compileDouble() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        CompiledDoubleExpression expression = solver.compileDouble("x^2+sum(x,y,1)-cos(y)");
+        assertEquals(expression.getVariableNames(), Arrays.asList("x", "y"));
+        assertEquals(expression.evaluate(3, 0), 12, epsilon);
+        assertEquals(expression.evaluate(4, 0), 20, epsilon);
+        Map<String, Double> values = new HashMap<>();
+        values.put("x", 1.0);
+        values.put("y", 0.0);
+        assertEquals(expression.evaluate(values), 2, epsilon);
+        //test functions that are and are not DoubleFunctions
+        solver.addFunction(new DoubleFunction("hypot") {
+            @Override
+            public double apply(double first, double second) {
+                return Math.hypot(first, second);
+            }
+
+            @Override
+            public double apply(double[] parameters) throws EvaluationException {
+                if (parameters.length != 2) {
+                    throw new EvaluationException();
+                }
+                return apply(parameters[0], parameters[1]);
+            }
+        });
+        solver.addFunction(new Function<Double>("half") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                if (parameters.size() != 1) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) / 2;
+            }
+        });
+        assertEquals(solver.compileDouble("half(hypot(a,4))").evaluate(3), 2.5, epsilon);
+        assertEquals(solver.solve("hypot(6,8)"), 10, epsilon);
+        //test calls inside calls that reuse their arrays, and a function that evaluates the same expression again
+        final CompiledDoubleExpression[] nested = new CompiledDoubleExpression[1];
+        solver.addFunction(new DoubleFunction("inner") {
+            @Override
+            public double apply(double[] parameters) throws EvaluationException {
+                return parameters[0] > 0 ? nested[0].evaluate(parameters[0] - 1, parameters[1]) : parameters[1];
+            }
+        });
+        nested[0] = solver.compileDouble("sum(inner(n,m,0),sum(m,m,m),sum(m,m,m))");
+        assertEquals(nested[0].evaluate(0, 1), 7, epsilon);
+        assertEquals(nested[0].evaluate(2, 1), 19, epsilon);
+        assertEquals(nested[0].evaluate(2, 1), 19, epsilon);
+        //test calls nested deeper than the stack first holds
+        String deep = "x";
+        for (int level = 0; level < 20; level++) {
+            deep = "sum(x," + deep + ",1)";
+        }
+        assertEquals(solver.compileDouble(deep).evaluate(2), 62, epsilon);
+        assertEquals(solver.compileDoubleWithMethodHandles(deep).evaluate(2), 62, epsilon);
+        assertEquals(solver.compileDoubleToInstructions(deep).evaluate(2), 62, epsilon);
+        //test the wrong number of values
+        exception.expect(EvaluationException.class);
+        expression.evaluate(1);
+    }
+
+    @Test
+    public void compileDoubleWithMethodHandles() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        solver.addFunction(new Function<Double>("half") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                if (parameters.size() != 1) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) / 2;
+            }
+        });
+        String[] problems = {"x^2+sum(x,y,1)-cos(y)", "3!-x/y", "multiply(x,y,2,x)+sum(y)", "half(ln(x)*tan(y))", "7",
+                "sum(x,sum(y,x,2),multiply(y,y,y))"};
+        for (String problem : problems) {
+            CompiledDoubleExpression interpreted = solver.compileDouble(problem);
+            CompiledDoubleExpression compiled = solver.compileDoubleWithMethodHandles(problem);
+            assertEquals(compiled.getVariableNames(), interpreted.getVariableNames());
+            double[] values = new double[compiled.getVariableNames().size()];
+            Arrays.fill(values, 1.5);
+            assertEquals(compiled.evaluate(values), interpreted.evaluate(values), epsilon);
+        }
+        exception.expect(EvaluationException.class);
+        solver.compileDoubleWithMethodHandles("sin(1,2)").evaluate();
+    }
+
+    @Test
+    public void compileDoubleToInstructions() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        solver.addFunction(new Function<Double>("half") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                if (parameters.size() != 1) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) / 2;
+            }
+        });
+        String[] problems = {"x^2+sum(x,y,1)-cos(y)", "3!-x/y", "multiply(x,y,2,x)+sum(y)", "half(ln(x)*tan(y))", "7",
+                "sin(x*y)+sin(x*y)/(x-y)", "sum(x,sum(y,x,2),multiply(y,y,y))"};
+        for (String problem : problems) {
+            CompiledDoubleExpression interpreted = solver.compileDouble(problem);
+            CompiledDoubleExpression compiled = solver.compileDoubleToInstructions(problem);
+            assertEquals(compiled.getVariableNames(), interpreted.getVariableNames());
+            double[] values = new double[compiled.getVariableNames().size()];
+            for (int index = 0; index < values.length; index++) {
+                values[index] = 1.5 - index;
+            }
+            assertEquals(compiled.evaluate(values), interpreted.evaluate(values), epsilon);
+        }
+        //test a function that runs the same program again, above it on the stack, until the stack must grow
+        final CompiledDoubleExpression[] nested = new CompiledDoubleExpression[1];
+        solver.addFunction(new DoubleFunction("inner") {
+            @Override
+            public double apply(double[] parameters) throws EvaluationException {
+                return parameters[0] > 0 ? nested[0].evaluate(parameters[0] - 1, parameters[1]) : parameters[1];
+            }
+        });
+        String recursive = "inner(n,m,0)*sum(m,m,m)+m*2";
+        nested[0] = solver.compileDoubleToInstructions(recursive);
+        assertEquals(nested[0].evaluate(2, 1), 53, epsilon);
+        double expected = nested[0].evaluate(30, 1);
+        nested[0] = solver.compileDouble(recursive);
+        assertEquals(nested[0].evaluate(30, 1), expected, epsilon);
+        //a function that replaces an operator is called instead of the operator's own instruction
+        solver.addFunction(new DoubleFunction("sum", true) {
+            @Override
+            public double apply(double[] parameters) {
+                return parameters[0] - parameters[1];
+            }
+        });
+        assertEquals(solver.compileDoubleToInstructions("5+x").evaluate(2), 3, epsilon);
+        exception.expect(EvaluationException.class);
+        solver.compileDoubleToInstructions("sin(1,2)").evaluate();
+    }
+
+    @Test
+    public void evaluateBatch() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        solver.addFunction(new Function<Double>("half") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                return parameters.get(0) / 2;
+            }
+        });
+        String problem = "(x+y)^2/(x+y)-sum(x,y,1)+half(3!)*cos(y)";
+        CompiledDoubleExpression expression = solver.compileDouble(problem);
+        //test more rows than fit in one block
+        int rows = 2500;
+        Map<String, double[]> columns = new HashMap<>();
+        columns.put("x", new double[rows]);
+        columns.put("y", new double[rows]);
+        for (int row = 0; row < rows; row++) {
+            columns.get("x")[row] = row;
+            columns.get("y")[row] = row % 7;
+        }
+        double[] out = new double[rows];
+        expression.evaluateBatch(columns, out);
+        for (int row = 0; row < rows; row++) {
+            assertEquals(out[row], expression.evaluate(row, row % 7), epsilon);
+        }
+        solver.compileDoubleWithMethodHandles(problem).evaluateBatch(columns, out);
+        assertEquals(out[rows - 1], expression.evaluate(rows - 1, (rows - 1) % 7), epsilon);
+        double[] constant = new double[3];
+        solver.evaluateBatch("2*3", new HashMap<>(), constant);
+        assertEquals(constant[2], 6, epsilon);
+        //test a missing column
+        columns.remove("y");
+        exception.expect(EvaluationException.class);
+        expression.evaluateBatch(columns, out);
+    }
+
+    @Test
+    public void evaluateBatchInParallel() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        CompiledDoubleExpression expression = solver.compileDouble("x^2+sin(y)-x*y");
+        int rows = 1000000;
+        double[][] columns = new double[2][rows];
+        for (int row = 0; row < rows; row++) {
+            columns[0][row] = row * 0.001;
+            columns[1][row] = row % 5;
+        }
+        double[] expected = new double[rows];
+        expression.evaluateBatch(columns, expected);
+        double[] out = new double[rows];
+        Map<String, double[]> named = new HashMap<>();
+        named.put("x", columns[0]);
+        named.put("y", columns[1]);
+        expression.evaluateBatchInParallel(named, out);
+        assertArrayEquals(out, expected, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Arrays.fill(out, 0);
+            expression.evaluateBatchInParallel(columns, out, executor);
+            assertArrayEquals(out, expected, 0);
+            //test that an Error in a chunk is thrown by the caller instead of being lost on the executor's thread
+            solver.addFunction(new DoubleFunction("checked", true) {
+                @Override
+                public double apply(double[] parameters) {
+                    if (parameters[0] < 0) {
+                        throw new Error("negative");
+                    }
+                    return parameters[0];
+                }
+            });
+            columns[0][rows - 1] = -1;
+            double[][] xColumn = {columns[0]};
+            Error error = null;
+            try {
+                solver.compileDouble("checked(x)").evaluateBatchInParallel(xColumn, out, executor);
+            } catch (Error e) {
+                error = e;
+            }
+            assertEquals(error.getMessage(), "negative");
+            //test that no chunk is still running once an executor that will not take every chunk has been rejected
+            AtomicInteger evaluated = new AtomicInteger();
+            solver.addFunction(new DoubleFunction("counted") {
+                @Override
+                public double apply(double[] parameters) {
+                    evaluated.incrementAndGet();
+                    return parameters[0];
+                }
+            });
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            Executor limited = new Executor() {
+                //the number of chunks that have been given out
+                private int taken = 0;
+
+                @Override
+                public void execute(Runnable command) {
+                    if (++taken > 2) {
+                        throw new RejectedExecutionException();
+                    }
+                    pool.execute(command);
+                }
+            };
+            RejectedExecutionException rejected = null;
+            try {
+                solver.compileDouble("counted(x)").evaluateBatchInParallel(xColumn, out, limited);
+            } catch (RejectedExecutionException e) {
+                rejected = e;
+            }
+            int seen = evaluated.get();
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+            assertEquals(rejected != null, true);
+            assertEquals(evaluated.get(), seen);
+            //test that errors in any chunk are thrown
+            solver.addFunction(new DoubleFunction("positive") {
+                @Override
+                public double apply(double[] parameters) throws EvaluationException {
+                    if (parameters[0] < 0) {
+                        throw new EvaluationException();
+                    }
+                    return parameters[0];
+                }
+            });
+            columns[0][rows - 1] = -1;
+            exception.expect(EvaluationException.class);
+            solver.compileDouble("positive(x)+y").evaluateBatchInParallel(columns, out, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void toIncremental() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        List<Double> calls = new ArrayList<>();
+        solver.addFunction(new Function<Double>("slow", true) {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                calls.add(parameters.get(0));
+                return parameters.get(0) * 10;
+            }
+        });
+        solver.addFunction(new Function<Double>("counter") {
+            //the number of times the function has been called
+            private double count = 0;
+
+            @Override
+            public Double evaluate(List<Double> parameters) {
+                return ++count;
+            }
+        });
+        IncrementalExpression<Double> expression = solver.compile("slow(a)+slow(b)*slow(a+1)").toIncremental();
+        assertEquals(expression.getVariableNames(), Arrays.asList("a", "b"));
+        assertEquals(expression.set("a", 1.0), true);
+        assertEquals(expression.set("unused", 1.0), false);
+        expression.set("b", 2.0);
+        assertEquals(expression.evaluate(), 10 + 20 * 20, epsilon);
+        assertEquals(calls.size(), 3);
+        //test that only the parts that depend on a changed variable are evaluated again
+        expression.set("b", 3.0);
+        assertEquals(expression.evaluate(), 10 + 30 * 20, epsilon);
+        assertEquals(calls.subList(3, calls.size()), Collections.singletonList(3.0));
+        expression.set("b", 3.0);
+        assertEquals(expression.evaluate(), 10 + 30 * 20, epsilon);
+        assertEquals(calls.size(), 4);
+        expression.set("a", 2.0);
+        assertEquals(expression.evaluate(), 20 + 30 * 30, epsilon);
+        assertEquals(calls.subList(4, calls.size()), Arrays.asList(2.0, 3.0));
+        //test that a function that is not pure is evaluated every time
+        expression = solver.compile("counter(x)+x").toIncremental();
+        expression.set("x", 5.0);
+        assertEquals(expression.evaluate(), 6, epsilon);
+        assertEquals(expression.evaluate(), 7, epsilon);
+        //test a variable without a value
+        exception.expect(EvaluationException.class);
+        solver.compile("x+y").toIncremental().evaluate();
+    }
+
+    @Test
+    public void serialize() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        Function<Double> half = new Function<Double>("half") {
+            @Override
+            public Double evaluate(List<Double> parameters) throws EvaluationException {
+                return parameters.get(0) / 2;
+            }
+        };
+        solver.addFunction(half);
+        String[] problems = {"sin(x)*sin(x)+half(y)-sin(x)", "3!+x^-0.5", "sum(x,y,2.25,x)", "7", "mañana*2"};
+        ByteArrayOutputStream catalog = new ByteArrayOutputStream();
+        for (String problem : problems) {
+            catalog.write(solver.serialize(solver.compile(problem)));
+        }
+        //test that another solver can read the expressions one after another, with its own functions
+        DoubleSolver loader = new DoubleSolver();
+        loader.addFunction(half);
+        ByteBuffer buffer = ByteBuffer.wrap(catalog.toByteArray());
+        Map<String, Double> values = new HashMap<>();
+        values.put("x", 1.5);
+        values.put("y", 4.0);
+        values.put("mañana", 3.0);
+        for (String problem : problems) {
+            CompiledExpression<Double> expected = solver.compile(problem);
+            CompiledExpression<Double> loaded = loader.deserialize(buffer);
+            assertEquals(loaded.getVariableNames(), expected.getVariableNames());
+            assertEquals(loaded.getSharedCount(), expected.getSharedCount());
+            assertEquals(loaded.evaluate(values), expected.evaluate(values), epsilon);
+        }
+        assertEquals(buffer.remaining(), 0);
+        //test an expression with a function the solver does not have
+        exception.expect(ParsingException.class);
+        new DoubleSolver().deserialize(ByteBuffer.wrap(solver.serialize(solver.compile("half(x)"))));
+    }
+
+    @Test
+    public void bulkSolver() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        //enough lines to be split into many chunks, with errors and carriage returns among them
+        for (int line = 0; line < 50000; line++) {
+            if (line % 1000 == 7) {
+                input.append("sin(1))");
+                expected.append("error: ParsingException");
+            } else if (line % 1000 == 8) {
+                input.append("x*2");
+                expected.append("error: ParsingException");
+            } else if (line % 1000 == 9) {
+                input.append("sin(1,2)");
+                expected.append("error: EvaluationException");
+            } else {
+                input.append(line).append("*2+1");
+                expected.append(line * 2 + 1.0);
+            }
+            input.append(line % 3 == 0 ? "\r\n" : "\n");
+            expected.append('\n');
+        }
+        //the last line does not need a line break
+        input.append("3^2");
+        expected.append("9.0\n");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new BulkSolver<>(solver.toImmutable(), 3).solve(
+                Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(output));
+        assertEquals(new String(output.toByteArray(), StandardCharsets.UTF_8), expected.toString());
+    }
+
+    @Test
+    public void toImmutable() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        solver.addVariable("k", "2");
+        solver.enableParseCache(8);
+        ImmutableSolver<Double> immutable = solver.toImmutable();
+        //test that later changes to the solver do not change the copy
+        solver.addOperator('%', "modulo", OperatorType.ParametersBeforeAndAfterOperator, 2, Associativity.Left);
+        solver.clearVariables();
+        assertEquals(immutable.solve("3*k+1"), 7, epsilon);
+        assertEquals(immutable.getUndefinedVariables("x*y+k"), new HashSet<>(Arrays.asList("x", "y")));
+        //test solving from several threads at once
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            for (int task = 0; task < 200; task++) {
+                Map<String, Double> values = new HashMap<>();
+                values.put("x", (double) task);
+                values.put("y", (double) (task % 3));
+                results.add(executor.submit(() -> immutable.solve("x^2+y*k-x", values)));
+            }
+            for (int task = 0; task < results.size(); task++) {
+                assertEquals(results.get(task).get(), task * task + task % 3 * 2 - task, epsilon);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(immutable.getParseCacheStatistics().getMaximumSize(), 8);
+        //test a variable without a value
+        exception.expect(EvaluationException.class);
+        immutable.solve("x+y", Collections.singletonMap("x", 1.0));
+    }
+
+    @Test
+    public void solveDouble() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        assertEquals(solver.solveDouble("3+3*3"), 12, epsilon);
+        assertEquals(solver.solveDouble("2(3!)"), 12, epsilon);
+        exception.expect(ParsingException.class);
+        solver.solveDouble("3+x");
+    }
+
+    @Test
+    public void enableParseCache() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        assertEquals(solver.getParseCacheStatistics(), null);
+        solver.enableParseCache(2);
+        assertEquals(solver.solve("3+4"), 7, epsilon);
+        assertEquals(solver.solve("3+4"), 7, epsilon);
+        assertEquals(solver.getParseCacheStatistics().getHits(), 1);
+        assertEquals(solver.getParseCacheStatistics().getMisses(), 1);
+        //test that the least recently used expression is removed when the cache is full
+        solver.solve("1+1");
+        solver.solve("3+4");
+        solver.solve("2+2");
+        assertEquals(solver.getParseCacheStatistics().getEvictions(), 1);
+        assertEquals(solver.getParseCacheStatistics().getSize(), 2);
+        solver.solve("3+4");
+        assertEquals(solver.getParseCacheStatistics().getHits(), 3);
+        //test that changing the grammar makes cached expressions out of date
+        solver.addSynonym("plus", "+");
+        solver.addVariable("E", Math.E + "");
+        assertEquals(solver.solve("3plusE"), 3 + Math.E, epsilon);
+        solver.clearVariables();
+        assertEquals(solver.compile("3plusE").getVariableNames(), Arrays.asList("E"));
+        assertEquals(solver.getParseCacheStatistics().getMisses(), 5);
+        solver.disableParseCache();
+        assertEquals(solver.getParseCacheStatistics(), null);
+        //test a cache that cannot hold anything
+        exception.expect(IllegalArgumentException.class);
+        solver.enableParseCache(0);
+    }
+
+    @Test
+    public void setMetricsListener() throws Exception {
+        DoubleSolver solver = new DoubleSolver();
+        SolverMetrics metrics = new SolverMetrics();
+        solver.setMetricsListener(metrics);
+        CompiledExpression<Double> expression = solver.compile("sin(x)+x*2");
+        Map<String, Double> values = new HashMap<>();
+        values.put("x", 1.0);
+        expression.evaluate(values);
+        expression.evaluate(values);
+        assertEquals(metrics.getParsingHistogram().getCount(), 1);
+        assertEquals(metrics.getEvaluationHistogram().getCount(), 2);
+        assertEquals(metrics.getFunctionHistograms().get("sin").getCount(), 2);
+        assertEquals(metrics.getFunctionHistograms().get("multiply").getCount(), 2);
+        assertEquals(metrics.getFunctionHistograms().get("sum").getCount(), 2);
+        //parse failures and evaluation failures are counted apart
+        try {
+            solver.compile("sin(1))");
+        } catch (ParsingException e) {
+            //expected
+        }
+        try {
+            solver.compile("sin(1,2)+x").evaluate(values);
+        } catch (EvaluationException e) {
+            //expected
+        }
+        assertEquals(metrics.getParseFailures(), 1);
+        assertEquals(metrics.getEvaluationFailures(), 1);
+        //a variable without a value is an evaluation failure, with the time spent before it, and not an evaluation
+        try {
+            expression.evaluate(new HashMap<>());
+        } catch (EvaluationException e) {
+            //expected
+        }
+        assertEquals(metrics.getEvaluationFailureHistogram().getCount(), 2);
+        assertEquals(metrics.getParseFailureHistogram().getCount(), 1);
+        assertEquals(metrics.getEvaluationHistogram().getCount(), 2);
+        assertEquals(metrics.getParsingHistogram().getCount(), 2);
+        //nothing is recorded once the listener is removed
+        solver.setMetricsListener(null);
+        solver.compile("sin(x)").evaluate(values);
+        assertEquals(metrics.getEvaluationHistogram().getCount(), 2);
+        assertEquals(metrics.getEvaluationHistogram().getPercentile(100) >= metrics.getEvaluationHistogram()
+                .getPercentile(50), true);
+        //test that setting a listener keeps the parse cache, and cached expressions still tell the listener
+        solver.enableParseCache(4);
+        solver.compile("sin(x)");
+        solver.setMetricsListener(metrics);
+        solver.compile("sin(x)").evaluate(values);
+        assertEquals(solver.getParseCacheStatistics().getHits(), 1);
+        assertEquals(metrics.getEvaluationHistogram().getCount(), 3);
+        solver.setMetricsListener(null);
+        solver.compile("sin(x)").evaluate(values);
+        assertEquals(solver.getParseCacheStatistics().getHits(), 2);
+        assertEquals(metrics.getEvaluationHistogram().getCount(), 3);
+    }
+
     @Test
     public void getUndefinedVariables() throws Exception {
         DoubleSolver solver = new DoubleSolver();
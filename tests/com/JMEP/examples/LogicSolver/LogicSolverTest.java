@@ -125,6 +125,17 @@ public class LogicSolverTest {
         //test order of operations
         assertEquals(solver.solve("true^false∨true"), true);
         assertEquals(solver.solve("true∨true^false"), true);
+        //test that implies is grouped from the right
+        assertEquals(solver.solve("false⇒true⇒false"), true);
+        assertEquals(solver.solve("(false⇒true)⇒false"), false);
+        assertEquals(solver.solve("true⇒false⇒false"), true);
+        //test chains of more than a thousand operators
+        StringBuilder disjunction = new StringBuilder("false");
+        for (int index = 0; index < 1500; index++) {
+            disjunction.append("∨false");
+        }
+        assertEquals(solver.solve(disjunction.toString()), false);
+        assertEquals(solver.solve(disjunction + "∨true"), true);
         //test negation
         assertEquals(solver.solve("~true"), false);
         assertEquals(solver.solve("~~true"), true);
@@ -133,6 +144,63 @@ public class LogicSolverTest {
         assertEquals(solver.solve("false⇔true"), false);
     }
 
+    @Test
+    public void lex() throws Exception {
+        LogicSolver solver = new LogicSolver();
+        //test values and variables beside operators
+        assertEquals(solver.solve("True^~False"), true);
+        assertEquals(solver.compile("p^~q").getVariableNames(), Arrays.asList("p", "q"));
+        assertEquals(solver.compile("~(p∨q)").getVariableNames(), Arrays.asList("p", "q"));
+        assertEquals(solver.compile("p⇒q⇔r").getVariableNames(), Arrays.asList("p", "q", "r"));
+        assertEquals(solver.compile("True^p").getVariableNames(), Collections.singletonList("p"));
+        //test that values next to each other are one word
+        assertEquals(solver.compile("TrueFalse").getVariableNames(), Collections.singletonList("TrueFalse"));
+        //test variables as function parameters
+        assertEquals(solver.compile("if(p,q,r)").getVariableNames(), Arrays.asList("p", "q", "r"));
+        //test a multi-character synonym that overlaps another
+        solver.addSynonym(" or ", "∨");
+        solver.addSynonym(" xor ", "★");
+        solver.addFunction(new Function<Boolean>("exclusiveOR") {
+            @Override
+            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
+                return parameters.get(0) != parameters.get(1);
+            }
+        });
+        solver.addOperator('★', "exclusiveOR", OperatorType.ParametersBeforeAndAfterOperator);
+        assertEquals(solver.solve("true xor true"), false);
+        assertEquals(solver.solve("true or true"), true);
+    }
+
+    @Test
+    public void shortCircuit() throws Exception {
+        LogicSolver solver = new LogicSolver();
+        final int[] calls = {0};
+        solver.addFunction(new Function<Boolean>("expensive") {
+            @Override
+            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
+                calls[0]++;
+                return parameters.get(0);
+            }
+        });
+        //the right side is only evaluated when it can change the result
+        assertEquals(solver.solve("False^expensive(True)"), false);
+        assertEquals(solver.solve("True∨expensive(False)"), true);
+        assertEquals(solver.solve("False⇒expensive(False)"), true);
+        assertEquals(calls[0], 0);
+        assertEquals(solver.solve("True^expensive(False)"), false);
+        assertEquals(calls[0], 1);
+        //only the chosen branch of a conditional is evaluated
+        assertEquals(solver.solve("if(True,expensive(True),expensive(False))"), true);
+        assertEquals(solver.solve("if(False,expensive(True),True∨False)"), true);
+        assertEquals(calls[0], 2);
+        //a skipped parameter that cannot be evaluated is not an error
+        assertEquals(solver.solve("False^not(True,True)"), false);
+        //lazy functions can still be converted from their truth tables
+        assertEquals(solver.isEquivalent("if(p,q,r)", "(p^q)∨(~p^r)"), true);
+        exception.expect(EvaluationException.class);
+        solver.solve("if(True,False)");
+    }
+
     @Test
     public void getUndefinedVariables() throws Exception {
         LogicSolver solver = new LogicSolver();
@@ -155,6 +223,184 @@ public class LogicSolverTest {
         assertEquals(solver.isSatisifiable("~p^p"), false);
         //test multiple variables
         assertEquals(solver.isSatisifiable("~p^p^q"), false);
+        assertEquals(solver.isSatisifiable("(p∨q)^(~p∨r)^~r"), true);
+        assertEquals(solver.isSatisifiable("True"), true);
+        //test that no variables are left defined
+        exception.expect(ParsingException.class);
+        solver.solve("p");
+    }
+
+    @Test
+    public void getSatisfyingAssignment() throws Exception {
+        LogicSolver solver = new LogicSolver();
+        Map<String, Boolean> assignment = solver.getSatisfyingAssignment("(p∨q)^(~p∨r)^~r");
+        Map<String, Boolean> expected = new HashMap<>();
+        expected.put("p", false);
+        expected.put("q", true);
+        expected.put("r", false);
+        assertEquals(assignment, expected);
+        assertEquals(solver.getSatisfyingAssignment("(p⇔q)^(p⇔~q)"), null);
+        //test a function the solver does not know, which is encoded from its truth table
+        solver.addFunction(new Function<Boolean>("exclusiveOR") {
+            @Override
+            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
+                if (parameters.size() != 2) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) != parameters.get(1);
+            }
+        });
+        assignment = solver.getSatisfyingAssignment("exclusiveOR(a,b)^(a⇒c)^~c");
+        assertEquals(assignment.get("a"), false);
+        assertEquals(assignment.get("b"), true);
+        //test a chain of implications with hundreds of variables
+        StringBuilder chain = new StringBuilder("v0");
+        for (int index = 0; index < 300; index++) {
+            chain.append("^(v").append(index).append("⇒v").append(index + 1).append(")");
+        }
+        assignment = solver.getSatisfyingAssignment(chain.toString());
+        assertEquals(assignment.size(), 301);
+        assertEquals(assignment.get("v300"), true);
+        assertEquals(solver.isSatisifiable(chain + "^~v300"), false);
+        //test a policy of more than a thousand conjoined clauses, which is a single call to and
+        StringBuilder policy = new StringBuilder("v0");
+        for (int index = 0; index < 1500; index++) {
+            policy.append("^(~v").append(index).append("∨v").append(index + 1).append(")");
+        }
+        assignment = solver.getSatisfyingAssignment(policy.toString());
+        assertEquals(assignment.get("v1500"), true);
+        assertEquals(solver.isSatisifiable(policy + "^~v1500"), false);
+        //test that there is no room for seven pigeons in six holes
+        StringBuilder pigeons = new StringBuilder("True");
+        for (int pigeon = 0; pigeon < 7; pigeon++) {
+            pigeons.append("^(");
+            for (int hole = 0; hole < 6; hole++) {
+                pigeons.append(hole == 0 ? "" : "∨").append("p").append(pigeon).append("h").append(hole);
+            }
+            pigeons.append(")");
+            for (int other = 0; other < pigeon; other++) {
+                for (int hole = 0; hole < 6; hole++) {
+                    pigeons.append("^(~p").append(pigeon).append("h").append(hole)
+                            .append("∨~p").append(other).append("h").append(hole).append(")");
+                }
+            }
+        }
+        assertEquals(solver.isSatisifiable(pigeons.toString()), false);
+    }
+
+    @Test
+    public void isEquivalent() throws Exception {
+        LogicSolver solver = new LogicSolver();
+        assertEquals(solver.isEquivalent("p⇒q", "~p∨q"), true);
+        assertEquals(solver.isEquivalent("~(p^q)", "~p∨~q"), true);
+        assertEquals(solver.isEquivalent("p^(q∨r)", "(p^q)∨(p^r)"), true);
+        assertEquals(solver.isEquivalent("p⇔q", "(p⇒q)^(q⇒p)"), true);
+        assertEquals(solver.isEquivalent("p⇒q", "q⇒p"), false);
+        //test expressions with different variables
+        assertEquals(solver.isEquivalent("p^(q∨~q)", "p"), true);
+        assertEquals(solver.isEquivalent("p∨~p", "True"), true);
+        assertEquals(solver.isEquivalent("p", "q"), false);
+        //test a function the solver does not know, which is converted from its truth table
+        solver.addFunction(new Function<Boolean>("exclusiveOR") {
+            @Override
+            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
+                if (parameters.size() != 2) {
+                    throw new EvaluationException();
+                }
+                return parameters.get(0) != parameters.get(1);
+            }
+        });
+        assertEquals(solver.isEquivalent("exclusiveOR(a,b)", "~(a⇔b)"), true);
+        //test a sum of forty bits, which has too many rows for a truth table
+        StringBuilder chained = new StringBuilder("v0");
+        StringBuilder nested = new StringBuilder("v39");
+        for (int index = 1; index < 40; index++) {
+            chained.insert(0, "exclusiveOR(").append(",v").append(index).append(")");
+            nested.insert(0, "exclusiveOR(v" + (39 - index) + ",").append(")");
+        }
+        assertEquals(solver.isEquivalent(chained.toString(), nested.toString()), true);
+        assertEquals(solver.isEquivalent(chained.toString(), nested.toString().replace("v7,", "~v7,")), false);
+        //test a chain of an associative function the solver does not know, which is a single call of forty parameters
+        solver.addFunction(new Function<Boolean>("parity", true, true) {
+            @Override
+            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
+                boolean odd = false;
+                for (Boolean parameter : parameters) {
+                    odd ^= parameter;
+                }
+                return odd;
+            }
+        });
+        solver.addOperator('⊕', "parity", OperatorType.ParametersBeforeAndAfterOperator);
+        StringBuilder parity = new StringBuilder("v0");
+        for (int index = 1; index < 40; index++) {
+            parity.append("⊕v").append(index);
+        }
+        assertEquals(solver.isEquivalent(parity.toString(), chained.toString()), true);
+        assertEquals(solver.isSatisifiable(parity + "^~v0^~v1"), true);
+        assertEquals(solver.isSatisifiable("(a⊕b⊕c)^~a^~b^~c"), false);
+        assertEquals(solver.getTruthTable("a⊕b⊕c").countSatisfyingAssignments(), 4);
+    }
+
+    @Test
+    public void isTautology() throws Exception {
+        LogicSolver solver = new LogicSolver();
+        assertEquals(solver.isTautology("p∨~p"), true);
+        assertEquals(solver.isTautology("((p⇒q)^(q⇒r))⇒(p⇒r)"), true);
+        assertEquals(solver.isTautology("p⇒q"), false);
+        assertEquals(solver.isTautology("True"), true);
+        exception.expect(EvaluationException.class);
+        solver.isTautology("not(p,q)");
+    }
+
+    @Test
+    public void getTruthTable() throws Exception {
+        LogicSolver solver = new LogicSolver();
+        TruthTable table = solver.getTruthTable("p⇒q");
+        assertEquals(table.getVariableNames(), Arrays.asList("p", "q"));
+        assertEquals(table.getRowCount(), 4);
+        assertEquals(table.get(0), true);
+        assertEquals(table.get(1), false);
+        assertEquals(table.get(2), true);
+        assertEquals(table.get(3), true);
+        assertEquals(table.countSatisfyingAssignments(), 3);
+        assertEquals(table.nextSatisfyingRow(1), 2);
+        assertEquals(solver.getTruthTable("True").countSatisfyingAssignments(), 1);
+        //test that a table of many words matches evaluating each row
+        String expression = "(a∨~b)^(c⇔d)∨(e^f^~g)∨(h⇒(a^i))∨~(b∨c∨h)";
+        table = solver.getTruthTable(expression);
+        List<String> names = table.getVariableNames();
+        assertEquals(table.getRowCount(), 512);
+        long count = 0;
+        for (long row = 0; row < table.getRowCount(); row++) {
+            Map<String, Boolean> values = new HashMap<>();
+            for (int index = 0; index < names.size(); index++) {
+                values.put(names.get(index), (row >> index & 1) == 1);
+            }
+            boolean expected = solver.compile(expression).evaluate(values);
+            assertEquals(table.get(row), expected);
+            assertEquals(table.get(values), expected);
+            count += expected ? 1 : 0;
+        }
+        assertEquals(table.countSatisfyingAssignments(), count);
+        assertEquals(table.toBitSet().cardinality(), count);
+        //test a function the solver does not know, which is evaluated from its truth table
+        solver.addFunction(new Function<Boolean>("majority") {
+            @Override
+            public Boolean evaluate(List<Boolean> parameters) throws EvaluationException {
+                if (parameters.size() != 3) {
+                    throw new EvaluationException();
+                }
+                int count = 0;
+                for (Boolean parameter : parameters) {
+                    count += parameter ? 1 : 0;
+                }
+                return count >= 2;
+            }
+        });
+        assertEquals(solver.countSatisfyingAssignments("majority(x,y,z)"), 4);
+        exception.expect(EvaluationException.class);
+        solver.getTruthTable("majority(x,y)");
     }
 
 }
\ No newline at end of file